@@ -20,6 +20,13 @@ repositories {
     mavenCentral()
 }
 
+// The Tomcat valves, loaded by Tomcat from catalina.base/lib
+val valve: SourceSet by sourceSets.creating
+
+dependencies {
+    "valveCompileOnly"("org.apache.tomcat:tomcat-catalina:8.5.100")
+}
+
 // Configure Gradle IntelliJ Plugin - read more: https://github.com/JetBrains/gradle-intellij-plugin
 intellij {
     pluginName.set(prop("pluginName"))
@@ -48,6 +55,21 @@ tasks {
         options.release.set(prop("compatibleJdkVersion").toInt())
     }
 
+    named<JavaCompile>("compileValveJava") {
+        options.release.set(prop("compatibleJdkVersion").toInt())
+    }
+
+    val valveJar by registering(Jar::class) {
+        archiveFileName.set("smarttomcat-valve.jar")
+        from(valve.output)
+    }
+
+    processResources {
+        from(valveJar) {
+            into("valve")
+        }
+    }
+
     wrapper {
         gradleVersion = prop("gradleVersion")
     }
@@ -0,0 +1,59 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.poratu.idea.plugins.tomcat.utils.PluginUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * An entry of the additional modules of a run configuration, i.e. {@code module} or {@code module=docBase}.
+ * Without a doc base, the module is deployed from its first web root, like the run configurations created from the
+ * context of a module.
+ */
+final class AdditionalModule {
+    private final String name;
+    private final String docBase;
+
+    private AdditionalModule(@NotNull String name, @Nullable String docBase) {
+        this.name = name;
+        this.docBase = docBase;
+    }
+
+    static AdditionalModule parse(@NotNull String entry) {
+        int eq = entry.indexOf('=');
+        if (eq < 0) {
+            return new AdditionalModule(entry.trim(), null);
+        }
+        return new AdditionalModule(entry.substring(0, eq).trim(), StringUtil.nullize(entry.substring(eq + 1).trim()));
+    }
+
+    @NotNull
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return the configured doc base, or {@code null} to use the first web root of the module
+     */
+    @Nullable
+    String getDocBase() {
+        return docBase;
+    }
+
+    /**
+     * @return the doc base to deploy, or {@code null} if none is configured and the module has no web root
+     */
+    @Nullable
+    String resolveDocBase(@NotNull Module module) {
+        if (docBase != null) {
+            return docBase;
+        }
+        List<VirtualFile> webRoots = PluginUtils.findWebRoots(module);
+        return webRoots.isEmpty() ? null : webRoots.get(0).getPath();
+    }
+
+}
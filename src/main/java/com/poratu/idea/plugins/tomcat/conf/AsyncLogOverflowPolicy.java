@@ -0,0 +1,29 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+/**
+ * What {@code org.apache.juli.AsyncFileHandler} does when its queue is full,
+ * see the {@code org.apache.juli.AsyncOverflowDropType} system property.
+ */
+public enum AsyncLogOverflowPolicy {
+    DROP_LAST(1, "Drop last"),
+    DROP_FIRST(2, "Drop first"),
+    DROP_FLUSH(3, "Wait and flush"),
+    DROP_CURRENT(4, "Drop current");
+
+    private final int dropType;
+    private final String displayName;
+
+    AsyncLogOverflowPolicy(int dropType, String displayName) {
+        this.dropType = dropType;
+        this.displayName = displayName;
+    }
+
+    public int getDropType() {
+        return dropType;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
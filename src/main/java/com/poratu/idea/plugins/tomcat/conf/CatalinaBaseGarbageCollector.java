@@ -0,0 +1,322 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Removes the default catalina.base directories, {@code ~/.SmartTomcat/<project>/<module>}, of the projects which
+ * don't exist anymore and of the modules removed from the open projects, then the files of the
+ * {@link CatalinaBaseStore store} which no base links to.
+ * <p>
+ * A base locked by a launch or a running Tomcat, even of another IDE, is never touched. A base without a marker,
+ * i.e. not launched since the store exists, is only removed when its project is open and has no such module.
+ * The catalina.base directories configured in the run configurations are never removed.
+ */
+public final class CatalinaBaseGarbageCollector {
+    private static final Logger LOG = Logger.getInstance(CatalinaBaseGarbageCollector.class);
+
+    // A file stored by a launch in progress isn't linked yet
+    private static final long STORE_GRACE_PERIOD_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final List<Project> openProjects;
+    private final Result result = new Result();
+
+    private CatalinaBaseGarbageCollector(@NotNull List<Project> openProjects) {
+        this.openProjects = openProjects;
+    }
+
+    public static Result collect(@NotNull List<Project> openProjects, @NotNull ProgressIndicator indicator) {
+        CatalinaBaseGarbageCollector collector = new CatalinaBaseGarbageCollector(openProjects);
+        Path root = CatalinaBaseStore.getRoot();
+        if (Files.isDirectory(root)) {
+            indicator.setText("Removing the unused catalina.base directories");
+            collector.collectBases(root, indicator);
+            indicator.setText("Removing the unused files of the store");
+            collector.collectStore(root, indicator);
+        }
+        return collector.result;
+    }
+
+    private void collectBases(Path root, ProgressIndicator indicator) {
+        for (Path projectDir : listDirectories(root)) {
+            if (projectDir.equals(CatalinaBaseStore.getStoreDir())) {
+                continue;
+            }
+            for (Path base : listDirectories(projectDir)) {
+                indicator.checkCanceled();
+                if (isUnused(projectDir.getFileName().toString(), base)) {
+                    remove(base);
+                }
+            }
+            if (listDirectories(projectDir).isEmpty() && !hasFiles(projectDir)) {
+                delete(projectDir);
+            }
+        }
+    }
+
+    private boolean isUnused(String projectName, Path base) {
+        Properties marker = CatalinaBaseStore.readMarker(base);
+        if (marker != null) {
+            String projectPath = marker.getProperty(CatalinaBaseStore.PROJECT_PATH_PROPERTY);
+            String module = marker.getProperty(CatalinaBaseStore.MODULE_PROPERTY);
+            if (projectPath == null || module == null) {
+                return false;
+            }
+            if (!Files.isDirectory(Paths.get(projectPath))) {
+                return true;
+            }
+            // The modules of a closed project are unknown
+            for (Project project : openProjects) {
+                if (projectPath.equals(project.getBasePath())) {
+                    return !hasModule(project, module);
+                }
+            }
+            return false;
+        }
+
+        Project project = null;
+        for (Project openProject : openProjects) {
+            if (openProject.getName().equals(projectName)) {
+                if (project != null) {
+                    // Can't tell which one
+                    return false;
+                }
+                project = openProject;
+            }
+        }
+        if (project == null) {
+            return false;
+        }
+
+        // The instances of a cluster use the name of the module suffixed with their number
+        String name = base.getFileName().toString();
+        String module = name.replaceFirst("-\\d+$", "");
+        return !hasModule(project, name) && !hasModule(project, module);
+    }
+
+    private static boolean hasModule(Project project, String name) {
+        return ReadAction.compute(() -> project.isDisposed() || ModuleManager.getInstance(project).findModuleByName(name) != null);
+    }
+
+    private void remove(Path base) {
+        CatalinaBaseStore.BaseLock lock;
+        try {
+            lock = CatalinaBaseStore.tryLock(base);
+        } catch (IOException e) {
+            LOG.warn("Cannot lock " + base, e);
+            return;
+        }
+        if (lock == null) {
+            result.runningBases.add(base);
+            return;
+        }
+
+        Path lockFile = base.resolve(CatalinaBaseStore.LOCK_FILE);
+        try {
+            Files.walkFileTree(base, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    // Deleted once released, Windows can't delete an open file
+                    if (!file.equals(lockFile)) {
+                        long size = getReclaimableSize(file, attrs);
+                        CatalinaBaseStore.delete(file);
+                        result.reclaimedBytes += size;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    if (!dir.equals(base)) {
+                        Files.delete(dir);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn("Cannot remove " + base, e);
+            return;
+        } finally {
+            lock.release();
+        }
+
+        delete(lockFile);
+        delete(base);
+        result.removedBases.add(base);
+    }
+
+    private void collectStore(Path root, ProgressIndicator indicator) {
+        Path storeDir = CatalinaBaseStore.getStoreDir();
+        if (!Files.isDirectory(storeDir)) {
+            return;
+        }
+
+        Set<String> linkedHashes = null;
+        long now = System.currentTimeMillis();
+        for (Path prefixDir : listDirectories(storeDir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(prefixDir)) {
+                for (Path file : files) {
+                    indicator.checkCanceled();
+                    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (now - attrs.lastModifiedTime().toMillis() < STORE_GRACE_PERIOD_MILLIS) {
+                        continue;
+                    }
+
+                    Integer linkCount = getLinkCount(file);
+                    boolean linked;
+                    if (file.getFileName().toString().endsWith(".tmp")) {
+                        linked = false;
+                    } else if (linkCount != null) {
+                        linked = linkCount > 1;
+                    } else {
+                        // The file system doesn't tell the links, look for the files with the same content
+                        if (linkedHashes == null) {
+                            linkedHashes = hashBaseFiles(root, storeDir);
+                        }
+                        linked = linkedHashes.contains(file.getFileName().toString());
+                    }
+                    if (!linked) {
+                        CatalinaBaseStore.delete(file);
+                        result.reclaimedBytes += attrs.size();
+                        result.removedStoreFiles++;
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn("Cannot clean " + prefixDir, e);
+            }
+            if (!hasFiles(prefixDir)) {
+                delete(prefixDir);
+            }
+        }
+    }
+
+    private static Set<String> hashBaseFiles(Path root, Path storeDir) {
+        Set<String> hashes = new HashSet<>();
+        for (Path projectDir : listDirectories(root)) {
+            if (projectDir.equals(storeDir)) {
+                continue;
+            }
+            for (Path base : listDirectories(projectDir)) {
+                Path confPath = base.resolve("conf");
+                if (!Files.isDirectory(confPath)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.walk(confPath)) {
+                    for (Iterator<Path> iterator = files.iterator(); iterator.hasNext(); ) {
+                        Path file = iterator.next();
+                        if (Files.isRegularFile(file)) {
+                            hashes.add(CatalinaBaseStore.hash(file));
+                        }
+                    }
+                } catch (IOException e) {
+                    LOG.warn("Cannot read " + confPath, e);
+                }
+            }
+        }
+        return hashes;
+    }
+
+    // Deleting a link of a file which has other links frees nothing
+    private static long getReclaimableSize(Path file, BasicFileAttributes attrs) {
+        Integer linkCount = getLinkCount(file);
+        return linkCount != null && linkCount > 1 ? 0 : attrs.size();
+    }
+
+    @Nullable
+    private static Integer getLinkCount(Path file) {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private static List<Path> listDirectories(Path dir) {
+        List<Path> directories = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path child : children) {
+                directories.add(child);
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot list " + dir, e);
+        }
+        return directories;
+    }
+
+    private static boolean hasFiles(Path dir) {
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+            return children.iterator().hasNext();
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Cannot delete " + path, e);
+        }
+    }
+
+    public static class Result {
+        private final List<Path> removedBases = new ArrayList<>();
+        private final List<Path> runningBases = new ArrayList<>();
+        private int removedStoreFiles;
+        private long reclaimedBytes;
+
+        public List<Path> getRemovedBases() {
+            return removedBases;
+        }
+
+        public List<Path> getRunningBases() {
+            return runningBases;
+        }
+
+        public long getReclaimedBytes() {
+            return reclaimedBytes;
+        }
+
+        public String render() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Reclaimed ").append(StringUtil.formatFileSize(reclaimedBytes)).append(", removed ")
+                    .append(removedBases.size()).append(" catalina.base directories and ")
+                    .append(removedStoreFiles).append(" stored files.");
+            for (Path base : removedBases) {
+                sb.append("\n  ").append(base);
+            }
+            if (!runningBases.isEmpty()) {
+                sb.append("\n\nSkipped ").append(runningBases.size()).append(" directories used by a running Tomcat:");
+                for (Path base : runningBases) {
+                    sb.append("\n  ").append(base);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+}
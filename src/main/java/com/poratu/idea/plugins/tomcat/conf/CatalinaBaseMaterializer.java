@@ -0,0 +1,64 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Materializes the configuration of a catalina.base from the configuration of the project.
+ * <p>
+ * The files are hard links to the {@link CatalinaBaseStore store}, which keeps one copy of every distinct file, so
+ * the configuration costs neither I/O nor disk space whatever the number of modules and launches. The files
+ * rewritten by the plugin, and the files Tomcat itself may write, become private copies, so that the writes never
+ * reach the other bases. When the file system can't link, e.g. FAT or across volumes, the files are copied.
+ */
+final class CatalinaBaseMaterializer {
+    private static final Logger LOG = Logger.getInstance(CatalinaBaseMaterializer.class);
+
+    // Saved by the UserDatabase when users or roles are changed, e.g. from the manager application
+    private static final Set<String> TOMCAT_WRITTEN_FILES = Collections.singleton("tomcat-users.xml");
+
+    private CatalinaBaseMaterializer() {
+    }
+
+    /**
+     * @param source       the configuration of the project
+     * @param target       the configuration of catalina.base, must not exist
+     * @param privateFiles whether a file, relative to {@code source}, is rewritten and needs a private copy
+     */
+    static void materialize(@NotNull Path source, @NotNull Path target, @NotNull Predicate<Path> privateFiles) throws IOException {
+        boolean canLink = true;
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Iterator<Path> iterator = files.iterator(); iterator.hasNext(); ) {
+                Path file = iterator.next();
+                Path relative = source.relativize(file);
+                Path targetFile = target.resolve(relative.toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(targetFile);
+                    continue;
+                }
+
+                if (canLink && !privateFiles.test(relative) && !TOMCAT_WRITTEN_FILES.contains(relative.toString())) {
+                    try {
+                        Files.createLink(targetFile, CatalinaBaseStore.intern(file));
+                        continue;
+                    } catch (UnsupportedOperationException | IOException e) {
+                        LOG.info("Cannot link " + targetFile + " to the store, copying the configuration", e);
+                        canLink = false;
+                    }
+                }
+                Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+}
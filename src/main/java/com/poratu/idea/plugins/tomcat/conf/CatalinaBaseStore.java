@@ -0,0 +1,280 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The shared state of the catalina.base directories under {@code ~/.SmartTomcat}:
+ * <ul>
+ *     <li>a content-addressed store of the configuration files, named by their SHA-256, which the bases link to so
+ *     that the identical files of every module and instance are stored once</li>
+ *     <li>a marker in every base, recording the project and the module it belongs to</li>
+ *     <li>a lock in every base, held while its Tomcat is prepared and running, even by another IDE</li>
+ * </ul>
+ * See {@link CatalinaBaseGarbageCollector} for the removal of the bases and files which are not used anymore.
+ */
+public final class CatalinaBaseStore {
+    private static final Logger LOG = Logger.getInstance(CatalinaBaseStore.class);
+
+    static final String MARKER_FILE = ".smarttomcat-base.properties";
+    static final String LOCK_FILE = ".smarttomcat.lock";
+    static final String PROJECT_PATH_PROPERTY = "projectPath";
+    static final String MODULE_PROPERTY = "module";
+
+    // Avoid hashing the unchanged files of the project at every launch
+    private static final Map<Path, HashedFile> HASHES = new ConcurrentHashMap<>();
+
+    private CatalinaBaseStore() {
+    }
+
+    /**
+     * @return the directory of the default catalina.base directories, {@code ~/.SmartTomcat}
+     */
+    public static Path getRoot() {
+        return Paths.get(System.getProperty("user.home"), ".SmartTomcat");
+    }
+
+    static Path getStoreDir() {
+        return getRoot().resolve(".store");
+    }
+
+    /**
+     * Add the content of a file to the store, unless it's already there
+     * <p>
+     * The files of the store are read-only, as a write through any of their links would change the configuration of
+     * every base. As the protection can be lifted, a stored file is hashed again before it's reused, and replaced if its
+     * content changed.
+     *
+     * @return the file of the store with the same content
+     */
+    static Path intern(@NotNull Path file) throws IOException {
+        String hash = hash(file);
+        Path stored = getStoreDir().resolve(hash.substring(0, 2)).resolve(hash);
+        if (Files.exists(stored) && Files.size(stored) == Files.size(file) && hash(stored).equals(hash)) {
+            // Mark the file as used, the garbage collector keeps the recently used files
+            Files.setLastModifiedTime(stored, FileTime.fromMillis(System.currentTimeMillis()));
+            rememberHash(stored, hash);
+            return stored;
+        }
+
+        // Copy to a temporary file and move it, so that a concurrent launch never links to a partial file. Moving over
+        // a changed file leaves its links to the bases which use it, which are linked again at their next launch.
+        Files.createDirectories(stored.getParent());
+        Path temp = Files.createTempFile(stored.getParent(), hash, ".tmp");
+        try {
+            Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+            if (!temp.toFile().setReadOnly()) {
+                LOG.info("Cannot make " + temp + " read-only");
+            }
+            if (Files.exists(stored)) {
+                delete(stored);
+            }
+            try {
+                Files.move(temp, stored, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+                Files.move(temp, stored, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            if (Files.exists(temp)) {
+                delete(temp);
+            }
+        }
+        rememberHash(stored, hash);
+        return stored;
+    }
+
+    /**
+     * Delete a file of the store or a link to it, which may be read-only
+     */
+    static void delete(@NotNull Path file) throws IOException {
+        try {
+            Files.delete(file);
+        } catch (AccessDeniedException e) {
+            // Windows doesn't delete the read-only files
+            if (!file.toFile().setWritable(true)) {
+                throw e;
+            }
+            Files.delete(file);
+        }
+    }
+
+    static String hash(@NotNull Path file) throws IOException {
+        Path key = file.toAbsolutePath();
+        long size = Files.size(key);
+        long lastModified = Files.getLastModifiedTime(key).toMillis();
+        HashedFile hashed = HASHES.get(key);
+        if (hashed != null && hashed.size == size && hashed.lastModified == lastModified) {
+            return hashed.hash;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(key)) {
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        String hash = sb.toString();
+        HASHES.put(key, new HashedFile(size, lastModified, hash));
+        return hash;
+    }
+
+    private static void rememberHash(Path file, String hash) throws IOException {
+        Path key = file.toAbsolutePath();
+        HASHES.put(key, new HashedFile(Files.size(key), Files.getLastModifiedTime(key).toMillis(), hash));
+    }
+
+    /**
+     * Record the project and the module of a base, which tells the garbage collector when the base can be removed
+     */
+    static void writeMarker(@NotNull Path catalinaBase, @NotNull Project project, @NotNull Module module) throws IOException {
+        Properties properties = new Properties();
+        String projectPath = project.getBasePath();
+        if (projectPath != null) {
+            properties.setProperty(PROJECT_PATH_PROPERTY, projectPath);
+        }
+        properties.setProperty(MODULE_PROPERTY, module.getName());
+        try (OutputStream out = Files.newOutputStream(catalinaBase.resolve(MARKER_FILE))) {
+            properties.store(out, "SmartTomcat catalina.base");
+        }
+    }
+
+    @Nullable
+    static Properties readMarker(@NotNull Path catalinaBase) {
+        Path marker = catalinaBase.resolve(MARKER_FILE);
+        if (!Files.isRegularFile(marker)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(marker)) {
+            properties.load(in);
+            return properties;
+        } catch (IOException e) {
+            LOG.warn("Cannot read " + marker, e);
+            return null;
+        }
+    }
+
+    /**
+     * Lock a base for a launch
+     *
+     * @throws ExecutionException if another Tomcat uses the base
+     */
+    static BaseLock lock(@NotNull Path catalinaBase) throws ExecutionException {
+        BaseLock lock;
+        try {
+            lock = tryLock(catalinaBase);
+        } catch (IOException e) {
+            throw new ExecutionException("Cannot lock " + catalinaBase + ": " + e.getMessage(), e);
+        }
+        if (lock == null) {
+            throw new ExecutionException("The catalina.base " + catalinaBase + " is used by another Tomcat, stop it first");
+        }
+        return lock;
+    }
+
+    /**
+     * @return the lock, or null if the base is locked by a launch or a running Tomcat
+     */
+    @Nullable
+    static BaseLock tryLock(@NotNull Path catalinaBase) throws IOException {
+        Files.createDirectories(catalinaBase);
+        FileChannel channel = FileChannel.open(catalinaBase.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return new BaseLock(channel, lock);
+            }
+        } catch (OverlappingFileLockException e) {
+            // Locked by this IDE
+        }
+        channel.close();
+        return null;
+    }
+
+    static class BaseLock {
+        private final FileChannel channel;
+        private final FileLock lock;
+
+        BaseLock(FileChannel channel, FileLock lock) {
+            this.channel = channel;
+            this.lock = lock;
+        }
+
+        /**
+         * Keep the base locked until the process terminates
+         */
+        void releaseOnTermination(@NotNull ProcessHandler processHandler) {
+            processHandler.addProcessListener(new ProcessAdapter() {
+                @Override
+                public void processTerminated(@NotNull ProcessEvent event) {
+                    release();
+                }
+            });
+            if (processHandler.isProcessTerminated()) {
+                release();
+            }
+        }
+
+        synchronized void release() {
+            try {
+                if (lock.isValid()) {
+                    lock.release();
+                }
+                channel.close();
+            } catch (IOException e) {
+                LOG.warn("Cannot release the lock of a catalina.base", e);
+            }
+        }
+    }
+
+    private static class HashedFile {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        HashedFile(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+}
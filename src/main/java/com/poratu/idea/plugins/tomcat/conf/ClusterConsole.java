@@ -0,0 +1,48 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.execution.ui.ExecutionConsole;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.ui.components.JBTabbedPane;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The consoles of the instances of a cluster, one tab per instance.
+ */
+public class ClusterConsole implements ExecutionConsole {
+    private final List<ExecutionConsole> consoles;
+    private final JBTabbedPane tabbedPane = new JBTabbedPane();
+
+    ClusterConsole(@NotNull List<ExecutionConsole> consoles, @NotNull List<String> titles) {
+        this.consoles = new ArrayList<>(consoles);
+        for (int i = 0; i < consoles.size(); i++) {
+            tabbedPane.addTab(titles.get(i), consoles.get(i).getComponent());
+        }
+    }
+
+    public List<ExecutionConsole> getConsoles() {
+        return consoles;
+    }
+
+    @Override
+    public @NotNull JComponent getComponent() {
+        return tabbedPane;
+    }
+
+    @Override
+    public JComponent getPreferredFocusableComponent() {
+        int selected = Math.max(0, tabbedPane.getSelectedIndex());
+        return consoles.get(selected).getPreferredFocusableComponent();
+    }
+
+    @Override
+    public void dispose() {
+        for (ExecutionConsole console : consoles) {
+            Disposer.dispose(console);
+        }
+    }
+
+}
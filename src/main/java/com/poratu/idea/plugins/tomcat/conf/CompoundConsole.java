@@ -0,0 +1,65 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.execution.ui.ExecutionConsole;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBTabbedPane;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The consoles of a compound launch: a tab for the launch itself, and a tab per member which shows the console of
+ * the member once started.
+ */
+public class CompoundConsole implements ExecutionConsole {
+    private final ExecutionConsole launchConsole;
+    private final List<ExecutionConsole> memberConsoles = new ArrayList<>();
+    private final JBTabbedPane tabbedPane = new JBTabbedPane();
+    private boolean disposed;
+
+    CompoundConsole(@NotNull ExecutionConsole launchConsole, @NotNull List<String> memberTitles) {
+        this.launchConsole = launchConsole;
+        tabbedPane.addTab("Launch", launchConsole.getComponent());
+        for (String title : memberTitles) {
+            JBLabel placeholder = new JBLabel("Waiting to start", SwingConstants.CENTER);
+            tabbedPane.addTab(title, placeholder);
+        }
+    }
+
+    /**
+     * Show the console of a started member, the console is disposed with this console
+     */
+    void setMemberConsole(int index, @NotNull ExecutionConsole console) {
+        ApplicationManager.getApplication().assertIsDispatchThread();
+        if (disposed) {
+            Disposer.dispose(console);
+            return;
+        }
+        memberConsoles.add(console);
+        tabbedPane.setComponentAt(index + 1, console.getComponent());
+    }
+
+    @Override
+    public @NotNull JComponent getComponent() {
+        return tabbedPane;
+    }
+
+    @Override
+    public JComponent getPreferredFocusableComponent() {
+        return launchConsole.getPreferredFocusableComponent();
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        Disposer.dispose(launchConsole);
+        for (ExecutionConsole console : memberConsoles) {
+            Disposer.dispose(console);
+        }
+    }
+
+}
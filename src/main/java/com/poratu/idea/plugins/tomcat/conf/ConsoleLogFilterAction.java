@@ -0,0 +1,182 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.FoldRegion;
+import com.intellij.openapi.editor.FoldingModel;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Filters the console by log level, thread or logger, using the {@link ConsoleLogIndex} of the console.
+ * The lines which don't match are folded, so the console text is never copied nor rescanned. While a filter is set,
+ * the lines printed afterwards are folded as they come.
+ */
+public class ConsoleLogFilterAction extends DumbAwareAction {
+
+    private final ServerConsoleView console;
+    private final List<FoldRegion> foldRegions = new ArrayList<>();
+    private ConsoleLogIndex.Filter filter = ConsoleLogIndex.Filter.ALL;
+    // The lines of the console already folded by the filter
+    private int foldedLines;
+    private boolean listening;
+    private boolean updateScheduled;
+
+    public ConsoleLogFilterAction(ServerConsoleView console) {
+        super("Filter Log", "Filter the console by level, thread or logger", AllIcons.General.Filter);
+        this.console = console;
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        ConsoleLogIndex index = console.getLogIndex();
+        DefaultActionGroup group = new DefaultActionGroup();
+        group.add(createFilterAction("Show All", ConsoleLogIndex.Filter.ALL));
+
+        DefaultActionGroup levelGroup = new DefaultActionGroup("Level", true);
+        for (int i = 0; i < ConsoleLogIndex.LEVELS.length; i++) {
+            levelGroup.add(createFilterAction(ConsoleLogIndex.LEVELS[i] + " and Above", filter.withMaxLevel(i)));
+        }
+        group.add(levelGroup);
+
+        DefaultActionGroup threadGroup = new DefaultActionGroup("Thread", true);
+        threadGroup.add(createFilterAction("Any Thread", filter.withThread(null)));
+        for (String thread : index.getThreadNames()) {
+            threadGroup.add(createFilterAction(thread, filter.withThread(thread)));
+        }
+        group.add(threadGroup);
+
+        DefaultActionGroup loggerGroup = new DefaultActionGroup("Logger", true);
+        loggerGroup.add(createFilterAction("Any Logger", filter.withLogger(null)));
+        for (String logger : index.getLoggerNames()) {
+            loggerGroup.add(createFilterAction(logger, filter.withLogger(logger)));
+        }
+        group.add(loggerGroup);
+
+        JBPopupFactory.getInstance()
+                .createActionGroupPopup("Filter Log", group, e.getDataContext(),
+                        JBPopupFactory.ActionSelectionAid.SPEEDSEARCH, true)
+                .showInBestPositionFor(e.getDataContext());
+    }
+
+    private DumbAwareAction createFilterAction(String text, ConsoleLogIndex.Filter newFilter) {
+        return new DumbAwareAction(text) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                applyFilter(newFilter);
+            }
+        };
+    }
+
+    private void applyFilter(ConsoleLogIndex.Filter newFilter) {
+        Editor editor = console.getEditor();
+        if (editor == null) {
+            return;
+        }
+
+        console.flushDeferredText();
+        filter = newFilter;
+        if (!listening) {
+            listening = true;
+            editor.getDocument().addDocumentListener(new DocumentListener() {
+                @Override
+                public void documentChanged(@NotNull DocumentEvent event) {
+                    onDocumentChanged(editor, event);
+                }
+            }, console);
+        }
+
+        FoldingModel foldingModel = editor.getFoldingModel();
+        foldingModel.runBatchFoldingOperation(() -> {
+            for (FoldRegion region : foldRegions) {
+                if (region.isValid()) {
+                    foldingModel.removeFoldRegion(region);
+                }
+            }
+            foldRegions.clear();
+            foldedLines = 0;
+
+            if (!newFilter.isAll()) {
+                foldNewLines(editor);
+            }
+        });
+    }
+
+    private void onDocumentChanged(Editor editor, DocumentEvent event) {
+        if (event.getOffset() == 0 && event.getNewLength() == 0) {
+            // The oldest lines were dropped, or the console was cleared
+            foldedLines = Math.max(0, foldedLines - StringUtil.countNewLines(event.getOldFragment()));
+            foldRegions.removeIf(region -> !region.isValid());
+        }
+        if (filter.isAll() || event.getNewLength() == 0 || updateScheduled) {
+            return;
+        }
+
+        // The folding can't change while the document does
+        updateScheduled = true;
+        ApplicationManager.getApplication().invokeLater(() -> {
+            updateScheduled = false;
+            if (!filter.isAll() && !editor.isDisposed()) {
+                editor.getFoldingModel().runBatchFoldingOperation(() -> foldNewLines(editor));
+            }
+        });
+    }
+
+    // Fold the lines printed since the last folding which don't match the filter
+    private void foldNewLines(Editor editor) {
+        Document document = editor.getDocument();
+        ConsoleLogIndex index = console.getLogIndex();
+        // Only the complete lines, the index may also have the lines not printed yet
+        int documentLines = Math.min(document.getLineNumber(document.getTextLength()), index.getLineCount());
+        if (foldedLines >= documentLines) {
+            return;
+        }
+        BitSet matches = index.match(filter, foldedLines, documentLines);
+
+        FoldingModel foldingModel = editor.getFoldingModel();
+        int line = foldedLines;
+        while (line < documentLines) {
+            int hiddenStart = matches.nextClearBit(line);
+            if (hiddenStart >= documentLines) {
+                break;
+            }
+            int hiddenEnd = matches.nextSetBit(hiddenStart);
+            if (hiddenEnd < 0 || hiddenEnd > documentLines) {
+                hiddenEnd = documentLines;
+            }
+
+            int startOffset = document.getLineStartOffset(hiddenStart);
+            // Extend the last region when the hidden lines follow it
+            FoldRegion last = foldRegions.isEmpty() ? null : foldRegions.get(foldRegions.size() - 1);
+            if (last != null && last.isValid() && hiddenStart == foldedLines && hiddenStart > 0
+                    && last.getEndOffset() == document.getLineEndOffset(hiddenStart - 1)) {
+                startOffset = last.getStartOffset();
+                foldingModel.removeFoldRegion(last);
+                foldRegions.remove(foldRegions.size() - 1);
+            }
+
+            int lines = hiddenEnd - document.getLineNumber(startOffset);
+            FoldRegion region = foldingModel.addFoldRegion(startOffset, document.getLineEndOffset(hiddenEnd - 1),
+                    "<" + lines + " line(s) hidden>");
+            if (region != null) {
+                region.setExpanded(false);
+                foldRegions.add(region);
+            }
+            line = hiddenEnd;
+        }
+        foldedLines = documentLines;
+    }
+
+}
@@ -0,0 +1,320 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact side index of the console output, one entry per line.
+ * <p>
+ * Every line is parsed against the layout of the JULI {@code OneLineFormatter}, e.g.:
+ * <pre>
+ * 21-Jun-2023 13:27:15.385 INFO [main] org.apache.catalina.startup.Catalina.load Server initialized in [789] milliseconds
+ * </pre>
+ * The level, thread and logger are kept in primitive arrays, thread and logger names are stored once in a symbol table.
+ * The lines without a header, e.g. the stack traces, inherit the facets of the previous record.
+ * <p>
+ * The index follows the cyclic buffer of the console, the lines it drops are removed by {@link #removeFirstLines(int)},
+ * so that the line {@code i} of the index is the line {@code i} of the console. The arrays are used as a ring: removing
+ * lines only moves the offset of the first line, and the lines are moved back to the start of the arrays once the
+ * offset passes half of the capacity, or when the end of the arrays is reached.
+ */
+public class ConsoleLogIndex {
+
+    public static final String[] LEVELS = {"SEVERE", "WARNING", "INFO", "CONFIG", "FINE", "FINER", "FINEST"};
+
+    // Only the header of a line is needed, don't keep the rest of long lines
+    private static final int MAX_HEADER_LENGTH = 512;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private byte[] levels = new byte[INITIAL_CAPACITY];
+    private int[] threads = new int[INITIAL_CAPACITY];
+    private int[] loggers = new int[INITIAL_CAPACITY];
+    // The offset of the first line in the arrays
+    private int start;
+    private int lineCount;
+
+    private final SymbolTable threadNames = new SymbolTable();
+    private final SymbolTable loggerNames = new SymbolTable();
+    private final StringBuilder pendingHeader = new StringBuilder();
+
+    private byte currentLevel = -1;
+    private int currentThread = -1;
+    private int currentLogger = -1;
+
+    public synchronized void append(@NotNull CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                commitLine();
+            } else if (pendingHeader.length() < MAX_HEADER_LENGTH) {
+                pendingHeader.append(c);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        start = 0;
+        lineCount = 0;
+        threadNames.clear();
+        loggerNames.clear();
+        pendingHeader.setLength(0);
+        currentLevel = -1;
+        currentThread = -1;
+        currentLogger = -1;
+    }
+
+    /**
+     * Remove the oldest lines, e.g. dropped by the console once its buffer is full
+     */
+    public synchronized void removeFirstLines(int count) {
+        int removed = Math.min(count, lineCount);
+        if (removed <= 0) {
+            return;
+        }
+        start += removed;
+        lineCount -= removed;
+        if (start > levels.length / 2) {
+            moveToStart(levels.length);
+        }
+    }
+
+    /**
+     * @return the number of complete lines indexed, i.e. the lines of the console and the ones not printed yet
+     */
+    public synchronized int getLineCount() {
+        return lineCount;
+    }
+
+    public synchronized List<String> getThreadNames() {
+        return threadNames.names();
+    }
+
+    public synchronized List<String> getLoggerNames() {
+        return loggerNames.names();
+    }
+
+    /**
+     * Find the lines matching the filter.
+     *
+     * @return the indexes of the matching lines
+     */
+    public synchronized BitSet match(@NotNull Filter filter) {
+        return match(filter, 0, lineCount);
+    }
+
+    /**
+     * Find the lines matching the filter among the lines from {@code fromLine}, inclusive, to {@code toLine}, exclusive.
+     *
+     * @return the indexes of the matching lines
+     */
+    public synchronized BitSet match(@NotNull Filter filter, int fromLine, int toLine) {
+        int thread = filter.thread == null ? -1 : threadNames.idOf(filter.thread);
+        int logger = filter.logger == null ? -1 : loggerNames.idOf(filter.logger);
+        BitSet result = new BitSet(toLine);
+
+        if ((filter.thread != null && thread < 0) || (filter.logger != null && logger < 0)) {
+            return result;
+        }
+
+        for (int i = Math.max(fromLine, 0); i < Math.min(toLine, lineCount); i++) {
+            int index = start + i;
+            if (filter.maxLevel >= 0 && (levels[index] < 0 || levels[index] > filter.maxLevel)) {
+                continue;
+            }
+            if (thread >= 0 && threads[index] != thread) {
+                continue;
+            }
+            if (logger >= 0 && loggers[index] != logger) {
+                continue;
+            }
+            result.set(i);
+        }
+
+        return result;
+    }
+
+    private void commitLine() {
+        parseHeader(pendingHeader);
+        pendingHeader.setLength(0);
+
+        if (start + lineCount == levels.length) {
+            // Reuse the space of the removed lines while it is at least half of the capacity
+            moveToStart(lineCount > levels.length / 2 ? levels.length * 2 : levels.length);
+        }
+
+        int index = start + lineCount;
+        levels[index] = currentLevel;
+        threads[index] = currentThread;
+        loggers[index] = currentLogger;
+        lineCount++;
+    }
+
+    // Move the lines to the start of the arrays, growing them to the given capacity
+    private void moveToStart(int capacity) {
+        if (capacity == levels.length) {
+            System.arraycopy(levels, start, levels, 0, lineCount);
+            System.arraycopy(threads, start, threads, 0, lineCount);
+            System.arraycopy(loggers, start, loggers, 0, lineCount);
+        } else {
+            levels = Arrays.copyOfRange(levels, start, start + capacity);
+            threads = Arrays.copyOfRange(threads, start, start + capacity);
+            loggers = Arrays.copyOfRange(loggers, start, start + capacity);
+        }
+        start = 0;
+    }
+
+    // <date> <time> <LEVEL> [<thread>] <class>.<method> <message>
+    private void parseHeader(CharSequence line) {
+        int levelStart = indexOf(line, ' ', indexOf(line, ' ', 0) + 1) + 1;
+        if (levelStart <= 0) {
+            return;
+        }
+
+        int levelEnd = indexOf(line, ' ', levelStart);
+        if (levelEnd < 0 || levelEnd + 1 >= line.length() || line.charAt(levelEnd + 1) != '[') {
+            return;
+        }
+
+        byte level = parseLevel(line, levelStart, levelEnd);
+        if (level < 0) {
+            return;
+        }
+
+        int threadEnd = indexOf(line, ']', levelEnd + 2);
+        if (threadEnd < 0 || threadEnd + 1 >= line.length() || line.charAt(threadEnd + 1) != ' ') {
+            return;
+        }
+
+        int sourceStart = threadEnd + 2;
+        int sourceEnd = indexOf(line, ' ', sourceStart);
+        if (sourceEnd < 0) {
+            sourceEnd = line.length();
+        }
+        // Strip the method name
+        int loggerEnd = sourceEnd;
+        for (int i = sourceEnd - 1; i > sourceStart; i--) {
+            if (line.charAt(i) == '.') {
+                loggerEnd = i;
+                break;
+            }
+        }
+
+        currentLevel = level;
+        currentThread = threadNames.intern(line, levelEnd + 2, threadEnd);
+        currentLogger = loggerNames.intern(line, sourceStart, loggerEnd);
+    }
+
+    private static byte parseLevel(CharSequence line, int start, int end) {
+        for (byte i = 0; i < LEVELS.length; i++) {
+            String level = LEVELS[i];
+            if (level.length() == end - start && regionMatches(line, start, level)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(CharSequence line, int start, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (line.charAt(start + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence line, char c, int from) {
+        for (int i = from; i < line.length(); i++) {
+            if (line.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static class Filter {
+        public static final Filter ALL = new Filter(-1, null, null);
+
+        private final int maxLevel;
+        private final String thread;
+        private final String logger;
+
+        /**
+         * @param maxLevel the index in {@link #LEVELS} of the least severe level to show, or -1 for any level
+         * @param thread   the thread name, or {@code null} for any thread
+         * @param logger   the logger name, or {@code null} for any logger
+         */
+        public Filter(int maxLevel, @Nullable String thread, @Nullable String logger) {
+            this.maxLevel = maxLevel;
+            this.thread = thread;
+            this.logger = logger;
+        }
+
+        public Filter withMaxLevel(int maxLevel) {
+            return new Filter(maxLevel, thread, logger);
+        }
+
+        public Filter withThread(@Nullable String thread) {
+            return new Filter(maxLevel, thread, logger);
+        }
+
+        public Filter withLogger(@Nullable String logger) {
+            return new Filter(maxLevel, thread, logger);
+        }
+
+        public boolean isAll() {
+            return maxLevel < 0 && thread == null && logger == null;
+        }
+    }
+
+    private static class SymbolTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        // The last interned symbol, most of the consecutive lines share the same thread and logger
+        private int lastId = -1;
+
+        int intern(CharSequence line, int start, int end) {
+            if (lastId >= 0) {
+                String last = names.get(lastId);
+                if (last.length() == end - start && regionMatches(line, start, last)) {
+                    return lastId;
+                }
+            }
+
+            String name = line.subSequence(start, end).toString();
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                names.add(name);
+                ids.put(name, id);
+            }
+            lastId = id;
+            return id;
+        }
+
+        int idOf(String name) {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+
+        void clear() {
+            ids.clear();
+            names.clear();
+            lastId = -1;
+        }
+
+        List<String> names() {
+            List<String> result = new ArrayList<>(names);
+            result.sort(String::compareTo);
+            return result;
+        }
+    }
+
+}
@@ -1,12 +1,24 @@
 package com.poratu.idea.plugins.tomcat.conf;
 
 import com.intellij.execution.impl.ConsoleViewImpl;
+import com.intellij.execution.process.ProcessHandler;
 import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.Url;
 import com.intellij.util.Urls;
+import com.intellij.util.containers.ContainerUtil;
+import com.poratu.idea.plugins.tomcat.monitor.MonitoredTomcat;
+import com.poratu.idea.plugins.tomcat.monitor.StartupProfiler;
+import com.poratu.idea.plugins.tomcat.monitor.TomcatMonitorService;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import javax.swing.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -19,23 +31,53 @@ import java.util.regex.Pattern;
  */
 public class ServerConsoleView extends ConsoleViewImpl {
     private final TomcatRunConfiguration configuration;
+    private final TomcatPortBlock ports;
     private boolean printStarted = false;
     private final List<String> httpPorts = new ArrayList<>();
     private final List<String> httpsPorts = new ArrayList<>();
+    private final StartupReport startupReport = new StartupReport();
+    private final ConsoleLogIndex logIndex = new ConsoleLogIndex();
+    private final StartupProfiler startupProfiler;
+    private ProcessHandler processHandler;
+    private MonitoredTomcat monitoredTomcat;
+    private boolean logIndexTrimmed;
 
     public ServerConsoleView(TomcatRunConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * @param startupProfiler ends the recording of the startup once Tomcat is started, or {@code null}
+     */
+    public ServerConsoleView(TomcatRunConfiguration configuration, @Nullable StartupProfiler startupProfiler) {
+        this(configuration, TomcatPortBlock.of(configuration, 0), startupProfiler);
+    }
+
+    /**
+     * @param ports the ports of the instance, e.g. of one of the instances of a cluster
+     */
+    public ServerConsoleView(TomcatRunConfiguration configuration, @NotNull TomcatPortBlock ports,
+                             @Nullable StartupProfiler startupProfiler) {
         super(configuration.getProject(), true);
         this.configuration = configuration;
+        this.ports = ports;
+        this.startupProfiler = startupProfiler;
     }
 
     @Override
     public void print(@NotNull String s, @NotNull ConsoleViewContentType contentType) {
-        super.print(s, contentType);
+        printAndIndex(s, contentType);
+
+        if (monitoredTomcat != null) {
+            monitoredTomcat.getLeakDetector().accept(s);
+        }
 
         if (printStarted) {
             return;
         }
 
+        startupReport.accept(s);
+
         // skip the exception log e.g.:
         // at org.apache.catalina.startup.Catalina.start(Catalina.java:772)
         boolean isExceptionLog = s.trim().startsWith("at ");
@@ -52,8 +94,8 @@ public class ServerConsoleView extends ConsoleViewImpl {
             boolean portNotFound = httpPorts.isEmpty() && httpsPorts.isEmpty();
             // Use the configured port if the port is not found in the log
             if (portNotFound) {
-                this.httpPorts.add(String.valueOf(configuration.getPort()));
-                Integer sslPort = configuration.getSslPort();
+                this.httpPorts.add(String.valueOf(ports.getPort()));
+                Integer sslPort = ports.getSslPort();
                 if (sslPort != null) {
                     this.httpsPorts.add(String.valueOf(sslPort));
                 }
@@ -61,12 +103,78 @@ public class ServerConsoleView extends ConsoleViewImpl {
 
             List<Url> urls = buildServerUrls();
             for (Url url : urls) {
-                super.print(url + "\n", contentType);
+                printAndIndex(url + "\n", contentType);
+            }
+            if (processHandler != null) {
+                TomcatMonitorService.getInstance(configuration.getProject()).serverStarted(processHandler,
+                        ContainerUtil.map(urls, Url::toExternalForm));
+            }
+            if (!startupReport.isEmpty()) {
+                printAndIndex(startupReport.render(), ConsoleViewContentType.SYSTEM_OUTPUT);
             }
             printStarted = true;
+
+            if (startupProfiler != null) {
+                startupProfiler.startupCompleted(report -> printAndIndex(report, ConsoleViewContentType.SYSTEM_OUTPUT));
+            }
         }
     }
 
+    @Override
+    public void attachToProcess(@NotNull ProcessHandler processHandler) {
+        super.attachToProcess(processHandler);
+        this.processHandler = processHandler;
+
+        monitoredTomcat = TomcatMonitorService.getInstance(configuration.getProject()).findInstance(processHandler);
+        if (monitoredTomcat != null) {
+            monitoredTomcat.getLeakDetector().setOutput(text -> printAndIndex(text, ConsoleViewContentType.LOG_WARNING_OUTPUT));
+        }
+    }
+
+    private void printAndIndex(@NotNull String s, @NotNull ConsoleViewContentType contentType) {
+        super.print(s, contentType);
+        logIndex.append(s);
+    }
+
+    @Override
+    public @NotNull JComponent getComponent() {
+        JComponent component = super.getComponent();
+        Editor editor = getEditor();
+        if (editor != null && !logIndexTrimmed) {
+            logIndexTrimmed = true;
+            // The cyclic buffer of the console drops the oldest lines, drop them from the index too
+            editor.getDocument().addDocumentListener(new DocumentListener() {
+                @Override
+                public void documentChanged(@NotNull DocumentEvent event) {
+                    if (event.getOffset() == 0 && event.getNewLength() == 0 && event.getOldLength() > 0
+                            && event.getDocument().getTextLength() > 0) {
+                        logIndex.removeFirstLines(StringUtil.countNewLines(event.getOldFragment()));
+                    }
+                }
+            }, this);
+        }
+        return component;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        logIndex.clear();
+    }
+
+    @Override
+    public AnAction @NotNull [] createConsoleActions() {
+        return ArrayUtil.append(super.createConsoleActions(), new ConsoleLogFilterAction(this));
+    }
+
+    public StartupReport getStartupReport() {
+        return startupReport;
+    }
+
+    public ConsoleLogIndex getLogIndex() {
+        return logIndex;
+    }
+
     // Parse the port number from the log
     // 21-Jun-2023 13:27:15.385 INFO [main] org.apache.coyote.AbstractProtocol.init Initializing ProtocolHandler ["http-nio-8080"]
     // 21-Jun-2023 13:27:15.385 INFO [main] org.apache.coyote.AbstractProtocol.init Initializing ProtocolHandler ["https-jsse-nio-8443"]
@@ -0,0 +1,222 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the startup related lines printed by Tomcat, and turns them into a list of findings
+ * which can be used to cut down the startup time.
+ */
+public class StartupReport {
+
+    // A number formatted by Tomcat with the grouping of the JVM locale, e.g. 1,234 1.234 1'234 or 1 234 (no-break space)
+    private static final String NUMBER = "(\\d[\\d,.'\u00a0\u202f]*)";
+
+    // 21-Jun-2023 13:27:15.385 INFO [main] org.apache.catalina.startup.Catalina.load Server initialized in [789] milliseconds
+    // Jun 21, 2016 1:27:15 PM org.apache.catalina.startup.Catalina load INFO: Initialization processed in 789 ms
+    private static final Pattern SERVER_INIT = Pattern.compile("(?:Server initialized in|Initialization processed in) \\[?" + NUMBER + "]? (?:milliseconds|ms)");
+    private static final Pattern SERVER_STARTUP = Pattern.compile("Server startup in \\[?" + NUMBER + "]? (?:milliseconds|ms)");
+    // Deployment of deployment descriptor [/path/conf/Catalina/localhost/ROOT.xml] has finished in [1,234] ms
+    private static final Pattern DEPLOYMENT = Pattern.compile("Deployment of (?:deployment descriptor|web application directory|web application archive) \\[(.+?)] has finished in \\[?" + NUMBER + "]? ms");
+    // Creation of SecureRandom instance for session ID generation using [SHA1PRNG] took [5,123] milliseconds.
+    private static final Pattern SECURE_RANDOM = Pattern.compile("Creation of SecureRandom instance .*?using \\[(.+?)] took \\[?" + NUMBER + "]? milliseconds");
+    // No TLD files were found in [file:/path/foo.jar]. Consider adding the JAR to ...
+    private static final Pattern JAR_WITHOUT_TLD = Pattern.compile("No TLD files were found in \\[(.+?)]");
+    private static final String TLD_SCAN_SUMMARY = "At least one JAR was scanned for TLDs yet contained no TLDs";
+    // Root WebApplicationContext: initialization completed in 1234 ms
+    // FrameworkServlet 'dispatcher': initialization completed in 123 ms
+    // Completed initialization in 123 ms
+    // Tomcat doesn't log the time taken by the listeners, filters and servlets, only Spring does for its components
+    private static final Pattern COMPONENT_INIT = Pattern.compile("(?:(Root WebApplicationContext|FrameworkServlet '.+?')[:]? )?(?:initialization completed|Completed initialization) in " + NUMBER + " ms");
+
+    private static final long SLOW_COMPONENT_MILLIS = 500;
+
+    private final List<Finding> phases = new ArrayList<>();
+    private final List<Finding> componentInits = new ArrayList<>();
+    private final List<Finding> entropyStalls = new ArrayList<>();
+    private final Set<String> jarsWithoutTlds = new LinkedHashSet<>();
+    private boolean tldScanWarning;
+
+    /**
+     * @return whether the text printed by Tomcat tells that the server startup completed
+     */
+    public static boolean isStartupCompleted(@NotNull String text) {
+        return SERVER_STARTUP.matcher(text).find();
+    }
+
+    /**
+     * Parses the text printed by Tomcat. The text may contain several lines.
+     */
+    public void accept(@NotNull String text) {
+        for (String line : StringUtil.splitByLines(text)) {
+            acceptLine(line);
+        }
+    }
+
+    private void acceptLine(String line) {
+        Matcher matcher = DEPLOYMENT.matcher(line);
+        if (matcher.find()) {
+            phases.add(new Finding("Deployment of " + matcher.group(1), parseMillis(matcher.group(2)),
+                    "Reduce the classpath scanned by the web application, see the other findings below"));
+            return;
+        }
+
+        matcher = SERVER_INIT.matcher(line);
+        if (matcher.find()) {
+            phases.add(new Finding("Server initialization", parseMillis(matcher.group(1)),
+                    "Remove the unused connectors and listeners from server.xml"));
+            return;
+        }
+
+        matcher = SERVER_STARTUP.matcher(line);
+        if (matcher.find()) {
+            phases.add(new Finding("Server startup", parseMillis(matcher.group(1)), null));
+            return;
+        }
+
+        matcher = SECURE_RANDOM.matcher(line);
+        if (matcher.find()) {
+            entropyStalls.add(new Finding("SecureRandom [" + matcher.group(1) + "]", parseMillis(matcher.group(2)),
+                    "Add -Djava.security.egd=file:/dev/./urandom to the VM options"));
+            return;
+        }
+
+        matcher = JAR_WITHOUT_TLD.matcher(line);
+        if (matcher.find()) {
+            jarsWithoutTlds.add(matcher.group(1));
+            return;
+        }
+
+        if (line.contains(TLD_SCAN_SUMMARY)) {
+            tldScanWarning = true;
+            return;
+        }
+
+        matcher = COMPONENT_INIT.matcher(line);
+        if (matcher.find()) {
+            String name = StringUtil.defaultIfEmpty(matcher.group(1), "Servlet");
+            componentInits.add(new Finding(name, parseMillis(matcher.group(2)),
+                    "Make the component lazy, or move the work out of its init method"));
+        }
+    }
+
+    public boolean isEmpty() {
+        return phases.isEmpty() && componentInits.isEmpty() && entropyStalls.isEmpty()
+                && jarsWithoutTlds.isEmpty() && !tldScanWarning;
+    }
+
+    /**
+     * @return the phases, the slowest first
+     */
+    public List<Finding> getSlowestPhases() {
+        List<Finding> result = new ArrayList<>(phases);
+        result.sort(Comparator.comparingLong(Finding::getMillis).reversed());
+        return result;
+    }
+
+    public List<Finding> getComponentInits() {
+        List<Finding> result = new ArrayList<>(componentInits);
+        result.sort(Comparator.comparingLong(Finding::getMillis).reversed());
+        return result;
+    }
+
+    public List<Finding> getEntropyStalls() {
+        return Collections.unmodifiableList(entropyStalls);
+    }
+
+    public Set<String> getJarsWithoutTlds() {
+        return Collections.unmodifiableSet(jarsWithoutTlds);
+    }
+
+    /**
+     * Render the report as plain text, ready to be printed in the console.
+     */
+    public String render() {
+        StringBuilder sb = new StringBuilder("Startup report:\n");
+
+        for (Finding phase : getSlowestPhases()) {
+            appendFinding(sb, phase);
+        }
+
+        for (Finding init : getComponentInits()) {
+            if (init.getMillis() >= SLOW_COMPONENT_MILLIS) {
+                appendFinding(sb, init);
+            }
+        }
+
+        for (Finding stall : entropyStalls) {
+            appendFinding(sb, stall);
+        }
+
+        if (!jarsWithoutTlds.isEmpty()) {
+            sb.append("  ").append(jarsWithoutTlds.size()).append(" JAR(s) were scanned for TLDs yet contained no TLDs\n");
+            for (String jar : jarsWithoutTlds) {
+                sb.append("      ").append(jar).append('\n');
+            }
+            sb.append("      -> Add them to tomcat.util.scan.StandardJarScanFilter.jarsToSkip in catalina.properties\n");
+        } else if (tldScanWarning) {
+            sb.append("  Some JARs were scanned for TLDs yet contained no TLDs\n")
+                    .append("      -> Enable debug logging for org.apache.jasper.servlet.TldScanner to list them,")
+                    .append(" then add them to tomcat.util.scan.StandardJarScanFilter.jarsToSkip\n");
+        }
+
+        return sb.toString();
+    }
+
+    private static void appendFinding(StringBuilder sb, Finding finding) {
+        sb.append("  ").append(finding.getSubject()).append(": ").append(finding.getMillis()).append(" ms\n");
+        if (finding.getSuggestion() != null) {
+            sb.append("      -> ").append(finding.getSuggestion()).append('\n');
+        }
+    }
+
+    // The durations are whole milliseconds, so any separator is a grouping one, whatever the locale
+    private static long parseMillis(String text) {
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        try {
+            return Long.parseLong(digits.toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static class Finding {
+        private final String subject;
+        private final long millis;
+        private final String suggestion;
+
+        Finding(String subject, long millis, String suggestion) {
+            this.subject = subject;
+            this.millis = millis;
+            this.suggestion = suggestion;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public String getSuggestion() {
+            return suggestion;
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.util.text.VersionComparatorUtil;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The TLS implementation of the SSL connector, see the {@code sslImplementationName} attribute of the connector.
+ */
+public enum TlsImplementation {
+    DEFAULT(null, "Default", null),
+    JSSE("org.apache.tomcat.util.net.jsse.JSSEImplementation", "JSSE", null),
+    OPENSSL("org.apache.tomcat.util.net.openssl.OpenSSLImplementation", "OpenSSL (tomcat-native)", "8.5"),
+    OPENSSL_FFM("org.apache.tomcat.util.net.openssl.panama.OpenSSLImplementation", "OpenSSL (FFM, Tomcat 10.1+)", "10.1");
+
+    private final String className;
+    private final String displayName;
+    private final String minTomcatVersion;
+
+    TlsImplementation(@Nullable String className, String displayName, @Nullable String minTomcatVersion) {
+        this.className = className;
+        this.displayName = displayName;
+        this.minTomcatVersion = minTomcatVersion;
+    }
+
+    /**
+     * @return the class name of the implementation, or {@code null} to keep the choice of Tomcat
+     */
+    @Nullable
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return whether the given version of Tomcat has the implementation
+     */
+    public boolean isSupportedBy(@Nullable String tomcatVersion) {
+        return minTomcatVersion == null || VersionComparatorUtil.compare(tomcatVersion, minTomcatVersion) >= 0;
+    }
+
+    /**
+     * @return the first version of Tomcat with the implementation, or {@code null} if any version has it
+     */
+    @Nullable
+    public String getMinTomcatVersion() {
+        return minTomcatVersion;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
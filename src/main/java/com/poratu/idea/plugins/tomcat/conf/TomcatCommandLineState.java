@@ -1,7 +1,9 @@
 package com.poratu.idea.plugins.tomcat.conf;
 
 import com.intellij.debugger.settings.DebuggerSettings;
+import com.intellij.execution.DefaultExecutionResult;
 import com.intellij.execution.ExecutionException;
+import com.intellij.execution.ExecutionResult;
 import com.intellij.execution.Executor;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.configurations.JavaCommandLineState;
@@ -9,17 +11,41 @@ import com.intellij.execution.configurations.JavaParameters;
 import com.intellij.execution.configurations.ParametersList;
 import com.intellij.execution.process.KillableColoredProcessHandler;
 import com.intellij.execution.process.OSProcessHandler;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
 import com.intellij.execution.process.ProcessTerminatedListener;
 import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.execution.runners.ProgramRunner;
 import com.intellij.execution.ui.ConsoleView;
+import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.execution.ui.ExecutionConsole;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.projectRoots.JavaSdkVersion;
 import com.intellij.openapi.roots.OrderEnumerator;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathsList;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.text.VersionComparatorUtil;
+import com.poratu.idea.plugins.tomcat.monitor.GcLogAnalyzer;
+import com.poratu.idea.plugins.tomcat.monitor.JfrController;
+import com.poratu.idea.plugins.tomcat.monitor.MonitoredTomcat;
+import com.poratu.idea.plugins.tomcat.monitor.RequestTimingReader;
+import com.poratu.idea.plugins.tomcat.monitor.StartupProfiler;
+import com.poratu.idea.plugins.tomcat.monitor.TomcatJmxConnection;
+import com.poratu.idea.plugins.tomcat.monitor.TomcatMonitorService;
+import com.poratu.idea.plugins.tomcat.runner.TomcatProfileExecutor;
+import com.poratu.idea.plugins.tomcat.setting.TomcatMetadata;
+import com.poratu.idea.plugins.tomcat.setting.TomcatServerManagerState;
 import com.poratu.idea.plugins.tomcat.utils.PluginUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -41,11 +67,18 @@ import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Author : zengkid
@@ -55,6 +88,7 @@ import java.util.Map;
 
 public class TomcatCommandLineState extends JavaCommandLineState {
 
+    private static final Logger LOG = Logger.getInstance(TomcatCommandLineState.class);
     private static final String JDK_JAVA_OPTIONS = "JDK_JAVA_OPTIONS";
     private static final String ENV_JDK_JAVA_OPTIONS = "--add-opens=java.base/java.lang=ALL-UNNAMED " +
             "--add-opens=java.base/java.io=ALL-UNNAMED " +
@@ -69,15 +103,50 @@ public class TomcatCommandLineState extends JavaCommandLineState {
     private static final String PARAM_LOGGING_CONFIG = "java.util.logging.config.file";
     private static final String PARAM_LOGGING_MANAGER = "java.util.logging.manager";
     private static final String PARAM_LOGGING_MANAGER_VALUE = "org.apache.juli.ClassLoaderLogManager";
+    private static final String PARAM_ASYNC_LOG_QUEUE_SIZE = "org.apache.juli.AsyncMaxRecordCount";
+    private static final String PARAM_ASYNC_LOG_OVERFLOW = "org.apache.juli.AsyncOverflowDropType";
+    private static final String FILE_HANDLER = "org.apache.juli.FileHandler";
+    private static final String ASYNC_FILE_HANDLER = "org.apache.juli.AsyncFileHandler";
+    private static final String CONSOLE_HANDLER = "java.util.logging.ConsoleHandler";
+    private static final String HTTP2_PROTOCOL = "org.apache.coyote.http2.Http2Protocol";
+    private static final String APR_LIFECYCLE_LISTENER = "org.apache.catalina.core.AprLifecycleListener";
+    private static final String OPENSSL_LIFECYCLE_LISTENER = "org.apache.catalina.core.OpenSSLLifecycleListener";
+    private static final String PARAM_ENABLE_NATIVE_ACCESS = "--enable-native-access=ALL-UNNAMED";
     private TomcatRunConfiguration configuration;
+    private int instanceIndex;
+    private TomcatPortBlock ports;
+    private TomcatPortLeases.Lease portLease;
+    private CatalinaBaseStore.BaseLock baseLock;
+    private TomcatMetadata tomcatMetadata;
+    // Set while the launch is prepared in the background, see prepare
+    private volatile ProgressIndicator preparationIndicator;
+    private volatile boolean started;
+    // The other instances of a cluster, started with this one
+    private final List<TomcatCommandLineState> members = new ArrayList<>();
+    private final List<ProcessHandler> memberProcessHandlers = new ArrayList<>();
+    private TomcatJmxConnection jmxConnection;
+    private Path requestTimingFile;
+    private Path jfrSettingsFile;
+    private Path gcLogFile;
+    private StartupProfiler startupProfiler;
+    private boolean startupProfileSkipped;
 
     protected TomcatCommandLineState(@NotNull ExecutionEnvironment environment) {
         super(environment);
     }
 
     protected TomcatCommandLineState(ExecutionEnvironment environment, TomcatRunConfiguration configuration) {
+        this(environment, configuration, 0);
+        for (int i = 1; i < configuration.getInstanceCount(); i++) {
+            members.add(new TomcatCommandLineState(environment, configuration, i));
+        }
+    }
+
+    private TomcatCommandLineState(ExecutionEnvironment environment, TomcatRunConfiguration configuration, int instanceIndex) {
         this(environment);
         this.configuration = configuration;
+        this.instanceIndex = instanceIndex;
+        this.ports = TomcatPortBlock.of(configuration, instanceIndex);
     }
 
     @Override
@@ -90,59 +159,306 @@ public class TomcatCommandLineState extends JavaCommandLineState {
         return commandLine.withEnvironment(JDK_JAVA_OPTIONS, jdkJavaOptions);
     }
 
+    @Override
+    public ExecutionResult execute(@NotNull Executor executor, @NotNull ProgramRunner<?> runner) throws ExecutionException {
+        ExecutionResult result = super.execute(executor, runner);
+        if (members.isEmpty()) {
+            return result;
+        }
+
+        List<ExecutionConsole> consoles = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        consoles.add(result.getExecutionConsole());
+        titles.add(getInstanceName());
+        for (int i = 0; i < members.size(); i++) {
+            TomcatCommandLineState member = members.get(i);
+            ConsoleView console = member.createConsole(executor);
+            if (console != null) {
+                console.attachToProcess(memberProcessHandlers.get(i));
+                consoles.add(console);
+                titles.add(member.getInstanceName());
+            }
+            // The runner only starts the process handler of the result
+            memberProcessHandlers.get(i).startNotify();
+        }
+
+        DefaultExecutionResult clusterResult = new DefaultExecutionResult(new ClusterConsole(consoles, titles),
+                result.getProcessHandler(), result.getActions());
+        if (result instanceof DefaultExecutionResult) {
+            clusterResult.setRestartActions(((DefaultExecutionResult) result).getRestartActions());
+        }
+        return clusterResult;
+    }
+
+    /**
+     * Prepare this instance, and the other instances of the cluster if any, concurrently: the ports, the catalina.base
+     * and the {@link JavaParameters}. Called off the EDT after the before launch tasks, so that the runner only has to
+     * start the processes.
+     * <p>
+     * Nothing is left locked when the preparation fails or is canceled.
+     */
+    public void prepare(@NotNull ProgressIndicator indicator) throws ExecutionException {
+        preparationIndicator = indicator;
+        List<Future<JavaParameters>> futures = new ArrayList<>();
+        try {
+            // In the order of the instances, so that the first one gets the configured ports
+            leasePorts();
+            for (TomcatCommandLineState member : members) {
+                member.leasePorts();
+            }
+        } catch (ExecutionException | RuntimeException e) {
+            cancelLaunch();
+            throw e;
+        }
+        for (TomcatCommandLineState member : members) {
+            member.preparationIndicator = indicator;
+            futures.add(AppExecutorUtil.getAppExecutorService().submit(member::getJavaParameters));
+        }
+
+        try {
+            getJavaParameters();
+            for (Future<JavaParameters> future : futures) {
+                future.get();
+            }
+        } catch (java.util.concurrent.ExecutionException e) {
+            cancelPreparation(futures);
+            if (e.getCause() instanceof ProcessCanceledException) {
+                throw (ProcessCanceledException) e.getCause();
+            }
+            throw e.getCause() instanceof ExecutionException ? (ExecutionException) e.getCause() : new ExecutionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelPreparation(futures);
+            throw new ExecutionException(e);
+        } catch (ExecutionException | RuntimeException e) {
+            cancelPreparation(futures);
+            throw e;
+        }
+    }
+
+    // Wait for the other instances, so that their locks are released after they took them
+    private void cancelPreparation(List<Future<JavaParameters>> futures) {
+        for (Future<JavaParameters> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                // Failed or canceled as well
+            }
+        }
+        cancelLaunch();
+    }
+
+    /**
+     * @return whether the prepared instance wasn't started yet, i.e. a runner may still start it
+     */
+    public boolean isPrepared() {
+        return preparationIndicator != null && !started;
+    }
+
+    /**
+     * Start this instance, and the other instances of the cluster if any. The instances are prepared and started
+     * concurrently, the other instances are stopped with this one.
+     */
     @Override
     @NotNull
     protected OSProcessHandler startProcess() throws ExecutionException {
-        KillableColoredProcessHandler processHandler = new KillableColoredProcessHandler(createCommandLine());
+        started = true;
+        List<Future<ProcessHandler>> futures = new ArrayList<>();
+        for (TomcatCommandLineState member : members) {
+            futures.add(AppExecutorUtil.getAppExecutorService().submit(member::startMemberProcess));
+        }
+
+        OSProcessHandler processHandler = null;
+        try {
+            processHandler = startInstanceProcess();
+            for (Future<ProcessHandler> future : futures) {
+                memberProcessHandlers.add(future.get());
+            }
+        } catch (java.util.concurrent.ExecutionException e) {
+            stopCluster(processHandler, futures);
+            throw e.getCause() instanceof ExecutionException ? (ExecutionException) e.getCause() : new ExecutionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopCluster(processHandler, futures);
+            throw new ExecutionException(e);
+        } catch (ExecutionException | RuntimeException e) {
+            stopCluster(processHandler, futures);
+            throw e;
+        }
+
+        if (!memberProcessHandlers.isEmpty()) {
+            processHandler.addProcessListener(new ProcessAdapter() {
+                @Override
+                public void processWillTerminate(@NotNull ProcessEvent event, boolean willBeDestroyed) {
+                    destroyMembers();
+                }
+
+                @Override
+                public void processTerminated(@NotNull ProcessEvent event) {
+                    destroyMembers();
+                }
+            });
+        }
+        return processHandler;
+    }
+
+    private ProcessHandler startMemberProcess() throws ExecutionException {
+        // Already done if the launch was prepared in the background
+        getJavaParameters();
+        return startInstanceProcess();
+    }
+
+    private void destroyMembers() {
+        for (ProcessHandler memberProcessHandler : memberProcessHandlers) {
+            if (!memberProcessHandler.isProcessTerminating() && !memberProcessHandler.isProcessTerminated()) {
+                memberProcessHandler.destroyProcess();
+            }
+        }
+    }
+
+    // Don't leave a part of the cluster running when an instance failed to start
+    private static void stopCluster(@Nullable ProcessHandler processHandler, List<Future<ProcessHandler>> futures) {
+        if (processHandler != null) {
+            processHandler.destroyProcess();
+        }
+        for (Future<ProcessHandler> future : futures) {
+            AppExecutorUtil.getAppExecutorService().execute(() -> {
+                try {
+                    future.get().destroyProcess();
+                } catch (Exception e) {
+                    // Failed to start
+                }
+            });
+        }
+    }
+
+    private String getInstanceName() {
+        return members.isEmpty() && instanceIndex == 0 ? configuration.getName()
+                : configuration.getName() + " #" + (instanceIndex + 1);
+    }
+
+    @NotNull
+    private OSProcessHandler startInstanceProcess() throws ExecutionException {
+        KillableColoredProcessHandler processHandler;
+        try {
+            processHandler = new KillableColoredProcessHandler(createCommandLine());
+        } catch (ExecutionException | RuntimeException e) {
+            releaseLaunchLocks();
+            throw e;
+        }
+        portLease.releaseOnTermination(processHandler);
+        baseLock.releaseOnTermination(processHandler);
         boolean shouldKillSoftly = !DebuggerSettings.getInstance().KILL_PROCESS_IMMEDIATELY;
 
         processHandler.setShouldKillProcessSoftly(shouldKillSoftly);
         ProcessTerminatedListener.attach(processHandler);
 
+        MonitoredTomcat instance = TomcatMonitorService.getInstance(configuration.getProject())
+                .register(configuration, processHandler, getInstanceName(), jmxConnection, requestTimingFile, jfrSettingsFile, gcLogFile);
+        if (configuration.isProfileStartup() && instance.getProfiler() != null) {
+            startupProfiler = new StartupProfiler(instance.getProfiler(), isProfiling());
+        }
+
         return processHandler;
     }
 
+    /**
+     * The module roots are read in short read actions, the files are written without any, so that a slow disk never
+     * blocks the write actions of the IDE
+     */
     @Override
-    protected JavaParameters createJavaParameters() {
+    protected boolean isReadActionRequired() {
+        return false;
+    }
+
+    @Override
+    protected JavaParameters createJavaParameters() throws ExecutionException {
+        // Check the ports before doing anything, Tomcat would only fail after seconds of startup
+        if (portLease == null) {
+            leasePorts();
+        }
+
         try {
-            Path catalinaBase = PluginUtils.getCatalinaBase(configuration);
-            Module module = configuration.getModule();
+            Path catalinaBase = ReadAction.compute(this::getInstanceCatalinaBase);
+            Module module = ReadAction.compute(configuration::getModule);
             if (catalinaBase == null || module == null) {
                 throw new ExecutionException("The Module Root specified is not a module according to Intellij");
             }
+            // Keep the garbage collector and the other launches away until Tomcat terminates
+            baseLock = CatalinaBaseStore.lock(catalinaBase);
 
             Path tomcatInstallationPath = Paths.get(configuration.getTomcatInfo().getPath());
+            progress("Checking " + tomcatInstallationPath);
+            // An upgrade in place is picked up here, a deleted installation fails before anything is written
+            tomcatMetadata = TomcatServerManagerState.getInstance().validate(configuration.getTomcatInfo());
+            if (tomcatMetadata == null) {
+                throw new ExecutionException("Tomcat server " + configuration.getTomcatInfo().getName()
+                        + " is not found in " + tomcatInstallationPath + ", it was moved or deleted");
+            }
+            if (!tomcatMetadata.isLaunchable()) {
+                throw new ExecutionException("bin/bootstrap.jar or bin/tomcat-juli.jar is missing in " + tomcatInstallationPath);
+            }
             Project project = configuration.getProject();
-            String tomcatVersion = configuration.getTomcatInfo().getVersion();
+            String tomcatVersion = tomcatMetadata.getVersion();
             String vmOptions = configuration.getVmOptions();
             String extraClassPath = configuration.getExtraClassPath();
             Map<String, String> envOptions = configuration.getEnvOptions();
 
             //copy to project folder, and then user is able to update server.xml under the project.
+            progress("Copying the configuration");
             Path projectConfPath = Paths.get(project.getBasePath(), ".smarttomcat", module.getName(), "conf");
-            if (!projectConfPath.toFile().exists() || PluginUtils.isEmptyFolder(projectConfPath)) {
-                FileUtil.createDirectory(projectConfPath.toFile());
-                FileUtil.copyDir(tomcatInstallationPath.resolve("conf").toFile(), projectConfPath.toFile());
+            // The instances of a cluster are prepared concurrently, and share the project configuration
+            synchronized (TomcatCommandLineState.class) {
+                if (!projectConfPath.toFile().exists() || PluginUtils.isEmptyFolder(projectConfPath)) {
+                    FileUtil.createDirectory(projectConfPath.toFile());
+                    FileUtil.copyDir(tomcatInstallationPath.resolve("conf").toFile(), projectConfPath.toFile());
+                }
             }
 
-            // Copy the Tomcat configuration files to the working directory
+            // Link the Tomcat configuration files into the working directory, except the files rewritten below
+            boolean asyncLogging = configuration.isAsyncLogging() && tomcatMetadata.getMajorVersion() >= 7;
+            boolean tunedLogging = asyncLogging || configuration.isConsoleOnlyLogging();
             Path confPath = catalinaBase.resolve("conf");
+            progress("Linking the configuration into " + catalinaBase);
             FileUtil.delete(confPath);
             FileUtil.createDirectory(confPath.toFile());
-            FileUtil.copyDir(projectConfPath.toFile(), confPath.toFile());
+            CatalinaBaseMaterializer.materialize(projectConfPath, confPath, file -> file.toString().equals("server.xml")
+                    || file.startsWith("Catalina") || (tunedLogging && file.toString().equals("logging.properties")));
             // create the temp folder
             FileUtil.createDirectory(catalinaBase.resolve("temp").toFile());
+            CatalinaBaseStore.writeMarker(catalinaBase, project, module);
 
+            progress("Writing server.xml");
             updateServerConf(confPath, configuration);
-            createContextFile(tomcatVersion, module, confPath);
+            updateLoggingConf(confPath, asyncLogging, configuration.isConsoleOnlyLogging());
+            if (configuration.isRequestTiming() && tomcatMetadata.getMajorVersion() >= 8) {
+                requestTimingFile = installRequestTimingValve(catalinaBase);
+            }
+            progress("Writing the context of " + module.getName());
+            createContextFile(tomcatVersion, module, true, configuration.getDocBase(), configuration.getContextPath(), confPath);
+            for (String entry : configuration.getAdditionalModules()) {
+                AdditionalModule additionalModule = AdditionalModule.parse(entry);
+                Module moduleToDeploy = getAdditionalModule(project, additionalModule.getName());
+                progress("Writing the context of " + moduleToDeploy.getName());
+                String docBase = ReadAction.compute(() -> additionalModule.resolveDocBase(moduleToDeploy));
+                if (docBase == null) {
+                    throw new ExecutionException("The module " + moduleToDeploy.getName()
+                            + " has no web root, i.e. no directory with a WEB-INF");
+                }
+                createContextFile(tomcatVersion, moduleToDeploy, false, docBase,
+                        "/" + PluginUtils.extractContextPath(moduleToDeploy), confPath);
+            }
+            progress("Deleting the work files");
             deleteTomcatWorkFiles(catalinaBase);
+            TomcatLogRetention.schedule(catalinaBase.resolve("logs"),
+                    configuration.getLogMaxAgeDays(), configuration.getLogMaxTotalSizeMb());
 
             ProjectRootManager manager = ProjectRootManager.getInstance(project);
 
             JavaParameters javaParams = new JavaParameters();
             javaParams.setDefaultCharset(project);
             javaParams.setWorkingDirectory(catalinaBase.toFile());
-            javaParams.setJdk(manager.getProjectSdk());
+            javaParams.setJdk(ReadAction.compute(manager::getProjectSdk));
 
             javaParams.getClassPath().add(tomcatInstallationPath.resolve("bin/bootstrap.jar").toFile());
             javaParams.getClassPath().add(tomcatInstallationPath.resolve("bin/tomcat-juli.jar").toFile());
@@ -165,18 +481,117 @@ public class TomcatCommandLineState extends JavaCommandLineState {
             vmParams.defineProperty(PARAM_CATALINA_TMPDIR, catalinaBase.resolve("temp").toString());
             vmParams.defineProperty(PARAM_LOGGING_CONFIG, confPath.resolve("logging.properties").toString());
             vmParams.defineProperty(PARAM_LOGGING_MANAGER, PARAM_LOGGING_MANAGER_VALUE);
+            // The option is unknown before Java 16, the JVM would refuse to start
+            if (ports.getSslPort() != null && configuration.getTlsImplementation() == TlsImplementation.OPENSSL_FFM
+                    && PluginUtils.isJavaAtLeast(javaParams.getJdk(), JavaSdkVersion.JDK_16)) {
+                vmParams.add(PARAM_ENABLE_NATIVE_ACCESS);
+            }
+            if (asyncLogging) {
+                vmParams.defineProperty(PARAM_ASYNC_LOG_QUEUE_SIZE, String.valueOf(configuration.getAsyncLogQueueSize()));
+                vmParams.defineProperty(PARAM_ASYNC_LOG_OVERFLOW, String.valueOf(configuration.getAsyncLogOverflowPolicy().getDropType()));
+            }
+            // The JVM refuses to start with the JFR options it doesn't know
+            boolean jfrSupported = PluginUtils.isJfrSupported(javaParams.getJdk());
+            if (isProfiling() && !jfrSupported) {
+                throw new ExecutionException("Profiling requires the Flight Recorder, which the project SDK doesn't have."
+                        + " Use Java 11 or later, or OpenJDK 8 from update 262, and not OpenJ9");
+            }
+            startupProfileSkipped = configuration.isProfileStartup() && !jfrSupported;
+            // The recording is controlled through the management channel, so profiling always enables it
+            boolean profiling = isProfiling() || (configuration.isProfileStartup() && jfrSupported);
+            if (configuration.isJmxEnabled() || profiling) {
+                jmxConnection = TomcatJmxConnection.create(catalinaBase.resolve("temp"));
+                jmxConnection.addVmParameters(vmParams);
+            }
+            if (profiling) {
+                jfrSettingsFile = JfrController.installSettings(catalinaBase.resolve("temp"));
+                JfrController.addVmParameters(vmParams, jfrSettingsFile);
+            }
+            if (configuration.isGcLogging() && PluginUtils.isJava9OrLater(javaParams.getJdk())) {
+                gcLogFile = GcLogAnalyzer.createLogFile(catalinaBase.resolve("logs"));
+                GcLogAnalyzer.addVmParameters(vmParams, gcLogFile);
+            }
 
             return javaParams;
+        } catch (ExecutionException | ProcessCanceledException e) {
+            releaseLaunchLocks();
+            throw e;
         } catch (Exception e) {
+            releaseLaunchLocks();
             throw new RuntimeException(e);
         }
 
     }
 
+    /**
+     * Lease the ports of this instance. The other instances of a cluster always get the next free ports from their
+     * preferred block, so the leases never give two instances the same port, however close the configured ports are.
+     */
+    private void leasePorts() throws ExecutionException {
+        progress("Reserving the ports");
+        portLease = TomcatPortLeases.getInstance().lease(getInstanceName(), TomcatPortBlock.of(configuration, instanceIndex),
+                configuration.isNextFreePorts() || instanceIndex > 0);
+        ports = portLease.getPorts();
+    }
+
+    /**
+     * Release the ports and the catalina.base of a prepared instance which won't be started
+     */
+    public void cancelLaunch() {
+        releaseLaunchLocks();
+        for (TomcatCommandLineState member : members) {
+            member.releaseLaunchLocks();
+        }
+    }
+
+    private void progress(String text) {
+        ProgressIndicator indicator = preparationIndicator;
+        if (indicator != null && !started) {
+            indicator.checkCanceled();
+            indicator.setText2(getInstanceName() + ": " + text);
+        }
+    }
+
+    private void releaseLaunchLocks() {
+        if (portLease != null) {
+            portLease.release();
+        }
+        if (baseLock != null) {
+            baseLock.release();
+        }
+    }
+
     @Nullable
     @Override
     protected ConsoleView createConsole(@NotNull Executor executor) {
-        return new ServerConsoleView(configuration);
+        ServerConsoleView console = new ServerConsoleView(configuration, ports, startupProfiler);
+        TomcatPortBlock configuredPorts = TomcatPortBlock.of(configuration, instanceIndex);
+        if (!ports.equals(configuredPorts)) {
+            console.print("The configured ports " + configuredPorts + " (admin " + configuredPorts.getAdminPort()
+                    + ") are taken, using " + ports + " (admin " + ports.getAdminPort() + ")\n", ConsoleViewContentType.LOG_WARNING_OUTPUT);
+        }
+        if (startupProfileSkipped) {
+            console.print("The startup is not profiled, the project SDK has no Flight Recorder."
+                    + " It needs Java 11 or later, or OpenJDK 8 from update 262\n", ConsoleViewContentType.LOG_WARNING_OUTPUT);
+        }
+        return console;
+    }
+
+    /**
+     * The first instance uses the catalina.base of the configuration, the other instances of a cluster use
+     * sibling directories, e.g. {@code module-2}
+     */
+    @Nullable
+    private Path getInstanceCatalinaBase() {
+        Path catalinaBase = PluginUtils.getCatalinaBase(configuration);
+        if (catalinaBase == null || instanceIndex == 0) {
+            return catalinaBase;
+        }
+        return catalinaBase.resolveSibling(catalinaBase.getFileName() + "-" + (instanceIndex + 1));
+    }
+
+    private boolean isProfiling() {
+        return TomcatProfileExecutor.EXECUTOR_ID.equals(getEnvironment().getExecutor().getId());
     }
 
     private void updateServerConf(Path confPath, TomcatRunConfiguration cfg)
@@ -189,6 +604,7 @@ public class TomcatCommandLineState extends JavaCommandLineState {
         XPathExpression exprConnector = xpath.compile("/Server/Service[@name='Catalina']/Connector[(@protocol='HTTP/1.1' or @protocol='org.apache.coyote.http11.Http11NioProtocol' or @protocol='org.apache.coyote.http11.Http11Protocol') and (not(@SSLEnabled) or @SSLEnabled='false')]");
         XPathExpression exprSSLConnector = xpath.compile("/Server/Service[@name='Catalina']/Connector[@SSLEnabled='true']");
         XPathExpression exprContext = xpath.compile("/Server/Service[@name='Catalina']/Engine[@name='Catalina']/Host/Context");
+        XPathExpression exprHost = xpath.compile("/Server/Service[@name='Catalina']/Engine[@name='Catalina']/Host");
 
         Element serviceE = (Element) serviceExpression.evaluate(doc, XPathConstants.NODE);
         Element portShutdown = (Element) exprConnectorShutdown.evaluate(doc, XPathConstants.NODE);
@@ -203,18 +619,36 @@ public class TomcatCommandLineState extends JavaCommandLineState {
             }
         }
 
+        // Deploy the contexts in parallel, 0 is a thread per core
+        Element hostE = (Element) exprHost.evaluate(doc, XPathConstants.NODE);
+        if (hostE != null && !cfg.getAdditionalModules().isEmpty() && tomcatMetadata.getMajorVersion() >= 7) {
+            hostE.setAttribute("startStopThreads", "0");
+        }
+        if (hostE != null && cfg.getBackgroundProcessorDelay() != null) {
+            hostE.setAttribute("backgroundProcessorDelay", String.valueOf(cfg.getBackgroundProcessorDelay()));
+        }
+        // The annotations are scanned by the utility executor of the server, which has two threads by default. Only
+        // resized with the option, as it also runs the background tasks of the server.
+        if (isParallelAnnotationScanningSupported(tomcatMetadata.getVersion())) {
+            Element serverE = doc.getDocumentElement();
+            if (!serverE.hasAttribute("utilityThreads")) {
+                serverE.setAttribute("utilityThreads", "0");
+            }
+        }
+
         if (portShutdown != null) {
-            portShutdown.setAttribute("port", String.valueOf(cfg.getAdminPort()));
+            portShutdown.setAttribute("port", String.valueOf(ports.getAdminPort()));
         }
         if (portE != null) {
-            portE.setAttribute("port", String.valueOf(cfg.getPort()));
+            portE.setAttribute("port", String.valueOf(ports.getPort()));
         }
-        Integer sslPort = cfg.getSslPort();
+        Integer sslPort = ports.getSslPort();
 
         if (sslPortE != null && sslPort != null) {
             // Update SSL configuration
             sslPortE.setAttribute("port", sslPort.toString());
             portE.setAttribute("redirectPort", sslPort.toString());
+            updateSslConnector(doc, sslPortE, cfg, tomcatMetadata.getVersion());
         } else {
             // Clean up SSL configuration
             portE.removeAttribute("redirectPort");
@@ -226,10 +660,156 @@ public class TomcatCommandLineState extends JavaCommandLineState {
         PluginUtils.createTransformer().transform(new DOMSource(doc), new StreamResult(serverXml.toFile()));
     }
 
-    private void createContextFile(String tomcatVersion, Module module, Path confPath)
+    /**
+     * Apply the HTTP/2 and TLS options of the run configuration to the SSL connector. The options which are not set
+     * keep the values of server.xml, e.g. an existing {@code UpgradeProtocol} is never removed.
+     * <p>
+     * Tomcat 8.5 moved the TLS settings to the nested {@code SSLHostConfig}, the older versions keep them on the connector.
+     */
+    private static void updateSslConnector(Document doc, Element connector, TomcatRunConfiguration cfg, String tomcatVersion) {
+        boolean sslHostConfigSupported = VersionComparatorUtil.compare(tomcatVersion, "8.5") >= 0;
+
+        if (cfg.isHttp2() && sslHostConfigSupported && !hasUpgradeProtocol(connector, HTTP2_PROTOCOL)) {
+            Element upgradeProtocol = doc.createElement("UpgradeProtocol");
+            upgradeProtocol.setAttribute("className", HTTP2_PROTOCOL);
+            connector.insertBefore(upgradeProtocol, connector.getFirstChild());
+        }
+
+        TlsImplementation tlsImplementation = cfg.getTlsImplementation();
+        // An implementation the version doesn't have would fail the connector, see checkConfiguration
+        if (tlsImplementation != null && tlsImplementation.getClassName() != null && tlsImplementation.isSupportedBy(tomcatVersion)) {
+            connector.setAttribute("sslImplementationName", tlsImplementation.getClassName());
+            Element server = doc.getDocumentElement();
+            if (tlsImplementation == TlsImplementation.OPENSSL) {
+                addListenerIfAbsent(doc, server, APR_LIFECYCLE_LISTENER);
+            } else if (tlsImplementation == TlsImplementation.OPENSSL_FFM) {
+                // The FFM implementation loads OpenSSL by itself, it can't share the process with tomcat-native
+                removeListener(server, APR_LIFECYCLE_LISTENER);
+                addListenerIfAbsent(doc, server, OPENSSL_LIFECYCLE_LISTENER);
+            }
+        }
+
+        List<Element> sslHostConfigs = getChildElements(connector, "SSLHostConfig");
+        if (sslHostConfigSupported && !sslHostConfigs.isEmpty()) {
+            for (Element sslHostConfig : sslHostConfigs) {
+                setAttributeIfNotNull(sslHostConfig, "sessionCacheSize", cfg.getSslSessionCacheSize());
+                setAttributeIfNotNull(sslHostConfig, "sessionTimeout", cfg.getSslSessionTimeout());
+                if (cfg.isHonorCipherOrder()) {
+                    sslHostConfig.setAttribute("honorCipherOrder", "true");
+                }
+            }
+        } else {
+            setAttributeIfNotNull(connector, "sessionCacheSize", cfg.getSslSessionCacheSize());
+            setAttributeIfNotNull(connector, "sessionTimeout", cfg.getSslSessionTimeout());
+            if (cfg.isHonorCipherOrder()) {
+                connector.setAttribute("useServerCipherSuitesOrder", "true");
+            }
+        }
+    }
+
+    private static boolean hasUpgradeProtocol(Element connector, String className) {
+        for (Element upgradeProtocol : getChildElements(connector, "UpgradeProtocol")) {
+            if (className.equals(upgradeProtocol.getAttribute("className"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addListenerIfAbsent(Document doc, Element server, String className) {
+        for (Element listener : getChildElements(server, "Listener")) {
+            if (className.equals(listener.getAttribute("className"))) {
+                return;
+            }
+        }
+        Element listener = doc.createElement("Listener");
+        listener.setAttribute("className", className);
+        server.insertBefore(listener, server.getFirstChild());
+    }
+
+    private static void removeListener(Element server, String className) {
+        for (Element listener : getChildElements(server, "Listener")) {
+            if (className.equals(listener.getAttribute("className"))) {
+                server.removeChild(listener);
+            }
+        }
+    }
+
+    private static List<Element> getChildElements(Element parent, String tagName) {
+        List<Element> result = new ArrayList<>();
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element && tagName.equals(child.getNodeName())) {
+                result.add((Element) child);
+            }
+        }
+        return result;
+    }
+
+    private static void setAttributeIfNotNull(Element element, String name, @Nullable Integer value) {
+        if (value != null) {
+            element.setAttribute(name, value.toString());
+        }
+    }
+
+    /**
+     * Rewrite the logging.properties of catalina.base:
+     * <ul>
+     *     <li>async: replace the synchronous {@code FileHandler}s with {@code AsyncFileHandler}s</li>
+     *     <li>console only: only keep the {@code ConsoleHandler}, the file handlers are not created at all</li>
+     * </ul>
+     */
+    private void updateLoggingConf(Path confPath, boolean async, boolean consoleOnly) throws IOException {
+        Path loggingProperties = confPath.resolve("logging.properties");
+        if ((!async && !consoleOnly) || !Files.exists(loggingProperties)) {
+            return;
+        }
+
+        List<String> lines = Files.readAllLines(loggingProperties, StandardCharsets.ISO_8859_1);
+        List<String> result = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (consoleOnly && !trimmed.startsWith("#") && isHandlersKey(trimmed)) {
+                line = trimmed.substring(0, trimmed.indexOf('=') + 1) + " " + CONSOLE_HANDLER;
+            } else if (async) {
+                line = line.replace(FILE_HANDLER, ASYNC_FILE_HANDLER);
+            }
+            result.add(line);
+        }
+
+        Files.write(loggingProperties, result, StandardCharsets.ISO_8859_1);
+    }
+
+    // e.g. `handlers = ...`, `.handlers = ...` or `org.apache.catalina.core.ContainerBase.[Catalina].[localhost].handlers = ...`
+    private static boolean isHandlersKey(String line) {
+        int eq = line.indexOf('=');
+        if (eq < 0) {
+            return false;
+        }
+        String key = line.substring(0, eq).trim();
+        return key.equals("handlers") || key.endsWith(".handlers");
+    }
+
+    private boolean isParallelAnnotationScanningSupported(String tomcatVersion) {
+        return configuration.isParallelAnnotationScanning() && VersionComparatorUtil.compare(tomcatVersion, "9.0.30") >= 0;
+    }
+
+    private static Module getAdditionalModule(Project project, String name) throws ExecutionException {
+        Module additionalModule = ReadAction.compute(() -> ModuleManager.getInstance(project).findModuleByName(name));
+        if (additionalModule == null) {
+            throw new ExecutionException("Additional module '" + name + "' doesn't exist");
+        }
+        return additionalModule;
+    }
+
+    /**
+     * Create the context file of a module in {@code conf/Catalina/localhost}, one file per context
+     *
+     * @param mainModule whether the module is the module of the run configuration, only its context gets the request
+     *                   timing valve
+     */
+    private void createContextFile(String tomcatVersion, Module module, boolean mainModule, String docBase,
+                                   String contextPath, Path confPath)
             throws ParserConfigurationException, IOException, SAXException, TransformerException {
-        String docBase = configuration.getDocBase();
-        String contextPath = configuration.getContextPath();
         String normalizedContextPath = StringUtil.trim(contextPath, ch -> ch != '/');
         String contextFileName = StringUtil.defaultIfEmpty(normalizedContextPath, "ROOT").replace('/', '#');
         Path contextFilesDir = confPath.resolve("Catalina/localhost");
@@ -240,11 +820,21 @@ public class TomcatCommandLineState extends JavaCommandLineState {
 
         DocumentBuilder builder = PluginUtils.createDocumentBuilder();
         Document doc = builder.newDocument();
-        Element contextRoot = createContextElement(doc, builder);
+        Element contextRoot = createContextElement(doc, builder, docBase);
 
         contextRoot.setAttribute("docBase", docBase);
 
         collectResources(doc, contextRoot, module, tomcatVersion);
+        if (isParallelAnnotationScanningSupported(tomcatVersion)) {
+            contextRoot.setAttribute("parallelAnnotationScanning", "true");
+        }
+        // The valves of several contexts would overwrite the records of each other
+        if (requestTimingFile != null && mainModule) {
+            Element valve = doc.createElement("Valve");
+            valve.setAttribute("className", RequestTimingReader.VALVE_CLASS_NAME);
+            valve.setAttribute("file", requestTimingFile.toString());
+            contextRoot.appendChild(valve);
+        }
         doc.appendChild(contextRoot);
 
         StringWriter writer = new StringWriter();
@@ -252,8 +842,8 @@ public class TomcatCommandLineState extends JavaCommandLineState {
         FileUtil.writeToFile(contextFilePath.toFile(), writer.toString());
     }
 
-    private Element createContextElement(Document doc, DocumentBuilder builder) throws IOException, SAXException {
-        Path contextFile = findContextFileInApp();
+    private Element createContextElement(Document doc, DocumentBuilder builder, String docBase) throws IOException, SAXException {
+        Path contextFile = findContextFileInApp(docBase);
 
         if (contextFile == null) {
             return doc.createElement("Context");
@@ -263,8 +853,7 @@ public class TomcatCommandLineState extends JavaCommandLineState {
         return (Element) doc.importNode(contextEl, true);
     }
 
-    private Path findContextFileInApp() {
-        String docBase = configuration.getDocBase();
+    private static Path findContextFileInApp(String docBase) {
         if (docBase == null) {
             return null;
         }
@@ -283,10 +872,9 @@ public class TomcatCommandLineState extends JavaCommandLineState {
     }
 
     private void collectResources(Document doc, Element contextRoot, Module module, String tomcatVersion) {
-        String majorVersionStr = tomcatVersion.split("\\.")[0];
-        int majorVersion = Integer.parseInt(majorVersionStr);
-        PathsList pathsList = OrderEnumerator.orderEntries(module)
-                .withoutSdk().runtimeOnly().productionOnly().getPathsList();
+        int majorVersion = tomcatMetadata.getMajorVersion();
+        PathsList pathsList = ReadAction.compute(() -> OrderEnumerator.orderEntries(module)
+                .withoutSdk().runtimeOnly().productionOnly().getPathsList());
 
         if (pathsList.isEmpty()) {
             return;
@@ -294,7 +882,7 @@ public class TomcatCommandLineState extends JavaCommandLineState {
 
         if (majorVersion >= 8) {
             Element resources = createResourcesElementIfNecessary(doc, contextRoot);
-            pathsList.getVirtualFiles().forEach(file -> {
+            ReadAction.compute(pathsList::getVirtualFiles).forEach(file -> {
                 Element res;
                 String tagName;
                 String className;
@@ -346,6 +934,36 @@ public class TomcatCommandLineState extends JavaCommandLineState {
         return resources;
     }
 
+    /**
+     * Copy the jar of the request timing valve to catalina.base/lib, so that it's loaded by the common class loader
+     *
+     * @return the ring file written by the valve
+     */
+    private Path installRequestTimingValve(Path catalinaBase) throws IOException {
+        Path libPath = catalinaBase.resolve("lib");
+        FileUtil.createDirectory(libPath.toFile());
+        try (InputStream in = TomcatCommandLineState.class.getResourceAsStream(RequestTimingReader.VALVE_JAR_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Cannot find " + RequestTimingReader.VALVE_JAR_RESOURCE + " in the plugin");
+            }
+            Files.copy(in, libPath.resolve(RequestTimingReader.VALVE_JAR_NAME), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // A file per launch, so that the records of the previous launch are never read again. The previous files may still
+        // be mapped by their readers, which Windows doesn't let delete, so they are deleted when they can be.
+        Path tempPath = catalinaBase.resolve("temp");
+        try (DirectoryStream<Path> previousFiles = Files.newDirectoryStream(tempPath, "request-timings-*.bin")) {
+            for (Path previousFile : previousFiles) {
+                try {
+                    Files.deleteIfExists(previousFile);
+                } catch (IOException e) {
+                    LOG.debug("Cannot delete " + previousFile + " yet", e);
+                }
+            }
+        }
+        return tempPath.resolve("request-timings-" + System.currentTimeMillis() + ".bin");
+    }
+
     private void deleteTomcatWorkFiles(Path tomcatHome) {
         Path tomcatWorkPath = tomcatHome.resolve("work/Catalina/localhost");
         FileUtil.processFilesRecursively(tomcatWorkPath.toFile(), file -> {
@@ -0,0 +1,370 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.execution.DefaultExecutionResult;
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.ExecutionResult;
+import com.intellij.execution.Executor;
+import com.intellij.execution.configurations.RunProfileState;
+import com.intellij.execution.filters.TextConsoleBuilderFactory;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.execution.runners.ExecutionEnvironmentBuilder;
+import com.intellij.execution.runners.ProgramRunner;
+import com.intellij.execution.ui.ConsoleView;
+import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.util.Key;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Launches the members of a {@link TomcatCompoundRunConfiguration}. The members are prepared concurrently, then
+ * started in the order they were prepared, at most {@code maxConcurrentStarts} at a time: an instance takes a slot
+ * until its server startup completed, or it terminated.
+ * <p>
+ * The console shows a tab per member, and a launch tab which reports the preparation and ready times.
+ * Stopping the compound stops all the members.
+ */
+public class TomcatCompoundCommandLineState implements RunProfileState {
+
+    private final ExecutionEnvironment environment;
+    private final TomcatCompoundRunConfiguration configuration;
+
+    TomcatCompoundCommandLineState(ExecutionEnvironment environment, TomcatCompoundRunConfiguration configuration) {
+        this.environment = environment;
+        this.configuration = configuration;
+    }
+
+    @Override
+    public @Nullable ExecutionResult execute(Executor executor, @NotNull ProgramRunner<?> runner) throws ExecutionException {
+        List<TomcatRunConfiguration> members = configuration.getMembers();
+        if (members.isEmpty()) {
+            throw new ExecutionException("No Smart Tomcat configuration to launch in " + configuration.getName());
+        }
+
+        List<Member> launchMembers = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        for (TomcatRunConfiguration member : members) {
+            ExecutionEnvironment memberEnvironment = ExecutionEnvironmentBuilder
+                    .create(environment.getProject(), executor, member)
+                    .runner(runner)
+                    .build();
+            launchMembers.add(new Member(member.getName(), new TomcatCommandLineState(memberEnvironment, member)));
+            titles.add(member.getName());
+        }
+
+        ConsoleView launchConsole = TextConsoleBuilderFactory.getInstance().createBuilder(environment.getProject()).getConsole();
+        CompoundConsole console = new CompoundConsole(launchConsole, titles);
+        CompoundProcessHandler processHandler = new CompoundProcessHandler();
+        launchConsole.attachToProcess(processHandler);
+
+        new Launch(executor, runner, launchMembers, console, processHandler).start();
+        return new DefaultExecutionResult(console, processHandler);
+    }
+
+    private static class Member {
+        private final String name;
+        private final TomcatCommandLineState state;
+        private boolean ready;
+        private boolean failed;
+
+        Member(String name, TomcatCommandLineState state) {
+            this.name = name;
+            this.state = state;
+        }
+    }
+
+    private class Launch {
+        private final Executor executor;
+        private final ProgramRunner<?> runner;
+        private final List<Member> members;
+        private final CompoundConsole console;
+        private final CompoundProcessHandler processHandler;
+        private final int maxConcurrentStarts = configuration.getMaxConcurrentStarts();
+        private final ExecutorService preparationExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+                "SmartTomcat Compound Preparation", Runtime.getRuntime().availableProcessors());
+        private final long startNanos = System.nanoTime();
+
+        // The prepared members, waiting for a slot
+        private final Deque<Member> prepared = new ArrayDeque<>();
+        private int starting;
+        private int finished;
+
+        Launch(Executor executor, ProgramRunner<?> runner, List<Member> members, CompoundConsole console,
+               CompoundProcessHandler processHandler) {
+            this.executor = executor;
+            this.runner = runner;
+            this.members = members;
+            this.console = console;
+            this.processHandler = processHandler;
+        }
+
+        void start() {
+            processHandler.launch = this;
+            print("Launching " + members.size() + " instances, " + maxConcurrentStarts + " starting at a time\n");
+            for (Member member : members) {
+                preparationExecutor.execute(() -> prepare(member));
+            }
+        }
+
+        private void prepare(Member member) {
+            long prepareStart = System.nanoTime();
+            try {
+                member.state.prepare(new EmptyProgressIndicator());
+            } catch (Exception e) {
+                fail(member, "failed to prepare: " + e.getMessage());
+                return;
+            }
+
+            synchronized (this) {
+                if (processHandler.isStopping()) {
+                    member.state.cancelLaunch();
+                    return;
+                }
+                print(member.name + " prepared in " + millisSince(prepareStart) + " ms\n");
+                prepared.add(member);
+            }
+            startNext();
+        }
+
+        private void startNext() {
+            List<Member> toStart = new ArrayList<>();
+            synchronized (this) {
+                while (starting < maxConcurrentStarts && !prepared.isEmpty() && !processHandler.isStopping()) {
+                    toStart.add(prepared.poll());
+                    starting++;
+                }
+            }
+            // Like the other launches, the console and the process are created on the EDT
+            for (Member member : toStart) {
+                ApplicationManager.getApplication().invokeLater(() -> startMember(member));
+            }
+        }
+
+        private void startMember(Member member) {
+            if (processHandler.isStopping()) {
+                member.state.cancelLaunch();
+                return;
+            }
+
+            ExecutionResult result;
+            try {
+                result = member.state.execute(executor, runner);
+            } catch (ExecutionException | RuntimeException e) {
+                slotFreed();
+                fail(member, "failed to start: " + e.getMessage());
+                return;
+            }
+
+            ProcessHandler memberHandler = result.getProcessHandler();
+            console.setMemberConsole(members.indexOf(member), result.getExecutionConsole());
+            print(member.name + " started at " + millisSince(startNanos) + " ms\n");
+            memberHandler.addProcessListener(new ProcessAdapter() {
+                @Override
+                public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+                    if (!member.ready && StartupReport.isStartupCompleted(event.getText())) {
+                        ready(member);
+                    }
+                }
+
+                @Override
+                public void processTerminated(@NotNull ProcessEvent event) {
+                    memberTerminated(member, memberHandler);
+                }
+            });
+            processHandler.memberStarted(memberHandler);
+            memberHandler.startNotify();
+        }
+
+        private void ready(Member member) {
+            synchronized (this) {
+                if (member.ready || member.failed) {
+                    return;
+                }
+                member.ready = true;
+                print(member.name + " ready at " + millisSince(startNanos) + " ms\n");
+                finished++;
+                reportIfDone();
+            }
+            slotFreed();
+        }
+
+        private void memberTerminated(Member member, ProcessHandler memberHandler) {
+            boolean duringStartup;
+            synchronized (this) {
+                duringStartup = !member.ready && !member.failed;
+                if (duringStartup) {
+                    member.failed = true;
+                    if (!processHandler.isStopping()) {
+                        printError(member.name + " terminated before its startup completed\n");
+                    }
+                    finished++;
+                    reportIfDone();
+                }
+            }
+            if (duringStartup) {
+                slotFreed();
+            }
+            processHandler.memberTerminated(memberHandler);
+        }
+
+        private void fail(Member member, String message) {
+            synchronized (this) {
+                member.failed = true;
+                printError(member.name + " " + message + "\n");
+                finished++;
+                reportIfDone();
+            }
+            processHandler.memberTerminated(null);
+        }
+
+        private void slotFreed() {
+            synchronized (this) {
+                starting--;
+            }
+            startNext();
+        }
+
+        private void reportIfDone() {
+            if (finished < members.size()) {
+                return;
+            }
+            preparationExecutor.shutdown();
+            long readyCount = members.stream().filter(member -> member.ready).count();
+            if (readyCount == members.size()) {
+                print("All " + readyCount + " instances ready in " + millisSince(startNanos) + " ms\n");
+            } else {
+                printError(readyCount + " of " + members.size() + " instances ready after " + millisSince(startNanos) + " ms\n");
+            }
+        }
+
+        // Called when the compound is stopped
+        synchronized void stop() {
+            for (Member member : prepared) {
+                member.state.cancelLaunch();
+            }
+            prepared.clear();
+        }
+
+        int getMemberCount() {
+            return members.size();
+        }
+
+        private void print(String text) {
+            processHandler.notifyTextAvailable(text, ProcessOutputTypes.SYSTEM);
+        }
+
+        private void printError(String text) {
+            processHandler.notifyTextAvailable(text, ProcessOutputTypes.STDERR);
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Terminates when all the members terminated or failed to start, and stops all the members when stopped.
+     */
+    private static class CompoundProcessHandler extends ProcessHandler {
+        private final List<ProcessHandler> memberHandlers = new ArrayList<>();
+        private final Set<ProcessHandler> terminatedHandlers = new HashSet<>();
+        private Launch launch;
+        private int failedCount;
+        private boolean terminationNotified;
+        private volatile boolean stopping;
+
+        boolean isStopping() {
+            return stopping;
+        }
+
+        void memberStarted(ProcessHandler memberHandler) {
+            synchronized (this) {
+                memberHandlers.add(memberHandler);
+            }
+            if (stopping) {
+                memberHandler.destroyProcess();
+            }
+        }
+
+        /**
+         * @param memberHandler the process of the member, null if the member failed to start
+         */
+        void memberTerminated(@Nullable ProcessHandler memberHandler) {
+            synchronized (this) {
+                if (memberHandler == null) {
+                    failedCount++;
+                } else {
+                    terminatedHandlers.add(memberHandler);
+                }
+            }
+            notifyIfTerminated();
+        }
+
+        private void notifyIfTerminated() {
+            synchronized (this) {
+                boolean running = terminatedHandlers.size() < memberHandlers.size();
+                // The members which were not started yet are never started once stopping
+                boolean pending = memberHandlers.size() + failedCount < launch.getMemberCount() && !stopping;
+                if (terminationNotified || running || pending) {
+                    return;
+                }
+                terminationNotified = true;
+            }
+            notifyProcessTerminated(0);
+        }
+
+        @Override
+        protected void destroyProcessImpl() {
+            stop(ProcessHandler::destroyProcess);
+            notifyIfTerminated();
+        }
+
+        @Override
+        protected void detachProcessImpl() {
+            stop(ProcessHandler::detachProcess);
+            notifyProcessDetached();
+        }
+
+        private void stop(Consumer<ProcessHandler> action) {
+            stopping = true;
+            launch.stop();
+            List<ProcessHandler> handlers;
+            synchronized (this) {
+                handlers = new ArrayList<>(memberHandlers);
+            }
+            for (ProcessHandler handler : handlers) {
+                if (!handler.isProcessTerminating() && !handler.isProcessTerminated()) {
+                    action.accept(handler);
+                }
+            }
+        }
+
+        @Override
+        public boolean detachIsDefault() {
+            return false;
+        }
+
+        @Override
+        public @Nullable OutputStream getProcessInput() {
+            return null;
+        }
+    }
+
+}
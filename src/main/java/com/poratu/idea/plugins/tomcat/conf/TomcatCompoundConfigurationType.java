@@ -0,0 +1,31 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.execution.configurations.RunConfiguration;
+import com.intellij.execution.configurations.SimpleConfigurationType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.IconLoader;
+import com.intellij.openapi.util.NotNullLazyValue;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+
+/**
+ * Launches several Smart Tomcat run configurations at once, see {@link TomcatCompoundRunConfiguration}.
+ */
+public class TomcatCompoundConfigurationType extends SimpleConfigurationType {
+
+    private static final Icon TOMCAT_ICON = IconLoader.getIcon("/icon/tomcat.svg", TomcatCompoundConfigurationType.class);
+
+    protected TomcatCompoundConfigurationType() {
+        super("com.poratu.idea.plugins.tomcat.compound",
+                "Smart Tomcat Compound",
+                "Configuration to run several Tomcat servers at once",
+                NotNullLazyValue.createValue(() -> TOMCAT_ICON));
+    }
+
+    @Override
+    public @NotNull RunConfiguration createTemplateConfiguration(@NotNull Project project) {
+        return new TomcatCompoundRunConfiguration(project, this, "");
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.configurationStore.XmlSerializer;
+import com.intellij.execution.Executor;
+import com.intellij.execution.RunManager;
+import com.intellij.execution.configurations.ConfigurationFactory;
+import com.intellij.execution.configurations.ConfigurationTypeUtil;
+import com.intellij.execution.configurations.LocatableConfigurationBase;
+import com.intellij.execution.configurations.LocatableRunConfigurationOptions;
+import com.intellij.execution.configurations.RunConfiguration;
+import com.intellij.execution.configurations.RunProfileState;
+import com.intellij.execution.configurations.RunProfileWithCompileBeforeLaunchOption;
+import com.intellij.execution.configurations.RuntimeConfigurationError;
+import com.intellij.execution.configurations.RuntimeConfigurationException;
+import com.intellij.execution.configurations.RuntimeConfigurationWarning;
+import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.options.SettingsEditor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.InvalidDataException;
+import com.intellij.openapi.util.WriteExternalException;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import org.jdom.Element;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Launches several Smart Tomcat run configurations at once: they are prepared concurrently, and their JVMs are
+ * started with a limited concurrency, the next one when an instance completed its startup, so that the instances
+ * don't compete for the disk and the CPU. The launch reports when each instance became ready.
+ */
+public class TomcatCompoundRunConfiguration extends LocatableConfigurationBase<LocatableRunConfigurationOptions> implements RunProfileWithCompileBeforeLaunchOption {
+
+    private CompoundOptions compoundOptions = new CompoundOptions();
+
+    protected TomcatCompoundRunConfiguration(@NotNull Project project, @NotNull ConfigurationFactory factory, String name) {
+        super(project, factory, name);
+    }
+
+    @NotNull
+    @Override
+    public SettingsEditor<? extends RunConfiguration> getConfigurationEditor() {
+        return new TomcatCompoundSettingsEditor(getProject());
+    }
+
+    @Override
+    public void checkConfiguration() throws RuntimeConfigurationException {
+        if (getConfigurationNames().isEmpty()) {
+            throw new RuntimeConfigurationError("No Smart Tomcat configuration is selected");
+        }
+
+        List<TomcatRunConfiguration> members = getMembers();
+        for (TomcatRunConfiguration member : members) {
+            try {
+                member.checkConfiguration();
+            } catch (RuntimeConfigurationError e) {
+                throw new RuntimeConfigurationError(member.getName() + ": " + e.getMessage());
+            } catch (RuntimeConfigurationException e) {
+                // The warnings are shown by the configuration itself
+            }
+        }
+
+        if (members.size() < getConfigurationNames().size()) {
+            throw new RuntimeConfigurationWarning("Some of the selected configurations don't exist anymore");
+        }
+    }
+
+    @Nullable
+    @Override
+    public RunProfileState getState(@NotNull Executor executor, @NotNull ExecutionEnvironment executionEnvironment) {
+        return new TomcatCompoundCommandLineState(executionEnvironment, this);
+    }
+
+    // Build the modules of all the members once, before the launch
+    @Override
+    public Module @NotNull [] getModules() {
+        Set<Module> modules = new LinkedHashSet<>();
+        for (TomcatRunConfiguration member : getMembers()) {
+            Module module = member.getModule();
+            if (module != null) {
+                modules.add(module);
+            }
+        }
+        return modules.toArray(Module.EMPTY_ARRAY);
+    }
+
+    @Override
+    public void readExternal(@NotNull Element element) throws InvalidDataException {
+        super.readExternal(element);
+        XmlSerializer.deserializeInto(element, compoundOptions);
+    }
+
+    @Override
+    public void writeExternal(@NotNull Element element) throws WriteExternalException {
+        super.writeExternal(element);
+        XmlSerializer.serializeObjectInto(compoundOptions, element);
+    }
+
+    /**
+     * @return the existing Smart Tomcat configurations of the compound, in the selection order
+     */
+    public List<TomcatRunConfiguration> getMembers() {
+        List<RunConfiguration> configurations = RunManager.getInstance(getProject())
+                .getConfigurationsList(ConfigurationTypeUtil.findConfigurationType(TomcatRunConfigurationType.class));
+        List<TomcatRunConfiguration> members = new ArrayList<>();
+        for (String name : getConfigurationNames()) {
+            for (RunConfiguration configuration : configurations) {
+                if (configuration instanceof TomcatRunConfiguration && configuration.getName().equals(name)) {
+                    members.add((TomcatRunConfiguration) configuration);
+                    break;
+                }
+            }
+        }
+        return members;
+    }
+
+    public List<String> getConfigurationNames() {
+        return compoundOptions.getConfigurationNames();
+    }
+
+    public void setConfigurationNames(List<String> configurationNames) {
+        compoundOptions.setConfigurationNames(configurationNames);
+    }
+
+    /**
+     * @return the maximum number of instances starting at the same time, half of the processors by default
+     */
+    public int getMaxConcurrentStarts() {
+        Integer maxConcurrentStarts = compoundOptions.getMaxConcurrentStarts();
+        if (maxConcurrentStarts == null || maxConcurrentStarts < 1) {
+            return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+        return maxConcurrentStarts;
+    }
+
+    @Nullable
+    public Integer getMaxConcurrentStartsOption() {
+        return compoundOptions.getMaxConcurrentStarts();
+    }
+
+    public void setMaxConcurrentStarts(Integer maxConcurrentStarts) {
+        compoundOptions.setMaxConcurrentStarts(maxConcurrentStarts);
+    }
+
+    @Override
+    public RunConfiguration clone() {
+        TomcatCompoundRunConfiguration clone = (TomcatCompoundRunConfiguration) super.clone();
+        clone.compoundOptions = XmlSerializerUtil.createCopy(compoundOptions);
+        return clone;
+    }
+
+    private static class CompoundOptions implements Serializable {
+        private List<String> configurationNames = new ArrayList<>();
+        private Integer maxConcurrentStarts;
+
+        public List<String> getConfigurationNames() {
+            return configurationNames;
+        }
+
+        public void setConfigurationNames(List<String> configurationNames) {
+            this.configurationNames = configurationNames;
+        }
+
+        @Nullable
+        public Integer getMaxConcurrentStarts() {
+            return maxConcurrentStarts;
+        }
+
+        public void setMaxConcurrentStarts(Integer maxConcurrentStarts) {
+            this.maxConcurrentStarts = maxConcurrentStarts;
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.execution.RunManager;
+import com.intellij.execution.configurations.ConfigurationTypeUtil;
+import com.intellij.execution.configurations.RunConfiguration;
+import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.openapi.options.SettingsEditor;
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.CheckBoxList;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.ui.FormBuilder;
+import com.poratu.idea.plugins.tomcat.utils.PluginUtils;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TomcatCompoundSettingsEditor extends SettingsEditor<TomcatCompoundRunConfiguration> {
+
+    private final Project project;
+    private final CheckBoxList<String> configurationList = new CheckBoxList<>();
+    private final JTextField maxConcurrentStartsField = new JTextField();
+    private final JPanel mainPanel;
+
+    public TomcatCompoundSettingsEditor(Project project) {
+        this.project = project;
+        maxConcurrentStartsField.setToolTipText("The number of instances starting at the same time, empty for half of the processors."
+                + " The next instance starts when an instance completed its startup");
+        mainPanel = FormBuilder.createFormBuilder()
+                .addLabeledComponentFillVertically("Smart Tomcat configurations:", new JBScrollPane(configurationList))
+                .addLabeledComponent("Concurrent starts:", maxConcurrentStartsField)
+                .getPanel();
+    }
+
+    @Override
+    protected void resetEditorFrom(@NotNull TomcatCompoundRunConfiguration configuration) {
+        List<String> selected = configuration.getConfigurationNames();
+        configurationList.clear();
+        for (RunConfiguration candidate : RunManager.getInstance(project)
+                .getConfigurationsList(ConfigurationTypeUtil.findConfigurationType(TomcatRunConfigurationType.class))) {
+            configurationList.addItem(candidate.getName(), candidate.getName(), selected.contains(candidate.getName()));
+        }
+        Integer maxConcurrentStarts = configuration.getMaxConcurrentStartsOption();
+        maxConcurrentStartsField.setText(maxConcurrentStarts == null ? "" : String.valueOf(maxConcurrentStarts));
+    }
+
+    @Override
+    protected void applyEditorTo(@NotNull TomcatCompoundRunConfiguration configuration) throws ConfigurationException {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < configurationList.getItemsCount(); i++) {
+            String name = configurationList.getItemAt(i);
+            if (name != null && configurationList.isItemSelected(name)) {
+                names.add(name);
+            }
+        }
+        configuration.setConfigurationNames(names);
+        configuration.setMaxConcurrentStarts(PluginUtils.parseOptionalPositiveInt(maxConcurrentStartsField.getText(), "Concurrent starts"));
+    }
+
+    @Override
+    protected @NotNull JComponent createEditor() {
+        return mainPanel;
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the date-rotated log files under catalina.base/logs, and deletes the oldest ones
+ * according to the retention policy of the run configuration.
+ * <p>
+ * The directories are processed one at a time on the application pool, once the server had the time to start.
+ */
+public final class TomcatLogRetention {
+    private static final Logger LOG = Logger.getInstance(TomcatLogRetention.class);
+
+    // catalina.2023-06-21.log, localhost_access_log.2023-06-21.txt, catalina.2023-06-21.log.gz
+    private static final Pattern ROTATED_LOG = Pattern.compile("^.+\\.(\\d{4}-\\d{2}-\\d{2})\\.(?:log|txt)(\\.gz)?$");
+    private static final long STARTUP_DELAY_SECONDS = 60;
+
+    private static final ScheduledExecutorService EXECUTOR =
+            AppExecutorUtil.createBoundedScheduledExecutorService("SmartTomcat Log Retention", 1);
+
+    private TomcatLogRetention() {
+    }
+
+    /**
+     * Schedule the retention of the logs directory, nothing is done if neither limit is set.
+     *
+     * @param logsDir        catalina.base/logs
+     * @param maxAgeDays     maximum age of the rotated logs in days, or {@code null} for no limit
+     * @param maxTotalSizeMb maximum size of the logs directory in megabytes, or {@code null} for no limit
+     */
+    public static void schedule(@NotNull Path logsDir, @Nullable Integer maxAgeDays, @Nullable Integer maxTotalSizeMb) {
+        if (maxAgeDays == null && maxTotalSizeMb == null) {
+            return;
+        }
+
+        EXECUTOR.schedule(() -> {
+            try {
+                apply(logsDir, maxAgeDays, maxTotalSizeMb);
+            } catch (IOException e) {
+                LOG.warn("Failed to apply the log retention policy to " + logsDir, e);
+            }
+        }, STARTUP_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    static void apply(Path logsDir, @Nullable Integer maxAgeDays, @Nullable Integer maxTotalSizeMb) throws IOException {
+        if (!Files.isDirectory(logsDir)) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        List<RotatedLog> rotatedLogs = new ArrayList<>();
+        for (Path file : listFiles(logsDir)) {
+            RotatedLog log = RotatedLog.parse(file);
+            // Tomcat is still writing into the log of today
+            if (log != null && log.date.isBefore(today)) {
+                rotatedLogs.add(log.compressed ? log : compressQuietly(log));
+            }
+        }
+        rotatedLogs.sort(Comparator.comparing((RotatedLog log) -> log.date));
+
+        if (maxAgeDays != null) {
+            LocalDate oldestKept = today.minusDays(maxAgeDays);
+            rotatedLogs.removeIf(log -> log.date.isBefore(oldestKept) && delete(log.file));
+        }
+
+        if (maxTotalSizeMb != null) {
+            long maxBytes = maxTotalSizeMb * 1024L * 1024L;
+            long totalBytes = 0;
+            for (Path file : listFiles(logsDir)) {
+                totalBytes += Files.size(file);
+            }
+
+            for (RotatedLog log : rotatedLogs) {
+                if (totalBytes <= maxBytes) {
+                    break;
+                }
+                long size = Files.size(log.file);
+                if (delete(log.file)) {
+                    totalBytes -= size;
+                }
+            }
+        }
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    private static RotatedLog compressQuietly(RotatedLog log) {
+        try {
+            return compress(log);
+        } catch (IOException e) {
+            LOG.warn("Failed to compress " + log.file, e);
+            return log;
+        }
+    }
+
+    private static RotatedLog compress(RotatedLog log) throws IOException {
+        Path gzFile = log.file.resolveSibling(log.file.getFileName() + ".gz");
+        // A partial archive must never be taken for a compressed log, and replace the original
+        Path tempFile = log.file.resolveSibling(gzFile.getFileName() + ".tmp");
+        FileTime lastModified = Files.getLastModifiedTime(log.file);
+
+        try {
+            try (InputStream in = Files.newInputStream(log.file);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempFile))) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+
+            Files.setLastModifiedTime(tempFile, lastModified);
+            Files.move(tempFile, gzFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        Files.delete(log.file);
+        return new RotatedLog(gzFile, log.date, true);
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            LOG.warn("Failed to delete " + file, e);
+            return false;
+        }
+    }
+
+    private static class RotatedLog {
+        private final Path file;
+        private final LocalDate date;
+        private final boolean compressed;
+
+        RotatedLog(Path file, LocalDate date, boolean compressed) {
+            this.file = file;
+            this.date = date;
+            this.compressed = compressed;
+        }
+
+        @Nullable
+        static RotatedLog parse(Path file) {
+            Matcher matcher = ROTATED_LOG.matcher(file.getFileName().toString());
+            if (!matcher.matches()) {
+                return null;
+            }
+
+            try {
+                return new RotatedLog(file, LocalDate.parse(matcher.group(1)), matcher.group(2) != null);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+
+}
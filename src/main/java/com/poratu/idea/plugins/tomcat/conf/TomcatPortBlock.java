@@ -0,0 +1,67 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * The ports of one of the Tomcat instances launched by a run configuration. The instance {@code i} (from 0) prefers the
+ * configured server, SSL and admin ports plus {@code i}, the actual ports are leased by {@link TomcatPortLeases}, which
+ * moves the other instances of a cluster to the next free ports whenever their preferred ones are taken, e.g. by
+ * another instance.
+ */
+public final class TomcatPortBlock {
+    private final int port;
+    private final Integer sslPort;
+    private final int adminPort;
+
+    TomcatPortBlock(int port, @Nullable Integer sslPort, int adminPort) {
+        this.port = port;
+        this.sslPort = sslPort;
+        this.adminPort = adminPort;
+    }
+
+    static TomcatPortBlock of(@NotNull TomcatRunConfiguration configuration, int instanceIndex) {
+        Integer sslPort = configuration.getSslPort();
+        return new TomcatPortBlock(configuration.getPort() + instanceIndex,
+                sslPort == null ? null : sslPort + instanceIndex,
+                configuration.getAdminPort() + instanceIndex);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Nullable
+    public Integer getSslPort() {
+        return sslPort;
+    }
+
+    public int getAdminPort() {
+        return adminPort;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TomcatPortBlock that = (TomcatPortBlock) o;
+        return port == that.port && adminPort == that.adminPort && Objects.equals(sslPort, that.sslPort);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(port, sslPort, adminPort);
+    }
+
+    @Override
+    public String toString() {
+        return sslPort == null ? String.valueOf(port) : port + "/" + sslPort;
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.poratu.idea.plugins.tomcat.conf;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.application.ApplicationManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leases the ports of the Tomcat instances launched by the IDE, whatever their project, so that two run configurations
+ * never get the same ports. A port is only leased if it can be bound too, which detects the other processes before
+ * Tomcat does the work of starting.
+ * <p>
+ * The leases are released when the process terminates. A lease which was never attached to a process, e.g. because
+ * the launch was cancelled after the preparation, expires after a while.
+ */
+public final class TomcatPortLeases {
+    private static final int MAX_PORT = 65535;
+    private static final int MAX_ATTEMPTS = 100;
+    private static final long UNATTACHED_LEASE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private final Map<Integer, Lease> leases = new HashMap<>();
+
+    public static TomcatPortLeases getInstance() {
+        return ApplicationManager.getApplication().getService(TomcatPortLeases.class);
+    }
+
+    /**
+     * Lease the ports of an instance, binding every port to check that it's free
+     *
+     * @param owner            the name of the instance, shown when another instance wants the same ports
+     * @param requested        the configured ports
+     * @param useNextFreePorts whether to pick the next free port when a port is taken, instead of failing
+     * @return the lease of the actual ports
+     * @throws ExecutionException if a port is taken and {@code useNextFreePorts} is not set, or no free port was found
+     */
+    public synchronized Lease lease(@NotNull String owner, @NotNull TomcatPortBlock requested, boolean useNextFreePorts)
+            throws ExecutionException {
+        Set<Integer> taken = new HashSet<>();
+        int port = acquire(requested.getPort(), "Server", useNextFreePorts, taken);
+        Integer sslPort = requested.getSslPort() == null ? null : acquire(requested.getSslPort(), "SSL", useNextFreePorts, taken);
+        // A negative admin port disables the shutdown port
+        int adminPort = requested.getAdminPort() < 0 ? requested.getAdminPort()
+                : acquire(requested.getAdminPort(), "Admin", useNextFreePorts, taken);
+
+        Lease lease = new Lease(owner, new TomcatPortBlock(port, sslPort, adminPort));
+        for (int leasedPort : taken) {
+            leases.put(leasedPort, lease);
+        }
+        return lease;
+    }
+
+    private int acquire(int port, String label, boolean useNextFreePorts, Set<Integer> taken) throws ExecutionException {
+        for (int candidate = port; candidate <= MAX_PORT && candidate < port + MAX_ATTEMPTS; candidate++) {
+            String conflict = findConflict(candidate, taken);
+            if (conflict == null) {
+                taken.add(candidate);
+                return candidate;
+            }
+            if (!useNextFreePorts) {
+                throw new ExecutionException(label + " port " + candidate + " is " + conflict
+                        + ", change it or enable 'Next free ports' in the run configuration");
+            }
+        }
+        throw new ExecutionException("No free " + label.toLowerCase() + " port found from " + port + " to "
+                + Math.min(MAX_PORT, port + MAX_ATTEMPTS - 1));
+    }
+
+    @Nullable
+    private String findConflict(int port, Set<Integer> taken) {
+        if (taken.contains(port)) {
+            return "used by another port of the same Tomcat";
+        }
+
+        Lease lease = leases.get(port);
+        if (lease != null && lease.isExpired()) {
+            release(lease);
+            lease = null;
+        }
+        if (lease != null) {
+            return "used by " + lease.owner;
+        }
+
+        if (!canBind(port)) {
+            return "used by another process";
+        }
+        return null;
+    }
+
+    // Tomcat binds all the addresses by default, so does the check
+    private static boolean canBind(int port) {
+        try (ServerSocket socket = new ServerSocket()) {
+            socket.bind(new InetSocketAddress(port));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private synchronized void release(Lease lease) {
+        leases.values().removeIf(leased -> leased == lease);
+    }
+
+    public class Lease {
+        private final String owner;
+        private final TomcatPortBlock ports;
+        private final long creationTime = System.currentTimeMillis();
+        private volatile boolean attached;
+
+        Lease(String owner, TomcatPortBlock ports) {
+            this.owner = owner;
+            this.ports = ports;
+        }
+
+        public TomcatPortBlock getPorts() {
+            return ports;
+        }
+
+        /**
+         * Keep the ports until the process terminates
+         */
+        public void releaseOnTermination(@NotNull ProcessHandler processHandler) {
+            attached = true;
+            processHandler.addProcessListener(new ProcessAdapter() {
+                @Override
+                public void processTerminated(@NotNull ProcessEvent event) {
+                    release();
+                }
+            });
+            if (processHandler.isProcessTerminated()) {
+                release();
+            }
+        }
+
+        public void release() {
+            TomcatPortLeases.this.release(this);
+        }
+
+        private boolean isExpired() {
+            return !attached && System.currentTimeMillis() - creationTime > UNATTACHED_LEASE_TIMEOUT_MILLIS;
+        }
+    }
+
+}
@@ -6,6 +6,7 @@ import com.intellij.execution.ExecutionBundle;
 import com.intellij.execution.Executor;
 import com.intellij.execution.JavaRunConfigurationExtensionManager;
 import com.intellij.execution.configurations.ConfigurationFactory;
+import com.intellij.execution.configurations.ConfigurationPerRunnerSettings;
 import com.intellij.execution.configurations.LocatableConfigurationBase;
 import com.intellij.execution.configurations.LocatableRunConfigurationOptions;
 import com.intellij.execution.configurations.LogFileOptions;
@@ -14,20 +15,30 @@ import com.intellij.execution.configurations.RunConfiguration;
 import com.intellij.execution.configurations.RunConfigurationModule;
 import com.intellij.execution.configurations.RunProfileState;
 import com.intellij.execution.configurations.RunProfileWithCompileBeforeLaunchOption;
+import com.intellij.execution.configurations.RunnerSettings;
 import com.intellij.execution.configurations.RuntimeConfigurationError;
 import com.intellij.execution.configurations.RuntimeConfigurationException;
+import com.intellij.execution.configurations.RuntimeConfigurationWarning;
 import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.execution.runners.ProgramRunner;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.options.SettingsEditor;
 import com.intellij.openapi.options.SettingsEditorGroup;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.projectRoots.JavaSdkVersion;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.InvalidDataException;
 import com.intellij.openapi.util.WriteExternalException;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.xmlb.XmlSerializerUtil;
+import com.poratu.idea.plugins.tomcat.monitor.ClassLoaderLeakDetector;
+import com.poratu.idea.plugins.tomcat.monitor.MonitoredTomcat;
+import com.poratu.idea.plugins.tomcat.monitor.TomcatMonitorService;
+import com.poratu.idea.plugins.tomcat.runner.TomcatProfiler;
 import com.poratu.idea.plugins.tomcat.setting.TomcatInfo;
 import com.poratu.idea.plugins.tomcat.setting.TomcatServerManagerState;
 import com.poratu.idea.plugins.tomcat.utils.PluginUtils;
@@ -35,10 +46,15 @@ import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -48,6 +64,10 @@ import java.util.stream.Collectors;
  */
 public class TomcatRunConfiguration extends LocatableConfigurationBase<LocatableRunConfigurationOptions> implements RunProfileWithCompileBeforeLaunchOption {
 
+    private static final int MAX_INSTANCE_COUNT = 16;
+    static final int DEFAULT_ASYNC_LOG_QUEUE_SIZE = 10000;
+    static final int DEFAULT_METRICS_INTERVAL = 5;
+
     private static final List<TomcatLogFile> tomcatLogFiles = Arrays.asList(
             new TomcatLogFile(TomcatLogFile.TOMCAT_LOCALHOST_LOG_ID, "localhost", true),
             new TomcatLogFile(TomcatLogFile.TOMCAT_ACCESS_LOG_ID, "localhost_access_log", true),
@@ -96,6 +116,11 @@ public class TomcatRunConfiguration extends LocatableConfigurationBase<Locatable
             throw new RuntimeConfigurationError("Tomcat server is not selected");
         }
 
+        // Known from the last validation, the file system isn't checked while editing
+        if (TomcatServerManagerState.getInstance().isMissing(getTomcatInfo())) {
+            throw new RuntimeConfigurationError("Tomcat server is not found in " + getTomcatInfo().getPath() + ", select another one");
+        }
+
         if (StringUtil.isEmpty(getDocBase())) {
             throw new RuntimeConfigurationError("Deployment directory cannot be empty");
         }
@@ -111,11 +136,61 @@ public class TomcatRunConfiguration extends LocatableConfigurationBase<Locatable
         if (getPort() == null || getAdminPort() == null) {
             throw new RuntimeConfigurationError("Port cannot be empty");
         }
+
+        if (getInstanceCount() > MAX_INSTANCE_COUNT) {
+            throw new RuntimeConfigurationError("Instances cannot be more than " + MAX_INSTANCE_COUNT);
+        }
+
+        checkAdditionalModules();
+
+        Sdk projectSdk = ProjectRootManager.getInstance(getProject()).getProjectSdk();
+        if (isGcLogging() && !PluginUtils.isJava9OrLater(projectSdk)) {
+            throw new RuntimeConfigurationWarning("GC logging requires the project SDK to be Java 9 or later, it is disabled");
+        }
+
+        // The connector or the JVM would fail to start
+        TlsImplementation tlsImplementation = getTlsImplementation();
+        if (getSslPort() != null && tlsImplementation != null) {
+            if (!tlsImplementation.isSupportedBy(getTomcatInfo().getVersion())) {
+                throw new RuntimeConfigurationError("The TLS implementation " + tlsImplementation + " requires Tomcat "
+                        + tlsImplementation.getMinTomcatVersion() + " or later");
+            }
+            if (tlsImplementation == TlsImplementation.OPENSSL_FFM && !PluginUtils.isJavaAtLeast(projectSdk, JavaSdkVersion.JDK_22)) {
+                throw new RuntimeConfigurationError("The TLS implementation " + tlsImplementation
+                        + " requires the project SDK to be Java 22 or later");
+            }
+        }
+
+        if (isProfileStartup() && !PluginUtils.isJfrSupported(projectSdk)) {
+            throw new RuntimeConfigurationWarning("Profiling the startup requires the Flight Recorder, i.e. Java 11 or later,"
+                    + " or OpenJDK 8 from update 262, it is disabled");
+        }
+
+        for (MonitoredTomcat instance : TomcatMonitorService.getInstance(getProject()).getInstances()) {
+            int leaks = instance.getLeakDetector().getLeakedClassLoaderCount();
+            if (instance.getConfigurationName().equals(getName()) && leaks >= ClassLoaderLeakDetector.WARNING_THRESHOLD) {
+                throw new RuntimeConfigurationWarning("The running Tomcat leaked " + leaks
+                        + " class loaders when its contexts were reloaded, restart it before it runs out of Metaspace");
+            }
+        }
+    }
+
+    @Override
+    public void checkRunnerSettings(@NotNull ProgramRunner<?> runner, @Nullable RunnerSettings runnerSettings,
+                                    @Nullable ConfigurationPerRunnerSettings configurationPerRunnerSettings)
+            throws RuntimeConfigurationException {
+        super.checkRunnerSettings(runner, runnerSettings, configurationPerRunnerSettings);
+        // The JVM would refuse the options of the recording, and not start at all
+        if (runner instanceof TomcatProfiler && !PluginUtils.isJfrSupported(ProjectRootManager.getInstance(getProject()).getProjectSdk())) {
+            throw new RuntimeConfigurationError("Profiling requires the Flight Recorder, i.e. Java 11 or later,"
+                    + " or OpenJDK 8 from update 262, and not OpenJ9");
+        }
     }
 
     @Override
     public void onNewConfigurationCreated() {
         super.onNewConfigurationCreated();
+        tomcatOptions.setParallelAnnotationScanning(true);
 
         try {
             Project project = getProject();
@@ -148,6 +223,32 @@ public class TomcatRunConfiguration extends LocatableConfigurationBase<Locatable
         return moduleManager.getModules();
     }
 
+    private void checkAdditionalModules() throws RuntimeConfigurationError {
+        ModuleManager moduleManager = ModuleManager.getInstance(getProject());
+        Set<String> contextPaths = new HashSet<>();
+        contextPaths.add(StringUtil.trim(getContextPath(), ch -> ch != '/'));
+        for (String entry : getAdditionalModules()) {
+            AdditionalModule additionalModule = AdditionalModule.parse(entry);
+            String name = additionalModule.getName();
+            Module module = moduleManager.findModuleByName(name);
+            if (module == null) {
+                throw new RuntimeConfigurationError("Additional module '" + name + "' doesn't exist");
+            }
+            String docBase = additionalModule.resolveDocBase(module);
+            if (docBase == null) {
+                throw new RuntimeConfigurationError("The additional module '" + name
+                        + "' has no web root, i.e. no directory with a WEB-INF, use '" + name + "=<doc base>'");
+            }
+            if (!new File(docBase).isDirectory()) {
+                throw new RuntimeConfigurationError("The doc base " + docBase + " of the additional module '" + name + "' doesn't exist");
+            }
+            if (!contextPaths.add(PluginUtils.extractContextPath(module))) {
+                throw new RuntimeConfigurationError("The context path /" + PluginUtils.extractContextPath(module)
+                        + " of the additional module '" + name + "' is used by another module");
+            }
+        }
+    }
+
     @Nullable
     @Override
     public RunProfileState getState(@NotNull Executor executor, @NotNull ExecutionEnvironment executionEnvironment) {
@@ -254,6 +355,26 @@ public class TomcatRunConfiguration extends LocatableConfigurationBase<Locatable
         tomcatOptions.setAdminPort(adminPort);
     }
 
+    /**
+     * @return the number of Tomcat instances launched together, each with its own catalina.base and ports
+     */
+    public int getInstanceCount() {
+        Integer instanceCount = tomcatOptions.getInstanceCount();
+        return instanceCount == null ? 1 : Math.max(1, instanceCount);
+    }
+
+    public void setInstanceCount(Integer instanceCount) {
+        tomcatOptions.setInstanceCount(instanceCount);
+    }
+
+    public boolean isNextFreePorts() {
+        return tomcatOptions.isNextFreePorts();
+    }
+
+    public void setNextFreePorts(boolean nextFreePorts) {
+        tomcatOptions.setNextFreePorts(nextFreePorts);
+    }
+
     public String getVmOptions() {
         return tomcatOptions.getVmOptions();
     }
@@ -262,6 +383,42 @@ public class TomcatRunConfiguration extends LocatableConfigurationBase<Locatable
         tomcatOptions.setVmOptions(vmOptions);
     }
 
+    /**
+     * @return the names of the other modules deployed in the same Tomcat, each as a context named after the module
+     */
+    public List<String> getAdditionalModules() {
+        List<String> additionalModules = tomcatOptions.getAdditionalModules();
+        return additionalModules == null ? Collections.emptyList() : additionalModules;
+    }
+
+    public void setAdditionalModules(List<String> additionalModules) {
+        tomcatOptions.setAdditionalModules(additionalModules);
+    }
+
+    /**
+     * @return whether the annotations of the contexts are scanned by several threads, Tomcat 9.0.30+
+     */
+    public boolean isParallelAnnotationScanning() {
+        return tomcatOptions.isParallelAnnotationScanning();
+    }
+
+    public void setParallelAnnotationScanning(boolean parallelAnnotationScanning) {
+        tomcatOptions.setParallelAnnotationScanning(parallelAnnotationScanning);
+    }
+
+    /**
+     * @return the delay in seconds between the background tasks of the host, e.g. the session expiration,
+     * or null for the default of Tomcat
+     */
+    @Nullable
+    public Integer getBackgroundProcessorDelay() {
+        return tomcatOptions.getBackgroundProcessorDelay();
+    }
+
+    public void setBackgroundProcessorDelay(Integer backgroundProcessorDelay) {
+        tomcatOptions.setBackgroundProcessorDelay(backgroundProcessorDelay);
+    }
+
     public Map<String, String> getEnvOptions() {
         return tomcatOptions.getEnvOptions();
     }
@@ -286,6 +443,134 @@ public class TomcatRunConfiguration extends LocatableConfigurationBase<Locatable
         tomcatOptions.setExtraClassPath(extraClassPath);
     }
 
+    public Integer getLogMaxAgeDays() {
+        return tomcatOptions.getLogMaxAgeDays();
+    }
+
+    public void setLogMaxAgeDays(Integer logMaxAgeDays) {
+        tomcatOptions.setLogMaxAgeDays(logMaxAgeDays);
+    }
+
+    public Integer getLogMaxTotalSizeMb() {
+        return tomcatOptions.getLogMaxTotalSizeMb();
+    }
+
+    public void setLogMaxTotalSizeMb(Integer logMaxTotalSizeMb) {
+        tomcatOptions.setLogMaxTotalSizeMb(logMaxTotalSizeMb);
+    }
+
+    public boolean isAsyncLogging() {
+        return tomcatOptions.isAsyncLogging();
+    }
+
+    public void setAsyncLogging(boolean asyncLogging) {
+        tomcatOptions.setAsyncLogging(asyncLogging);
+    }
+
+    public Integer getAsyncLogQueueSize() {
+        return tomcatOptions.getAsyncLogQueueSize();
+    }
+
+    public void setAsyncLogQueueSize(Integer asyncLogQueueSize) {
+        tomcatOptions.setAsyncLogQueueSize(asyncLogQueueSize);
+    }
+
+    public AsyncLogOverflowPolicy getAsyncLogOverflowPolicy() {
+        return tomcatOptions.getAsyncLogOverflowPolicy();
+    }
+
+    public void setAsyncLogOverflowPolicy(AsyncLogOverflowPolicy asyncLogOverflowPolicy) {
+        tomcatOptions.setAsyncLogOverflowPolicy(asyncLogOverflowPolicy);
+    }
+
+    public boolean isConsoleOnlyLogging() {
+        return tomcatOptions.isConsoleOnlyLogging();
+    }
+
+    public void setConsoleOnlyLogging(boolean consoleOnlyLogging) {
+        tomcatOptions.setConsoleOnlyLogging(consoleOnlyLogging);
+    }
+
+    public boolean isJmxEnabled() {
+        return tomcatOptions.isJmxEnabled();
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        tomcatOptions.setJmxEnabled(jmxEnabled);
+    }
+
+    public Integer getMetricsInterval() {
+        return tomcatOptions.getMetricsInterval();
+    }
+
+    public void setMetricsInterval(Integer metricsInterval) {
+        tomcatOptions.setMetricsInterval(metricsInterval);
+    }
+
+    public boolean isRequestTiming() {
+        return tomcatOptions.isRequestTiming();
+    }
+
+    public void setRequestTiming(boolean requestTiming) {
+        tomcatOptions.setRequestTiming(requestTiming);
+    }
+
+    public boolean isProfileStartup() {
+        return tomcatOptions.isProfileStartup();
+    }
+
+    public void setProfileStartup(boolean profileStartup) {
+        tomcatOptions.setProfileStartup(profileStartup);
+    }
+
+    public boolean isGcLogging() {
+        return tomcatOptions.isGcLogging();
+    }
+
+    public void setGcLogging(boolean gcLogging) {
+        tomcatOptions.setGcLogging(gcLogging);
+    }
+
+    public boolean isHttp2() {
+        return tomcatOptions.isHttp2();
+    }
+
+    public void setHttp2(boolean http2) {
+        tomcatOptions.setHttp2(http2);
+    }
+
+    public TlsImplementation getTlsImplementation() {
+        return tomcatOptions.getTlsImplementation();
+    }
+
+    public void setTlsImplementation(TlsImplementation tlsImplementation) {
+        tomcatOptions.setTlsImplementation(tlsImplementation);
+    }
+
+    public Integer getSslSessionCacheSize() {
+        return tomcatOptions.getSslSessionCacheSize();
+    }
+
+    public void setSslSessionCacheSize(Integer sslSessionCacheSize) {
+        tomcatOptions.setSslSessionCacheSize(sslSessionCacheSize);
+    }
+
+    public Integer getSslSessionTimeout() {
+        return tomcatOptions.getSslSessionTimeout();
+    }
+
+    public void setSslSessionTimeout(Integer sslSessionTimeout) {
+        tomcatOptions.setSslSessionTimeout(sslSessionTimeout);
+    }
+
+    public boolean isHonorCipherOrder() {
+        return tomcatOptions.isHonorCipherOrder();
+    }
+
+    public void setHonorCipherOrder(boolean honorCipherOrder) {
+        tomcatOptions.setHonorCipherOrder(honorCipherOrder);
+    }
+
     @Override
     public RunConfiguration clone() {
         TomcatRunConfiguration clone = (TomcatRunConfiguration) super.clone();
@@ -304,10 +589,32 @@ public class TomcatRunConfiguration extends LocatableConfigurationBase<Locatable
         private Integer port = 8080;
         private Integer sslPort;
         private Integer adminPort = 8005;
+        private Integer instanceCount = 1;
+        private boolean nextFreePorts;
+        private List<String> additionalModules = new ArrayList<>();
+        // Off for the configurations saved before the option existed, new configurations turn it on
+        private boolean parallelAnnotationScanning;
+        private Integer backgroundProcessorDelay;
         private String vmOptions;
         private Map<String, String> envOptions;
         private Boolean passParentEnvs = true;
         private String extraClassPath;
+        private Integer logMaxAgeDays;
+        private Integer logMaxTotalSizeMb;
+        private boolean asyncLogging;
+        private Integer asyncLogQueueSize = DEFAULT_ASYNC_LOG_QUEUE_SIZE;
+        private AsyncLogOverflowPolicy asyncLogOverflowPolicy = AsyncLogOverflowPolicy.DROP_LAST;
+        private boolean consoleOnlyLogging;
+        private boolean jmxEnabled;
+        private Integer metricsInterval = DEFAULT_METRICS_INTERVAL;
+        private boolean requestTiming;
+        private boolean profileStartup;
+        private boolean gcLogging;
+        private boolean http2;
+        private TlsImplementation tlsImplementation = TlsImplementation.DEFAULT;
+        private Integer sslSessionCacheSize;
+        private Integer sslSessionTimeout;
+        private boolean honorCipherOrder;
 
         public TomcatInfo getTomcatInfo() {
             return tomcatInfo;
@@ -362,6 +669,22 @@ public class TomcatRunConfiguration extends LocatableConfigurationBase<Locatable
             this.adminPort = adminPort;
         }
 
+        public Integer getInstanceCount() {
+            return instanceCount;
+        }
+
+        public void setInstanceCount(Integer instanceCount) {
+            this.instanceCount = instanceCount;
+        }
+
+        public boolean isNextFreePorts() {
+            return nextFreePorts;
+        }
+
+        public void setNextFreePorts(boolean nextFreePorts) {
+            this.nextFreePorts = nextFreePorts;
+        }
+
         public String getVmOptions() {
             return vmOptions;
         }
@@ -370,6 +693,31 @@ public class TomcatRunConfiguration extends LocatableConfigurationBase<Locatable
             this.vmOptions = vmOptions;
         }
 
+        public List<String> getAdditionalModules() {
+            return additionalModules;
+        }
+
+        public void setAdditionalModules(List<String> additionalModules) {
+            this.additionalModules = additionalModules;
+        }
+
+        public boolean isParallelAnnotationScanning() {
+            return parallelAnnotationScanning;
+        }
+
+        public void setParallelAnnotationScanning(boolean parallelAnnotationScanning) {
+            this.parallelAnnotationScanning = parallelAnnotationScanning;
+        }
+
+        @Nullable
+        public Integer getBackgroundProcessorDelay() {
+            return backgroundProcessorDelay;
+        }
+
+        public void setBackgroundProcessorDelay(Integer backgroundProcessorDelay) {
+            this.backgroundProcessorDelay = backgroundProcessorDelay;
+        }
+
         public Map<String, String> getEnvOptions() {
             return envOptions;
         }
@@ -393,6 +741,134 @@ public class TomcatRunConfiguration extends LocatableConfigurationBase<Locatable
         public void setExtraClassPath(String extraClassPath) {
             this.extraClassPath = extraClassPath;
         }
+
+        public Integer getLogMaxAgeDays() {
+            return logMaxAgeDays;
+        }
+
+        public void setLogMaxAgeDays(Integer logMaxAgeDays) {
+            this.logMaxAgeDays = logMaxAgeDays;
+        }
+
+        public Integer getLogMaxTotalSizeMb() {
+            return logMaxTotalSizeMb;
+        }
+
+        public void setLogMaxTotalSizeMb(Integer logMaxTotalSizeMb) {
+            this.logMaxTotalSizeMb = logMaxTotalSizeMb;
+        }
+
+        public boolean isAsyncLogging() {
+            return asyncLogging;
+        }
+
+        public void setAsyncLogging(boolean asyncLogging) {
+            this.asyncLogging = asyncLogging;
+        }
+
+        public Integer getAsyncLogQueueSize() {
+            return asyncLogQueueSize;
+        }
+
+        public void setAsyncLogQueueSize(Integer asyncLogQueueSize) {
+            this.asyncLogQueueSize = asyncLogQueueSize;
+        }
+
+        public AsyncLogOverflowPolicy getAsyncLogOverflowPolicy() {
+            return asyncLogOverflowPolicy;
+        }
+
+        public void setAsyncLogOverflowPolicy(AsyncLogOverflowPolicy asyncLogOverflowPolicy) {
+            this.asyncLogOverflowPolicy = asyncLogOverflowPolicy;
+        }
+
+        public boolean isConsoleOnlyLogging() {
+            return consoleOnlyLogging;
+        }
+
+        public void setConsoleOnlyLogging(boolean consoleOnlyLogging) {
+            this.consoleOnlyLogging = consoleOnlyLogging;
+        }
+
+        public boolean isJmxEnabled() {
+            return jmxEnabled;
+        }
+
+        public void setJmxEnabled(boolean jmxEnabled) {
+            this.jmxEnabled = jmxEnabled;
+        }
+
+        public Integer getMetricsInterval() {
+            return metricsInterval;
+        }
+
+        public void setMetricsInterval(Integer metricsInterval) {
+            this.metricsInterval = metricsInterval;
+        }
+
+        public boolean isRequestTiming() {
+            return requestTiming;
+        }
+
+        public void setRequestTiming(boolean requestTiming) {
+            this.requestTiming = requestTiming;
+        }
+
+        public boolean isProfileStartup() {
+            return profileStartup;
+        }
+
+        public void setProfileStartup(boolean profileStartup) {
+            this.profileStartup = profileStartup;
+        }
+
+        public boolean isGcLogging() {
+            return gcLogging;
+        }
+
+        public void setGcLogging(boolean gcLogging) {
+            this.gcLogging = gcLogging;
+        }
+
+        public boolean isHttp2() {
+            return http2;
+        }
+
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+
+        public TlsImplementation getTlsImplementation() {
+            return tlsImplementation;
+        }
+
+        public void setTlsImplementation(TlsImplementation tlsImplementation) {
+            this.tlsImplementation = tlsImplementation;
+        }
+
+        public Integer getSslSessionCacheSize() {
+            return sslSessionCacheSize;
+        }
+
+        public void setSslSessionCacheSize(Integer sslSessionCacheSize) {
+            this.sslSessionCacheSize = sslSessionCacheSize;
+        }
+
+        public Integer getSslSessionTimeout() {
+            return sslSessionTimeout;
+        }
+
+        public void setSslSessionTimeout(Integer sslSessionTimeout) {
+            this.sslSessionTimeout = sslSessionTimeout;
+        }
+
+        public boolean isHonorCipherOrder() {
+            return honorCipherOrder;
+        }
+
+        public void setHonorCipherOrder(boolean honorCipherOrder) {
+            this.honorCipherOrder = honorCipherOrder;
+        }
     }
 
 }
@@ -11,6 +11,7 @@ import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.options.ConfigurationException;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.ui.ComboBox;
 import com.intellij.openapi.ui.TextComponentAccessor;
 import com.intellij.openapi.ui.TextFieldWithBrowseButton;
 import com.intellij.openapi.util.text.StringUtil;
@@ -39,6 +40,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.stream.Collectors;
 
 public class TomcatRunnerSettingsForm implements Disposable {
     private static final Function<String, List<String>> PATH_SEPARATOR_LINE_PARSER = text -> {
@@ -50,6 +52,11 @@ public class TomcatRunnerSettingsForm implements Disposable {
         return result;
     };
     private static final Function<List<String>, String> PATH_SEPARATOR_LINE_JOINER = strings -> StringUtil.join(strings, File.pathSeparator);
+    private static final Function<String, List<String>> COMMA_LINE_PARSER = text -> StringUtil.split(text, ",").stream()
+            .map(String::trim)
+            .filter(StringUtil::isNotEmpty)
+            .collect(Collectors.toList());
+    private static final Function<List<String>, String> COMMA_LINE_JOINER = strings -> StringUtil.join(strings, ",");
 
     private final Project project;
     private JPanel mainPanel;
@@ -60,11 +67,37 @@ public class TomcatRunnerSettingsForm implements Disposable {
     private final JPanel modulesComboBoxPanel = new JPanel(new GridBagLayout());
     private final ModulesComboBox modulesComboBox = new ModulesComboBox();
     private final JTextField contextPathField = new JTextField();
+    private final RawCommandLineEditor additionalModulesField = new RawCommandLineEditor(COMMA_LINE_PARSER, COMMA_LINE_JOINER);
     private final JPanel portFieldPanel = new JPanel(new GridBagLayout());
     private final JPanel adminPortFieldPanel = new JPanel(new GridBagLayout());
     private final JTextField portField = new JTextField();
     private final JTextField sslPortField = new JTextField();
+    private final JCheckBox nextFreePortsCheckBox = new JCheckBox("Next free ports");
     private final JTextField adminPort = new JTextField();
+    private final JTextField instanceCountField = new JTextField();
+    private final JPanel sslConnectorPanel = new JPanel(new GridBagLayout());
+    private final JCheckBox http2CheckBox = new JCheckBox("HTTP/2");
+    private final ComboBox<TlsImplementation> tlsImplementationComboBox = new ComboBox<>(TlsImplementation.values());
+    private final JTextField sslSessionCacheSizeField = new JTextField();
+    private final JTextField sslSessionTimeoutField = new JTextField();
+    private final JCheckBox honorCipherOrderCheckBox = new JCheckBox("Server cipher order");
+    private final JPanel deploymentPanel = new JPanel(new GridBagLayout());
+    private final JCheckBox parallelAnnotationScanningCheckBox = new JCheckBox("Parallel annotation scanning");
+    private final JTextField backgroundProcessorDelayField = new JTextField();
+    private final JPanel logRetentionPanel = new JPanel(new GridBagLayout());
+    private final JTextField logMaxAgeDaysField = new JTextField();
+    private final JTextField logMaxTotalSizeMbField = new JTextField();
+    private final JPanel loggingPanel = new JPanel(new GridBagLayout());
+    private final JCheckBox asyncLoggingCheckBox = new JCheckBox("Async file handlers");
+    private final JTextField asyncLogQueueSizeField = new JTextField();
+    private final ComboBox<AsyncLogOverflowPolicy> asyncLogOverflowComboBox = new ComboBox<>(AsyncLogOverflowPolicy.values());
+    private final JCheckBox consoleOnlyLoggingCheckBox = new JCheckBox("Console only");
+    private final JPanel monitoringPanel = new JPanel(new GridBagLayout());
+    private final JCheckBox jmxEnabledCheckBox = new JCheckBox("Enable local JMX metrics");
+    private final JTextField metricsIntervalField = new JTextField();
+    private final JCheckBox requestTimingCheckBox = new JCheckBox("Record request timings");
+    private final JCheckBox profileStartupCheckBox = new JCheckBox("Profile startup");
+    private final JCheckBox gcLoggingCheckBox = new JCheckBox("GC logging");
     private final RawCommandLineEditor vmOptions = new RawCommandLineEditor();
     private final EnvironmentVariablesTextFieldWithBrowseButton envOptions = new EnvironmentVariablesTextFieldWithBrowseButton();
     private final RawCommandLineEditor extraClassPath = new RawCommandLineEditor(PATH_SEPARATOR_LINE_PARSER, PATH_SEPARATOR_LINE_JOINER);
@@ -77,8 +110,17 @@ public class TomcatRunnerSettingsForm implements Disposable {
         createClasspathField();
         createPortField();
         createAdminPortField();
+        createSslConnectorField();
+        createDeploymentField();
+        createLogRetentionField();
+        createLoggingField();
+        createMonitoringField();
 
         extraClassPath.getEditorField().getEmptyText().setText("Use '" + File.pathSeparator + "' to separate paths");
+        additionalModulesField.getEditorField().getEmptyText().setText("Use ',' to separate the modules");
+        additionalModulesField.getEditorField().setToolTipText("Deploy other web modules in the same Tomcat,"
+                + " each as a context named after the module. Use 'module=doc base' to choose the doc base of a module,"
+                + " otherwise its first web root is deployed. The contexts are deployed in parallel");
 
         initCatalinaBaseDirectory();
         initDeploymentDirectory();
@@ -124,6 +166,12 @@ public class TomcatRunnerSettingsForm implements Disposable {
         c.gridx = 2;
         c.weightx = 1;
         portFieldPanel.add(sslPortField, c);
+
+        nextFreePortsCheckBox.setToolTipText("When a port is used by another process or run configuration,"
+                + " use the next free port instead of failing to launch");
+        c.gridx = 3;
+        c.weightx = 0;
+        portFieldPanel.add(nextFreePortsCheckBox, c);
     }
 
     private void createAdminPortField() {
@@ -136,6 +184,255 @@ public class TomcatRunnerSettingsForm implements Disposable {
         c.gridx = 0;
         c.weightx = 1;
         adminPortFieldPanel.add(adminPort, c);
+
+        JLabel instanceCountLabel = new JLabel("Instances:");
+        instanceCountLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        instanceCountLabel.setLabelFor(instanceCountField);
+        instanceCountField.setToolTipText("Launch several instances of the same application, e.g. to test a cluster."
+                + " The first instance uses the configured ports, the others get the next free ports after them,"
+                + " and the instance N uses the catalina base suffixed with -N");
+
+        c.gridx = 1;
+        c.weightx = 0;
+        c.ipadx = 10;
+        adminPortFieldPanel.add(instanceCountLabel, c);
+
+        c.gridx = 2;
+        c.weightx = 1;
+        adminPortFieldPanel.add(instanceCountField, c);
+    }
+
+    private void createSslConnectorField() {
+        JLabel tlsLabel = new JLabel("TLS:");
+        tlsLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        tlsLabel.setLabelFor(tlsImplementationComboBox);
+        JLabel cacheSizeLabel = new JLabel("Session cache size:");
+        cacheSizeLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        cacheSizeLabel.setLabelFor(sslSessionCacheSizeField);
+        JLabel timeoutLabel = new JLabel("Session timeout (s):");
+        timeoutLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        timeoutLabel.setLabelFor(sslSessionTimeoutField);
+
+        http2CheckBox.setToolTipText("Add the HTTP/2 UpgradeProtocol to the SSL connector (Tomcat 8.5+)");
+        honorCipherOrderCheckBox.setToolTipText("Prefer the cipher order of the server over the order of the client");
+        sslPortField.getDocument().addDocumentListener(new DocumentAdapter() {
+            @Override
+            protected void textChanged(@NotNull DocumentEvent e) {
+                updateSslConnectorFields();
+            }
+        });
+
+        GridBagConstraints c = new GridBagConstraints();
+
+        // default constraints
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.gridy = 0;
+
+        c.gridx = 0;
+        c.weightx = 0;
+        sslConnectorPanel.add(http2CheckBox, c);
+
+        c.gridx = 1;
+        c.ipadx = 10;
+        sslConnectorPanel.add(tlsLabel, c);
+
+        c.gridx = 2;
+        c.weightx = 1;
+        c.ipadx = 0;
+        sslConnectorPanel.add(tlsImplementationComboBox, c);
+
+        c.gridx = 3;
+        c.weightx = 0;
+        c.ipadx = 10;
+        sslConnectorPanel.add(cacheSizeLabel, c);
+
+        c.gridx = 4;
+        c.weightx = 1;
+        c.ipadx = 0;
+        sslConnectorPanel.add(sslSessionCacheSizeField, c);
+
+        c.gridx = 5;
+        c.weightx = 0;
+        c.ipadx = 10;
+        sslConnectorPanel.add(timeoutLabel, c);
+
+        c.gridx = 6;
+        c.weightx = 1;
+        c.ipadx = 0;
+        sslConnectorPanel.add(sslSessionTimeoutField, c);
+
+        c.gridx = 7;
+        c.weightx = 0;
+        sslConnectorPanel.add(honorCipherOrderCheckBox, c);
+    }
+
+    // The SSL connector is only kept when the SSL port is set
+    private void updateSslConnectorFields() {
+        boolean ssl = StringUtil.isNotEmpty(sslPortField.getText());
+        http2CheckBox.setEnabled(ssl);
+        tlsImplementationComboBox.setEnabled(ssl);
+        sslSessionCacheSizeField.setEnabled(ssl);
+        sslSessionTimeoutField.setEnabled(ssl);
+        honorCipherOrderCheckBox.setEnabled(ssl);
+    }
+
+    private void createDeploymentField() {
+        parallelAnnotationScanningCheckBox.setToolTipText("Scan the annotations of the classpath with a thread per core, Tomcat 9.0.30 or later."
+                + " Sets the utility threads of the server to a thread per core, unless server.xml sets them");
+        JLabel backgroundDelayLabel = new JLabel("Background delay (s):");
+        backgroundDelayLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        backgroundDelayLabel.setLabelFor(backgroundProcessorDelayField);
+        backgroundProcessorDelayField.setToolTipText("The delay between the background tasks of the host, e.g. the session expiration."
+                + " Empty for the default of Tomcat, 10 seconds");
+
+        GridBagConstraints c = new GridBagConstraints();
+
+        // default constraints
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.gridy = 0;
+
+        c.gridx = 0;
+        c.weightx = 0;
+        deploymentPanel.add(parallelAnnotationScanningCheckBox, c);
+
+        c.gridx = 1;
+        c.weightx = 0;
+        c.ipadx = 10;
+        deploymentPanel.add(backgroundDelayLabel, c);
+
+        c.gridx = 2;
+        c.weightx = 1;
+        c.ipadx = 0;
+        deploymentPanel.add(backgroundProcessorDelayField, c);
+    }
+
+    private void createLogRetentionField() {
+        JLabel maxAgeLabel = new JLabel("Max age (days):");
+        maxAgeLabel.setLabelFor(logMaxAgeDaysField);
+        JLabel maxSizeLabel = new JLabel("Max size (MB):");
+        maxSizeLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        maxSizeLabel.setLabelFor(logMaxTotalSizeMbField);
+
+        GridBagConstraints c = new GridBagConstraints();
+
+        // default constraints
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.gridy = 0;
+
+        c.gridx = 0;
+        c.weightx = 0;
+        c.ipadx = 10;
+        logRetentionPanel.add(maxAgeLabel, c);
+
+        c.gridx = 1;
+        c.weightx = 1;
+        c.ipadx = 0;
+        logRetentionPanel.add(logMaxAgeDaysField, c);
+
+        c.gridx = 2;
+        c.weightx = 0;
+        c.ipadx = 10;
+        logRetentionPanel.add(maxSizeLabel, c);
+
+        c.gridx = 3;
+        c.weightx = 1;
+        c.ipadx = 0;
+        logRetentionPanel.add(logMaxTotalSizeMbField, c);
+    }
+
+    private void createLoggingField() {
+        JLabel queueSizeLabel = new JLabel("Queue size:");
+        queueSizeLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        queueSizeLabel.setLabelFor(asyncLogQueueSizeField);
+        JLabel overflowLabel = new JLabel("On overflow:");
+        overflowLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        overflowLabel.setLabelFor(asyncLogOverflowComboBox);
+
+        asyncLoggingCheckBox.setToolTipText("Use org.apache.juli.AsyncFileHandler instead of the synchronous FileHandler");
+        consoleOnlyLoggingCheckBox.setToolTipText("Only log to the console, the Tomcat log files are not written");
+        asyncLoggingCheckBox.addItemListener(e -> updateLoggingFields());
+        consoleOnlyLoggingCheckBox.addItemListener(e -> updateLoggingFields());
+
+        GridBagConstraints c = new GridBagConstraints();
+
+        // default constraints
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.gridy = 0;
+
+        c.gridx = 0;
+        c.weightx = 0;
+        loggingPanel.add(asyncLoggingCheckBox, c);
+
+        c.gridx = 1;
+        c.ipadx = 10;
+        loggingPanel.add(queueSizeLabel, c);
+
+        c.gridx = 2;
+        c.weightx = 1;
+        c.ipadx = 0;
+        loggingPanel.add(asyncLogQueueSizeField, c);
+
+        c.gridx = 3;
+        c.weightx = 0;
+        c.ipadx = 10;
+        loggingPanel.add(overflowLabel, c);
+
+        c.gridx = 4;
+        c.weightx = 1;
+        c.ipadx = 0;
+        loggingPanel.add(asyncLogOverflowComboBox, c);
+
+        c.gridx = 5;
+        c.weightx = 0;
+        loggingPanel.add(consoleOnlyLoggingCheckBox, c);
+    }
+
+    private void updateLoggingFields() {
+        boolean async = asyncLoggingCheckBox.isSelected() && !consoleOnlyLoggingCheckBox.isSelected();
+        asyncLoggingCheckBox.setEnabled(!consoleOnlyLoggingCheckBox.isSelected());
+        asyncLogQueueSizeField.setEnabled(async);
+        asyncLogOverflowComboBox.setEnabled(async);
+    }
+
+    private void createMonitoringField() {
+        JLabel intervalLabel = new JLabel("Sample interval (s):");
+        intervalLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        intervalLabel.setLabelFor(metricsIntervalField);
+
+        jmxEnabledCheckBox.setToolTipText("Open a JMX port on localhost, and show the metrics in the Tomcat Metrics tool window");
+        jmxEnabledCheckBox.addItemListener(e -> metricsIntervalField.setEnabled(jmxEnabledCheckBox.isSelected()));
+
+        GridBagConstraints c = new GridBagConstraints();
+
+        // default constraints
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.gridy = 0;
+
+        c.gridx = 0;
+        c.weightx = 0;
+        monitoringPanel.add(jmxEnabledCheckBox, c);
+
+        c.gridx = 1;
+        c.ipadx = 10;
+        monitoringPanel.add(intervalLabel, c);
+
+        c.gridx = 2;
+        c.weightx = 1;
+        c.ipadx = 0;
+        monitoringPanel.add(metricsIntervalField, c);
+
+        requestTimingCheckBox.setToolTipText("Add a valve recording the latency of every request, shown in the Tomcat Metrics tool window (Tomcat 8+)");
+        c.gridx = 3;
+        c.weightx = 0;
+        monitoringPanel.add(requestTimingCheckBox, c);
+
+        profileStartupCheckBox.setToolTipText("Record the startup with Flight Recorder until Tomcat is started, and print the slowest startup phases");
+        c.gridx = 4;
+        monitoringPanel.add(profileStartupCheckBox, c);
+
+        gcLoggingCheckBox.setToolTipText("Log the garbage collections to catalina.base/logs, and show the pauses in the Tomcat Metrics tool window (Java 9+)");
+        c.gridx = 5;
+        monitoringPanel.add(gcLoggingCheckBox, c);
     }
 
     private void initCatalinaBaseDirectory() {
@@ -168,11 +465,17 @@ public class TomcatRunnerSettingsForm implements Disposable {
                 .addLabeledComponent("Deployment directory:", docBaseField)
                 .addLabeledComponent("Use classpath of module:", modulesComboBoxPanel)
                 .addLabeledComponent("Context path:", contextPathField)
+                .addLabeledComponent("Additional modules:", additionalModulesField)
+                .addLabeledComponent("Deployment:", deploymentPanel)
                 .addLabeledComponent("Server port:", portFieldPanel)
                 .addLabeledComponent("Admin port:", adminPortFieldPanel)
+                .addLabeledComponent("SSL connector:", sslConnectorPanel)
                 .addLabeledComponent("VM options:", vmOptions)
                 .addLabeledComponent("Environment variables:", envOptions)
                 .addLabeledComponent("Extra JVM classpath:", extraClassPath)
+                .addLabeledComponent("Log retention:", logRetentionPanel)
+                .addLabeledComponent("Logging:", loggingPanel)
+                .addLabeledComponent("Monitoring:", monitoringPanel)
                 .addComponentFillVertically(new JPanel(), 0);
 
         mainPanel = builder.getPanel();
@@ -195,15 +498,39 @@ public class TomcatRunnerSettingsForm implements Disposable {
         docBaseField.setText(configuration.getDocBase());
         modulesComboBox.setSelectedModule(configuration.getModule());
         contextPathField.setText(configuration.getContextPath());
+        additionalModulesField.setText(COMMA_LINE_JOINER.fun(configuration.getAdditionalModules()));
+        parallelAnnotationScanningCheckBox.setSelected(configuration.isParallelAnnotationScanning());
+        backgroundProcessorDelayField.setText(configuration.getBackgroundProcessorDelay() != null ? String.valueOf(configuration.getBackgroundProcessorDelay()) : "");
         portField.setText(String.valueOf(configuration.getPort()));
         sslPortField.setText(configuration.getSslPort() != null ? String.valueOf(configuration.getSslPort()) : "");
         adminPort.setText(String.valueOf(configuration.getAdminPort()));
+        instanceCountField.setText(String.valueOf(configuration.getInstanceCount()));
+        nextFreePortsCheckBox.setSelected(configuration.isNextFreePorts());
+        http2CheckBox.setSelected(configuration.isHttp2());
+        tlsImplementationComboBox.setSelectedItem(configuration.getTlsImplementation());
+        sslSessionCacheSizeField.setText(configuration.getSslSessionCacheSize() != null ? String.valueOf(configuration.getSslSessionCacheSize()) : "");
+        sslSessionTimeoutField.setText(configuration.getSslSessionTimeout() != null ? String.valueOf(configuration.getSslSessionTimeout()) : "");
+        honorCipherOrderCheckBox.setSelected(configuration.isHonorCipherOrder());
+        updateSslConnectorFields();
         vmOptions.setText(configuration.getVmOptions());
         if (configuration.getEnvOptions() != null) {
             envOptions.setEnvs(configuration.getEnvOptions());
         }
         envOptions.setPassParentEnvs(configuration.isPassParentEnvs());
         extraClassPath.setText(configuration.getExtraClassPath());
+        logMaxAgeDaysField.setText(configuration.getLogMaxAgeDays() != null ? String.valueOf(configuration.getLogMaxAgeDays()) : "");
+        logMaxTotalSizeMbField.setText(configuration.getLogMaxTotalSizeMb() != null ? String.valueOf(configuration.getLogMaxTotalSizeMb()) : "");
+        asyncLoggingCheckBox.setSelected(configuration.isAsyncLogging());
+        asyncLogQueueSizeField.setText(String.valueOf(configuration.getAsyncLogQueueSize()));
+        asyncLogOverflowComboBox.setSelectedItem(configuration.getAsyncLogOverflowPolicy());
+        consoleOnlyLoggingCheckBox.setSelected(configuration.isConsoleOnlyLogging());
+        updateLoggingFields();
+        jmxEnabledCheckBox.setSelected(configuration.isJmxEnabled());
+        metricsIntervalField.setText(String.valueOf(configuration.getMetricsInterval()));
+        metricsIntervalField.setEnabled(configuration.isJmxEnabled());
+        requestTimingCheckBox.setSelected(configuration.isRequestTiming());
+        profileStartupCheckBox.setSelected(configuration.isProfileStartup());
+        gcLoggingCheckBox.setSelected(configuration.isGcLogging());
     }
 
     public void applyTo(TomcatRunConfiguration configuration) throws ConfigurationException {
@@ -213,13 +540,38 @@ public class TomcatRunnerSettingsForm implements Disposable {
             configuration.setDocBase(docBaseField.getText());
             configuration.setModule(modulesComboBox.getSelectedModule());
             configuration.setContextPath(contextPathField.getText());
+            configuration.setAdditionalModules(new ArrayList<>(COMMA_LINE_PARSER.fun(additionalModulesField.getText())));
+            configuration.setParallelAnnotationScanning(parallelAnnotationScanningCheckBox.isSelected());
+            configuration.setBackgroundProcessorDelay(PluginUtils.parseOptionalPositiveInt(backgroundProcessorDelayField.getText(), "Background delay"));
             configuration.setPort(PluginUtils.parsePort(portField.getText()));
             configuration.setSslPort(StringUtil.isNotEmpty(sslPortField.getText()) ? PluginUtils.parsePort(sslPortField.getText()) : null);
             configuration.setAdminPort(PluginUtils.parsePort(adminPort.getText()));
+            configuration.setInstanceCount(PluginUtils.parseOptionalPositiveInt(instanceCountField.getText(), "Instances"));
+            configuration.setNextFreePorts(nextFreePortsCheckBox.isSelected());
+            configuration.setHttp2(http2CheckBox.isSelected());
+            configuration.setTlsImplementation((TlsImplementation) tlsImplementationComboBox.getSelectedItem());
+            configuration.setSslSessionCacheSize(PluginUtils.parseOptionalPositiveInt(sslSessionCacheSizeField.getText(), "Session cache size"));
+            configuration.setSslSessionTimeout(PluginUtils.parseOptionalPositiveInt(sslSessionTimeoutField.getText(), "Session timeout"));
+            configuration.setHonorCipherOrder(honorCipherOrderCheckBox.isSelected());
             configuration.setVmOptions(vmOptions.getText());
             configuration.setEnvOptions(envOptions.getEnvs());
             configuration.setPassParentEnvironmentVariables(envOptions.isPassParentEnvs());
             configuration.setExtraClassPath(extraClassPath.getText());
+            configuration.setLogMaxAgeDays(PluginUtils.parseOptionalPositiveInt(logMaxAgeDaysField.getText(), "Log max age"));
+            configuration.setLogMaxTotalSizeMb(PluginUtils.parseOptionalPositiveInt(logMaxTotalSizeMbField.getText(), "Log max size"));
+            configuration.setAsyncLogging(asyncLoggingCheckBox.isSelected());
+            Integer asyncLogQueueSize = PluginUtils.parseOptionalPositiveInt(asyncLogQueueSizeField.getText(), "Log queue size");
+            configuration.setAsyncLogQueueSize(asyncLogQueueSize != null ? asyncLogQueueSize
+                    : TomcatRunConfiguration.DEFAULT_ASYNC_LOG_QUEUE_SIZE);
+            configuration.setAsyncLogOverflowPolicy((AsyncLogOverflowPolicy) asyncLogOverflowComboBox.getSelectedItem());
+            configuration.setConsoleOnlyLogging(consoleOnlyLoggingCheckBox.isSelected());
+            configuration.setJmxEnabled(jmxEnabledCheckBox.isSelected());
+            Integer metricsInterval = PluginUtils.parseOptionalPositiveInt(metricsIntervalField.getText(), "Sample interval");
+            configuration.setMetricsInterval(metricsInterval != null ? metricsInterval
+                    : TomcatRunConfiguration.DEFAULT_METRICS_INTERVAL);
+            configuration.setRequestTiming(requestTimingCheckBox.isSelected());
+            configuration.setProfileStartup(profileStartupCheckBox.isSelected());
+            configuration.setGcLogging(gcLoggingCheckBox.isSelected());
         } catch (Exception e) {
             throw new ConfigurationException(e.getMessage());
         }
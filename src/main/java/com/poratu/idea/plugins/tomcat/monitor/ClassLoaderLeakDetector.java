@@ -0,0 +1,188 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the web applications which leak their class loader when their context is reloaded.
+ * <p>
+ * The warnings printed by Tomcat while a context is stopped are kept as the suspects of the leaks.
+ * Some time after every reload, a GC is forced and {@code StandardHost.findReloadedContextMemoryLeaks}
+ * is called through the management channel.
+ */
+public class ClassLoaderLeakDetector {
+    public static final int WARNING_THRESHOLD = 3;
+    private static final Logger LOG = Logger.getInstance(ClassLoaderLeakDetector.class);
+
+    // Reloading Context with name [/app] is completed
+    private static final Pattern RELOAD_COMPLETED = Pattern.compile("Reloading Context with name \\[(.*?)] is completed");
+    // The web application [app] appears to have started a thread named [Timer-0] but has failed to stop it...
+    // The web application [app] created a ThreadLocal with key of type [...] (value [...]) and a value of type [...]...
+    // The web application [app] registered the JDBC driver [org.h2.Driver] but failed to unregister it...
+    private static final Pattern LEAK_SUSPECT = Pattern.compile("The web application \\[(.*?)] (appears to have started a (?:Timer)?[Tt]hread named \\[.+?]"
+            + "|created a ThreadLocal with key of type \\[.+?]|registered the JDBC driver \\[.+?])");
+    private static final String HOST_PATTERN = "*:type=Host,*";
+    private static final String MEMORY_MXBEAN = "java.lang:type=Memory";
+
+    // Give the old class loader the time to be released by the request threads
+    private static final long CHECK_DELAY_SECONDS = 10;
+    private static final int MAX_SUSPECTS_PER_APPLICATION = 20;
+
+    private final TomcatJmxConnection connection;
+    private final Map<String, Set<String>> suspects = new LinkedHashMap<>();
+    private volatile Map<String, Integer> leakedClassLoaders = Collections.emptyMap();
+    private volatile Consumer<String> output = text -> {
+    };
+    private boolean warned;
+
+    /**
+     * @param connection the management channel, or {@code null} if Tomcat was launched without it, then
+     *                   only the suspects are collected
+     */
+    ClassLoaderLeakDetector(@Nullable TomcatJmxConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * @param output receives the reports and the warnings, e.g. the console
+     */
+    public void setOutput(@NotNull Consumer<String> output) {
+        this.output = output;
+    }
+
+    /**
+     * Parses the text printed by Tomcat. The text may contain several lines.
+     */
+    public void accept(@NotNull String text) {
+        // Most of the output is not about the contexts, don't split it
+        if (!text.contains("The web application [") && !text.contains("Reloading Context")) {
+            return;
+        }
+
+        for (String line : StringUtil.splitByLines(text)) {
+            Matcher matcher = LEAK_SUSPECT.matcher(line);
+            if (matcher.find()) {
+                addSuspect(matcher.group(1), matcher.group(2));
+                continue;
+            }
+
+            matcher = RELOAD_COMPLETED.matcher(line);
+            if (matcher.find() && connection != null) {
+                AppExecutorUtil.getAppScheduledExecutorService().schedule(this::checkQuietly, CHECK_DELAY_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private synchronized void addSuspect(String application, String suspect) {
+        Set<String> applicationSuspects = suspects.computeIfAbsent(application, k -> new LinkedHashSet<>());
+        if (applicationSuspects.size() < MAX_SUSPECTS_PER_APPLICATION) {
+            applicationSuspects.add(suspect);
+        }
+    }
+
+    private void checkQuietly() {
+        try {
+            check();
+        } catch (IOException e) {
+            // Tomcat is stopping
+            LOG.debug("Failed to check the class loader leaks", e);
+        } catch (JMException | RuntimeException e) {
+            LOG.warn("Failed to check the class loader leaks", e);
+        }
+    }
+
+    /**
+     * Force a GC, and find the contexts whose previous class loaders are still reachable.
+     * Can take a while, don't call it on the EDT.
+     */
+    public void check() throws IOException, JMException {
+        if (connection == null) {
+            return;
+        }
+
+        MBeanServerConnection server = connection.getConnection();
+        server.invoke(new ObjectName(MEMORY_MXBEAN), "gc", null, null);
+
+        Map<String, Integer> leaks = new TreeMap<>();
+        for (ObjectName host : server.queryNames(new ObjectName(HOST_PATTERN), null)) {
+            String[] contexts = (String[]) server.invoke(host, "findReloadedContextMemoryLeaks", null, null);
+            if (contexts != null) {
+                for (String context : contexts) {
+                    leaks.merge(context, 1, Integer::sum);
+                }
+            }
+        }
+        leakedClassLoaders = Collections.unmodifiableMap(leaks);
+
+        if (!leaks.isEmpty()) {
+            output.accept(render());
+        }
+        if (getLeakedClassLoaderCount() >= WARNING_THRESHOLD && !warned) {
+            warned = true;
+            output.accept(getLeakedClassLoaderCount() + " class loaders were leaked by the reloads,"
+                    + " Metaspace will keep growing: fix the suspects, or restart Tomcat before it runs out of memory\n");
+        }
+    }
+
+    /**
+     * @return the number of class loaders of reloaded contexts which are still reachable, at the last check
+     */
+    public int getLeakedClassLoaderCount() {
+        int count = 0;
+        for (int leaks : leakedClassLoaders.values()) {
+            count += leaks;
+        }
+        return count;
+    }
+
+    public synchronized String render() {
+        StringBuilder sb = new StringBuilder("Class loader leaks after reload:\n");
+        for (Map.Entry<String, Integer> entry : leakedClassLoaders.entrySet()) {
+            String context = entry.getKey();
+            sb.append("  ").append(context).append(": ").append(entry.getValue()).append(" leaked class loader(s)\n");
+
+            List<String> contextSuspects = findSuspects(context);
+            if (contextSuspects.isEmpty()) {
+                sb.append("      No suspect was reported by Tomcat, look for static references from the JDK or a shared library\n");
+            }
+            for (String suspect : contextSuspects) {
+                sb.append("      ").append(suspect).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    // The leaks are reported with the context name, e.g. /app, and the warnings with the application name, e.g. app or ROOT
+    private List<String> findSuspects(String context) {
+        String name = StringUtil.trimStart(context, "/");
+        Set<String> result = new LinkedHashSet<>();
+        for (String application : new String[]{context, name, StringUtil.defaultIfEmpty(name, "ROOT")}) {
+            Set<String> applicationSuspects = suspects.get(application);
+            if (applicationSuspects != null) {
+                result.addAll(applicationSuspects);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+}
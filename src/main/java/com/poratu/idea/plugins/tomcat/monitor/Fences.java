@@ -0,0 +1,46 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * The load fence ordering the reads of the ring file of the {@code RequestTimingValve}, which orders its writes with
+ * store fences. {@code VarHandle.acquireFence} on Java 9+, {@code Unsafe.loadFence} on Java 8.
+ */
+final class Fences {
+    private static final MethodHandle LOAD_FENCE = findLoadFence();
+
+    private Fences() {
+    }
+
+    static void loadFence() {
+        if (LOAD_FENCE != null) {
+            try {
+                LOAD_FENCE.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static MethodHandle findLoadFence() {
+        MethodType type = MethodType.methodType(void.class);
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName("java.lang.invoke.VarHandle"), "acquireFence", type);
+        } catch (ReflectiveOperationException e) {
+            // Java 8
+        }
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup().findVirtual(unsafeClass, "loadFence", type).bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Left to the ordering of the processor
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,349 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.execution.configurations.ParametersList;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Follows the unified GC log of a running Tomcat (Java 9+), and computes the pause time percentiles,
+ * the allocation rate and the trend of the heap occupancy after the collections.
+ * <p>
+ * The log is read incrementally, and the memory used doesn't depend on its length. The collectors log their pauses
+ * and heap transitions in slightly different ways, only the common parts are parsed:
+ * <pre>
+ * [1.234s][info][gc] Using G1
+ * [1.234s][info][gc] GC(3) Pause Young (Normal) (G1 Evacuation Pause) 24M-&gt;4M(256M) 3.456ms
+ * [1.234s][info][gc,phases] GC(0) Pause Mark Start 0.010ms
+ * [1.234s][info][gc] GC(0) Garbage Collection (Warmup) 52M(5%)-&gt;16M(2%)
+ * </pre>
+ */
+public class GcLogAnalyzer {
+    private static final String DECORATIONS = "uptime,level,tags";
+    private static final String ROTATION = "filecount=5,filesize=20m";
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("'gc-'HHmmss'.'yyyy-MM-dd'.log'");
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // [1.234s][info][gc,phases   ] message
+    private static final Pattern LINE = Pattern.compile("^\\[(\\d+[.,]\\d+)s]\\[\\w+\\s*]\\[([\\w,]+)\\s*] (.*)$");
+    private static final Pattern COLLECTOR = Pattern.compile("^Using (.+)$");
+    private static final Pattern GC_ID = Pattern.compile("^GC\\((\\d+)\\) (?:\\w+: )?(.*)$");
+    private static final Pattern PAUSE = Pattern.compile("^(Pause [^(\\d]+).*? (\\d+[.,]\\d+)ms$");
+    // 24M->4M(256M), 52M(5%)->16M(2%)
+    private static final Pattern HEAP_TRANSITION = Pattern.compile("(\\d+)([BKMG])(?:\\(\\d+%\\))?->(\\d+)([BKMG])(?:\\(\\d+%\\))?(?:\\((\\d+)([BKMG])\\))?");
+
+    private final Path file;
+    private long position;
+    private final StringBuilder partialLine = new StringBuilder();
+
+    private String collector = "Unknown";
+    private double uptimeSeconds;
+    private final LatencyHistogram pauses = new LatencyHistogram();
+    private final Map<String, Long> pauseCounts = new TreeMap<>();
+    private long totalPauseMicros;
+
+    private long collections;
+    private long currentGcId = -1;
+    private double currentGcUptime;
+    private long currentHeapAfter = -1;
+    private long previousHeapAfter;
+    private long allocatedBytes;
+    private double lastCollectionUptime;
+    private long heapCapacity;
+    private final HeapTrend heapTrend = new HeapTrend();
+
+    public GcLogAnalyzer(@NotNull Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @param logsDir catalina.base/logs, created if needed since the JVM opens the log before Tomcat creates it
+     * @return a new log file for the run, its name is picked up by the retention of the Tomcat logs
+     */
+    public static Path createLogFile(@NotNull Path logsDir) throws IOException {
+        Files.createDirectories(logsDir);
+        return logsDir.resolve(LocalDateTime.now().format(FILE_NAME_FORMAT));
+    }
+
+    /**
+     * Log the collections into the file, with rotation
+     *
+     * @param logFile the log file in catalina.base/logs, catalina.base being the working directory of Tomcat
+     */
+    public static void addVmParameters(@NotNull ParametersList vmParams, @NotNull Path logFile) {
+        // The path is relative to the working directory: the options are separated by colons, and so are the Windows drives
+        String relativePath = logFile.getParent().getFileName() + "/" + logFile.getFileName();
+        vmParams.add("-Xlog:gc*:file=" + relativePath + ":" + DECORATIONS + ":" + ROTATION);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Parse the lines appended since the last call
+     *
+     * @return the number of lines parsed
+     */
+    public synchronized int update() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        int lines = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < position) {
+                // The JVM rotated the log, the end of the previous file is lost
+                position = 0;
+                partialLine.setLength(0);
+            }
+
+            channel.position(position);
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            int read;
+            while ((read = channel.read(buffer)) > 0) {
+                position += read;
+                buffer.flip();
+                String text = StandardCharsets.UTF_8.decode(buffer).toString();
+                buffer.clear();
+
+                int start = 0;
+                int end;
+                while ((end = text.indexOf('\n', start)) >= 0) {
+                    partialLine.append(text, start, end);
+                    parseLine(partialLine.toString().trim());
+                    partialLine.setLength(0);
+                    lines++;
+                    start = end + 1;
+                }
+                partialLine.append(text, start, text.length());
+            }
+        }
+        return lines;
+    }
+
+    private void parseLine(String line) {
+        Matcher matcher = LINE.matcher(line);
+        if (!matcher.matches()) {
+            return;
+        }
+
+        double uptime = parseDecimal(matcher.group(1));
+        String tags = matcher.group(2);
+        String message = matcher.group(3);
+        uptimeSeconds = Math.max(uptimeSeconds, uptime);
+        if (!tags.startsWith("gc")) {
+            return;
+        }
+
+        Matcher collectorMatcher = COLLECTOR.matcher(message);
+        if (collectorMatcher.matches()) {
+            collector = collectorMatcher.group(1);
+            return;
+        }
+
+        Matcher gcIdMatcher = GC_ID.matcher(message);
+        if (!gcIdMatcher.matches()) {
+            return;
+        }
+        long gcId = Long.parseLong(gcIdMatcher.group(1));
+        String event = gcIdMatcher.group(2);
+
+        Matcher pauseMatcher = PAUSE.matcher(event);
+        if (pauseMatcher.matches()) {
+            long micros = Math.round(parseDecimal(pauseMatcher.group(2)) * 1000);
+            pauses.record(micros);
+            totalPauseMicros += micros;
+            pauseCounts.merge(pauseMatcher.group(1).trim(), 1L, Long::sum);
+        }
+
+        // The other tags also log transitions, e.g. of the regions or of the metaspace
+        if (tags.equals("gc")) {
+            Matcher heapMatcher = HEAP_TRANSITION.matcher(event);
+            if (heapMatcher.find()) {
+                heapTransition(gcId, uptime, toBytes(heapMatcher.group(1), heapMatcher.group(2)),
+                        toBytes(heapMatcher.group(3), heapMatcher.group(4)));
+                if (heapMatcher.group(5) != null) {
+                    heapCapacity = toBytes(heapMatcher.group(5), heapMatcher.group(6));
+                }
+            }
+        }
+    }
+
+    // Some collectors log several transitions per collection, the heap before the first one and after the last one are kept
+    private void heapTransition(long gcId, double uptime, long before, long after) {
+        if (gcId != currentGcId) {
+            completeCollection();
+            currentGcId = gcId;
+            currentGcUptime = uptime;
+            allocatedBytes += Math.max(0, before - previousHeapAfter);
+            lastCollectionUptime = uptime;
+            collections++;
+        }
+        currentHeapAfter = after;
+    }
+
+    private void completeCollection() {
+        if (currentHeapAfter >= 0) {
+            heapTrend.add(currentGcUptime, currentHeapAfter);
+            previousHeapAfter = currentHeapAfter;
+        }
+    }
+
+    private static double parseDecimal(String text) {
+        // The decimal separator of the uptime depends on the locale of the JVM
+        return Double.parseDouble(text.replace(',', '.'));
+    }
+
+    private static long toBytes(String value, String unit) {
+        long bytes = Long.parseLong(value);
+        switch (unit) {
+            case "G":
+                return bytes * 1024 * 1024 * 1024;
+            case "M":
+                return bytes * 1024 * 1024;
+            case "K":
+                return bytes * 1024;
+            default:
+                return bytes;
+        }
+    }
+
+    public synchronized String getCollector() {
+        return collector;
+    }
+
+    /**
+     * @return the allocation rate in MB/s since the JVM started, estimated from the heap before and after the collections
+     */
+    public synchronized double getAllocationRate() {
+        return lastCollectionUptime == 0 ? 0 : allocatedBytes / lastCollectionUptime / (1024 * 1024);
+    }
+
+    /**
+     * @return the percentage of the time spent in pauses
+     */
+    public synchronized double getPausedPercent() {
+        return uptimeSeconds == 0 ? 0 : totalPauseMicros / 1e4 / uptimeSeconds;
+    }
+
+    private HeapTrend getHeapTrend() {
+        HeapTrend trend = heapTrend.copy();
+        if (currentHeapAfter >= 0) {
+            trend.add(currentGcUptime, currentHeapAfter);
+        }
+        return trend;
+    }
+
+    public synchronized String render() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Collector:         %s%n", collector));
+        sb.append(String.format("Uptime:            %.1f s%n", uptimeSeconds));
+        sb.append(String.format("Collections:       %d%n", collections));
+        sb.append(String.format("Allocation rate:   %.1f MB/s%n", getAllocationRate()));
+        sb.append(String.format("Paused:            %.2f%% of the time, %.1f ms in total%n", getPausedPercent(), totalPauseMicros / 1000.0));
+
+        if (pauses.getCount() > 0) {
+            sb.append(String.format("Pauses:            %d%n", pauses.getCount()));
+            sb.append(String.format("  p50              %.2f ms%n", pauses.getPercentile(50) / 1000.0));
+            sb.append(String.format("  p90              %.2f ms%n", pauses.getPercentile(90) / 1000.0));
+            sb.append(String.format("  p99              %.2f ms%n", pauses.getPercentile(99) / 1000.0));
+            sb.append(String.format("  max              %.2f ms%n", pauses.getMax() / 1000.0));
+            for (Map.Entry<String, Long> entry : pauseCounts.entrySet()) {
+                sb.append(String.format("  %-32s %d%n", entry.getKey(), entry.getValue()));
+            }
+        }
+
+        HeapTrend trend = getHeapTrend();
+        if (trend.count > 0) {
+            sb.append(String.format("Heap after GC:     last %.1f MB, min %.1f MB, max %.1f MB%s%n",
+                    toMegabytes(trend.last), toMegabytes(trend.min), toMegabytes(trend.max),
+                    heapCapacity == 0 ? "" : String.format(", capacity %.1f MB", toMegabytes(heapCapacity))));
+            if (trend.count > 2) {
+                sb.append(String.format("  trend            %+.2f MB/min%n", toMegabytes(trend.getSlope() * 60)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return a line of the table comparing the runs, see {@link #renderComparisonHeader()}
+     */
+    public synchronized String renderComparisonRow(@NotNull String name) {
+        HeapTrend trend = getHeapTrend();
+        return String.format("%-20s %-28s %7d %9.2f %9.2f %9.2f %8.2f %10.1f %10.1f %10s%n",
+                truncate(name, 20), truncate(collector, 28), pauses.getCount(),
+                pauses.getPercentile(50) / 1000.0, pauses.getPercentile(99) / 1000.0, pauses.getMax() / 1000.0,
+                getPausedPercent(), getAllocationRate(), toMegabytes(trend.last),
+                trend.count > 2 ? String.format("%+.2f", toMegabytes(trend.getSlope() * 60)) : "-");
+    }
+
+    public static String renderComparisonHeader() {
+        return String.format("%-20s %-28s %7s %9s %9s %9s %8s %10s %10s %10s%n",
+                "Run", "Collector", "Pauses", "p50 ms", "p99 ms", "max ms", "Paused %", "Alloc MB/s", "Heap MB", "MB/min");
+    }
+
+    private static String truncate(String text, int length) {
+        return text.length() <= length ? text : text.substring(0, length);
+    }
+
+    private static double toMegabytes(double bytes) {
+        return bytes / (1024 * 1024);
+    }
+
+    /**
+     * The least-squares slope of the heap after GC over the uptime, in bytes per second
+     */
+    private static class HeapTrend {
+        private long count;
+        private double sumX;
+        private double sumY;
+        private double sumXY;
+        private double sumXX;
+        private long last;
+        private long min = Long.MAX_VALUE;
+        private long max;
+
+        void add(double uptime, long heapAfter) {
+            count++;
+            sumX += uptime;
+            sumY += heapAfter;
+            sumXY += uptime * heapAfter;
+            sumXX += uptime * uptime;
+            last = heapAfter;
+            min = Math.min(min, heapAfter);
+            max = Math.max(max, heapAfter);
+        }
+
+        double getSlope() {
+            double denominator = count * sumXX - sumX * sumX;
+            return denominator == 0 ? 0 : (count * sumXY - sumX * sumY) / denominator;
+        }
+
+        HeapTrend copy() {
+            HeapTrend copy = new HeapTrend();
+            copy.count = count;
+            copy.sumX = sumX;
+            copy.sumY = sumY;
+            copy.sumXY = sumXY;
+            copy.sumXX = sumXX;
+            copy.last = last;
+            copy.min = min;
+            copy.max = max;
+            return copy;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.components.JBScrollPane;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Shows the analysis of the GC log of a running Tomcat, and compares it with the last terminated runs,
+ * e.g. to compare the collectors on the same application.
+ */
+public class GcLogPanel extends MonitoredTomcatPanel {
+
+    private final JTextArea analysisArea = new JTextArea();
+
+    public GcLogPanel(@NotNull Project project) {
+        super(project);
+
+        analysisArea.setEditable(false);
+        analysisArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, analysisArea.getFont().getSize()));
+
+        add(new JBScrollPane(analysisArea), BorderLayout.CENTER);
+        init();
+    }
+
+    @Override
+    protected boolean accepts(@NotNull MonitoredTomcat instance) {
+        return instance.getGcLog() != null;
+    }
+
+    @Override
+    protected void refresh(@Nullable MonitoredTomcat instance) {
+        StringBuilder sb = new StringBuilder();
+        GcLogAnalyzer gcLog = instance == null ? null : instance.getGcLog();
+        if (gcLog != null) {
+            sb.append(gcLog.render()).append('\n');
+        } else {
+            sb.append("No running Tomcat with GC logging, enable it in the run configuration\n\n");
+        }
+
+        List<TomcatMonitorService.FinishedRun> history = TomcatMonitorService.getInstance(project).getGcLogHistory();
+        if (gcLog != null || !history.isEmpty()) {
+            sb.append(GcLogAnalyzer.renderComparisonHeader());
+            if (gcLog != null) {
+                sb.append(gcLog.renderComparisonRow(instance.getName() + " (running)"));
+            }
+            for (TomcatMonitorService.FinishedRun run : history) {
+                sb.append(run.getGcLog().renderComparisonRow(run.getName()));
+            }
+        }
+
+        int caretPosition = analysisArea.getCaretPosition();
+        analysisArea.setText(sb.toString());
+        analysisArea.setCaretPosition(Math.min(caretPosition, analysisArea.getDocument().getLength()));
+    }
+
+}
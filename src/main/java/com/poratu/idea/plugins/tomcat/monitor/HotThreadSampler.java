@@ -0,0 +1,276 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes lightweight thread dumps of a running Tomcat through its {@code ThreadMXBean}: no locked monitors nor
+ * synchronizers, and only the top of the stacks.
+ * <p>
+ * The sampling is rate limited: the delay between two samples grows with the time a sample takes, so that the dumps
+ * never take more than {@link #MAX_OVERHEAD} of the time of the JVM, whatever the number of threads.
+ */
+public class HotThreadSampler {
+    private static final Logger LOG = Logger.getInstance(HotThreadSampler.class);
+
+    private static final double MAX_OVERHEAD = 0.02;
+    private static final int MAX_DEPTH = 24;
+    private static final int TOP_THREADS = 15;
+    private static final int GROUP_FRAMES = 8;
+    // http-nio-8080-exec-1, https-jsse-nio-8443-exec-1, ajp-nio-8009-exec-1
+    private static final String REQUEST_THREAD_MARKER = "-exec-";
+    private static final String[] IDLE_FRAMES = {
+            "org.apache.tomcat.util.threads.TaskQueue.take",
+            "org.apache.tomcat.util.threads.TaskQueue.poll"
+    };
+
+    private final TomcatJmxConnection connection;
+    private final long intervalMillis;
+    private final Runnable onUpdate;
+    private final Map<Long, Long> previousCpuTimes = new HashMap<>();
+    private long previousSampleTime;
+    private ScheduledFuture<?> future;
+    private volatile Snapshot snapshot;
+
+    public HotThreadSampler(@NotNull TomcatJmxConnection connection, int intervalSeconds, @NotNull Runnable onUpdate) {
+        this.connection = connection;
+        this.intervalMillis = TimeUnit.SECONDS.toMillis(intervalSeconds);
+        this.onUpdate = onUpdate;
+    }
+
+    public synchronized void start() {
+        if (future == null) {
+            schedule(0);
+        }
+    }
+
+    public synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * @return the last sample, or {@code null} if none was taken yet
+     */
+    @Nullable
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        future = AppExecutorUtil.getAppScheduledExecutorService().schedule(this::sampleAndReschedule, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void sampleAndReschedule() {
+        long delayMillis = intervalMillis;
+        try {
+            snapshot = sample();
+            delayMillis = snapshot.nextDelayMillis;
+            onUpdate.run();
+        } catch (IOException e) {
+            // Tomcat is not started yet, or it is stopping
+            connection.close();
+        } catch (RuntimeException e) {
+            // The calls of the proxy wrap the IOExceptions
+            if (e.getCause() instanceof IOException) {
+                connection.close();
+            }
+            LOG.debug("Failed to sample the threads", e);
+        }
+
+        synchronized (this) {
+            if (future != null) {
+                schedule(delayMillis);
+            }
+        }
+    }
+
+    // The dumps must not take more than MAX_OVERHEAD of the time, the connection to the JVM is not counted
+    private long getDelayMillis(long sampleMillis) {
+        return Math.max(intervalMillis, (long) (sampleMillis / MAX_OVERHEAD) - sampleMillis);
+    }
+
+    private Snapshot sample() throws IOException {
+        com.sun.management.ThreadMXBean threads = ManagementFactory.newPlatformMXBeanProxy(connection.getConnection(),
+                ManagementFactory.THREAD_MXBEAN_NAME, com.sun.management.ThreadMXBean.class);
+
+        long start = System.nanoTime();
+        long[] ids = threads.getAllThreadIds();
+        long[] cpuTimes = threads.getThreadCpuTime(ids);
+        ThreadInfo[] infos = threads.getThreadInfo(ids, MAX_DEPTH);
+        long now = System.nanoTime();
+        long sampleMillis = TimeUnit.NANOSECONDS.toMillis(now - start);
+
+        long elapsedNanos = previousSampleTime == 0 ? 0 : now - previousSampleTime;
+        // The first dump also loads the classes of the remote JVM, it is not representative
+        long nextDelayMillis = previousSampleTime == 0 ? intervalMillis : getDelayMillis(sampleMillis);
+        List<HotThread> hotThreads = new ArrayList<>();
+        Map<String, StackGroup> groups = new LinkedHashMap<>();
+        Map<Long, Long> cpuTimesById = new HashMap<>();
+        int requestThreads = 0;
+        int busyRequestThreads = 0;
+
+        for (int i = 0; i < ids.length; i++) {
+            ThreadInfo info = infos[i];
+            if (info == null) {
+                // The thread died between the calls
+                continue;
+            }
+
+            Long previousCpuTime = previousCpuTimes.get(ids[i]);
+            long cpuDelta = previousCpuTime == null || cpuTimes[i] < 0 ? 0 : cpuTimes[i] - previousCpuTime;
+            cpuTimesById.put(ids[i], cpuTimes[i]);
+            hotThreads.add(new HotThread(info, cpuDelta));
+
+            if (info.getThreadName().contains(REQUEST_THREAD_MARKER)) {
+                requestThreads++;
+                if (!isIdle(info)) {
+                    busyRequestThreads++;
+                    String key = groupKey(info);
+                    groups.computeIfAbsent(key, k -> new StackGroup(info)).add(info);
+                }
+            }
+        }
+
+        previousCpuTimes.clear();
+        previousCpuTimes.putAll(cpuTimesById);
+        previousSampleTime = now;
+
+        hotThreads.sort((a, b) -> Long.compare(b.cpuNanos, a.cpuNanos));
+        List<StackGroup> sortedGroups = new ArrayList<>(groups.values());
+        sortedGroups.sort((a, b) -> Integer.compare(b.threadNames.size(), a.threadNames.size()));
+
+        return new Snapshot(hotThreads.subList(0, Math.min(TOP_THREADS, hotThreads.size())), sortedGroups,
+                requestThreads, busyRequestThreads, elapsedNanos, sampleMillis, nextDelayMillis);
+    }
+
+    private static boolean isIdle(ThreadInfo info) {
+        for (StackTraceElement frame : info.getStackTrace()) {
+            String method = frame.getClassName() + "." + frame.getMethodName();
+            for (String idleFrame : IDLE_FRAMES) {
+                if (method.equals(idleFrame)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String groupKey(ThreadInfo info) {
+        StringBuilder sb = new StringBuilder(info.getThreadState().name());
+        StackTraceElement[] frames = info.getStackTrace();
+        for (int i = 0; i < Math.min(GROUP_FRAMES, frames.length); i++) {
+            sb.append('\n').append(frames[i]);
+        }
+        return sb.toString();
+    }
+
+    private static String describeState(ThreadInfo info) {
+        StringBuilder sb = new StringBuilder(info.getThreadState().name());
+        if (info.getLockName() != null) {
+            sb.append(" on ").append(info.getLockName());
+        }
+        if (info.getLockOwnerName() != null) {
+            sb.append(" owned by ").append(info.getLockOwnerName());
+        }
+        return sb.toString();
+    }
+
+    private static class HotThread {
+        private final String name;
+        private final String state;
+        private final long cpuNanos;
+
+        HotThread(ThreadInfo info, long cpuNanos) {
+            this.name = info.getThreadName();
+            this.state = describeState(info);
+            this.cpuNanos = cpuNanos;
+        }
+    }
+
+    private static class StackGroup {
+        private final String state;
+        private final StackTraceElement[] frames;
+        private final List<String> threadNames = new ArrayList<>();
+
+        StackGroup(ThreadInfo info) {
+            this.state = describeState(info);
+            StackTraceElement[] stackTrace = info.getStackTrace();
+            this.frames = Arrays.copyOf(stackTrace, Math.min(GROUP_FRAMES, stackTrace.length));
+        }
+
+        void add(ThreadInfo info) {
+            threadNames.add(info.getThreadName());
+        }
+    }
+
+    public static class Snapshot {
+        private final List<HotThread> hotThreads;
+        private final List<StackGroup> groups;
+        private final int requestThreads;
+        private final int busyRequestThreads;
+        private final long elapsedNanos;
+        private final long sampleMillis;
+        private final long nextDelayMillis;
+
+        Snapshot(List<HotThread> hotThreads, List<StackGroup> groups, int requestThreads, int busyRequestThreads,
+                 long elapsedNanos, long sampleMillis, long nextDelayMillis) {
+            this.hotThreads = hotThreads;
+            this.groups = groups;
+            this.requestThreads = requestThreads;
+            this.busyRequestThreads = busyRequestThreads;
+            this.elapsedNanos = elapsedNanos;
+            this.sampleMillis = sampleMillis;
+            this.nextDelayMillis = nextDelayMillis;
+        }
+
+        public int getRequestThreads() {
+            return requestThreads;
+        }
+
+        public int getBusyRequestThreads() {
+            return busyRequestThreads;
+        }
+
+        public String render() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Request threads: %d busy / %d  (dump took %d ms, next in %.1f s)%n%n",
+                    busyRequestThreads, requestThreads, sampleMillis, nextDelayMillis / 1000.0));
+
+            sb.append("Hot threads, CPU since the previous sample:\n");
+            for (HotThread thread : hotThreads) {
+                double percent = elapsedNanos == 0 ? 0 : thread.cpuNanos * 100.0 / elapsedNanos;
+                sb.append(String.format("  %5.1f%%  %8.1f ms  %-40s %s%n", percent, thread.cpuNanos / 1e6, thread.name, thread.state));
+            }
+
+            sb.append("\nBusy request threads, grouped by stack:\n");
+            if (groups.isEmpty()) {
+                sb.append("  None\n");
+            }
+            for (StackGroup group : groups) {
+                sb.append(String.format("  %d thread(s) %s%n", group.threadNames.size(), group.state));
+                for (StackTraceElement frame : group.frames) {
+                    sb.append("      at ").append(frame).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+}
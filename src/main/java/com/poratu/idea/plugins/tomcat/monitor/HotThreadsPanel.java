@@ -0,0 +1,124 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.util.ui.FormBuilder;
+import com.poratu.idea.plugins.tomcat.utils.PluginUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Samples the threads of a running Tomcat periodically, and shows the hottest ones and the stacks of the busy
+ * request threads.
+ */
+public class HotThreadsPanel extends MonitoredTomcatPanel {
+    private static final int DEFAULT_INTERVAL_SECONDS = 2;
+
+    private final JBTextField intervalField = new JBTextField(String.valueOf(DEFAULT_INTERVAL_SECONDS));
+    private final JButton startButton = new JButton("Start");
+    private final JButton stopButton = new JButton("Stop");
+    private final JTextArea resultArea = new JTextArea();
+
+    private HotThreadSampler sampler;
+    private MonitoredTomcat sampledInstance;
+
+    public HotThreadsPanel(@NotNull Project project) {
+        super(project);
+
+        intervalField.setToolTipText("The minimum interval, it is increased when the dumps take too long");
+        resultArea.setEditable(false);
+        resultArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, resultArea.getFont().getSize()));
+
+        startButton.addActionListener(e -> start());
+        stopButton.addActionListener(e -> stop());
+        stopButton.setEnabled(false);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttons.add(startButton);
+        buttons.add(stopButton);
+
+        JPanel form = FormBuilder.createFormBuilder()
+                .addLabeledComponent("Interval (seconds):", intervalField)
+                .addComponent(buttons)
+                .getPanel();
+
+        JPanel center = new JPanel(new BorderLayout());
+        center.add(form, BorderLayout.NORTH);
+        center.add(new JBScrollPane(resultArea), BorderLayout.CENTER);
+        add(center, BorderLayout.CENTER);
+        init();
+    }
+
+    @Override
+    protected boolean accepts(@NotNull MonitoredTomcat instance) {
+        return instance.getConnection() != null;
+    }
+
+    @Override
+    protected void refresh(@Nullable MonitoredTomcat instance) {
+        if (sampler != null && instance != sampledInstance) {
+            stop();
+        }
+        startButton.setEnabled(instance != null && sampler == null);
+    }
+
+    private void start() {
+        MonitoredTomcat instance = getSelectedInstance();
+        if (instance == null || instance.getConnection() == null) {
+            return;
+        }
+
+        Integer interval;
+        try {
+            interval = PluginUtils.parseOptionalPositiveInt(intervalField.getText(), "Interval");
+        } catch (ConfigurationException e) {
+            resultArea.setText(e.getMessage());
+            return;
+        }
+
+        HotThreadSampler newSampler = new HotThreadSampler(instance.getConnection(),
+                interval == null ? DEFAULT_INTERVAL_SECONDS : interval, () -> showSnapshot(instance));
+        sampler = newSampler;
+        sampledInstance = instance;
+        resultArea.setText("");
+        startButton.setEnabled(false);
+        stopButton.setEnabled(true);
+        newSampler.start();
+    }
+
+    private void stop() {
+        if (sampler != null) {
+            sampler.stop();
+            sampler = null;
+            sampledInstance = null;
+        }
+        stopButton.setEnabled(false);
+        startButton.setEnabled(getSelectedInstance() != null);
+    }
+
+    // Called on the thread of the sampler
+    private void showSnapshot(MonitoredTomcat instance) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (sampler != null && instance == sampledInstance) {
+                HotThreadSampler.Snapshot snapshot = sampler.getSnapshot();
+                if (snapshot != null) {
+                    resultArea.setText(snapshot.render());
+                }
+            }
+        }, project.getDisposed());
+    }
+
+    @Override
+    public void dispose() {
+        if (sampler != null) {
+            sampler.stop();
+        }
+    }
+
+}
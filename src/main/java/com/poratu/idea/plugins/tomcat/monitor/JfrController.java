@@ -0,0 +1,108 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.execution.configurations.ParametersList;
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Controls the Flight Recorder of a running Tomcat, through the {@code DiagnosticCommand} MBean of the management channel.
+ */
+public class JfrController {
+    public static final String RECORDING_NAME = "SmartTomcat";
+    private static final String SETTINGS_RESOURCE = "/jfr/smarttomcat.jfc";
+    private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+    private static final String MAX_SIZE = "256m";
+    // The default depth of 64 frames loses the Tomcat frames below the deep stacks of the frameworks
+    private static final int STACK_DEPTH = 256;
+
+    private final TomcatJmxConnection connection;
+    private final Path settingsFile;
+
+    public JfrController(@NotNull TomcatJmxConnection connection, @NotNull Path settingsFile) {
+        this.connection = connection;
+        this.settingsFile = settingsFile;
+    }
+
+    /**
+     * Copy the settings of the recording out of the plugin, so that the Tomcat JVM can read them
+     */
+    public static Path installSettings(@NotNull Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path settingsFile = dir.resolve("smarttomcat.jfc");
+        try (InputStream in = JfrController.class.getResourceAsStream(SETTINGS_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Cannot find " + SETTINGS_RESOURCE + " in the plugin");
+            }
+            Files.copy(in, settingsFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return settingsFile;
+    }
+
+    /**
+     * Start the recording with the JVM
+     */
+    public static void addVmParameters(@NotNull ParametersList vmParams, @NotNull Path settingsFile) {
+        vmParams.add("-XX:FlightRecorderOptions=stackdepth=" + STACK_DEPTH);
+        vmParams.add("-XX:StartFlightRecording=name=" + RECORDING_NAME + ",settings=" + settingsFile
+                + ",disk=true,maxsize=" + MAX_SIZE);
+    }
+
+    public String start() throws IOException, JMException {
+        return execute("jfrStart", "name=" + RECORDING_NAME, "settings=" + quote(settingsFile.toString()),
+                "disk=true", "maxsize=" + MAX_SIZE);
+    }
+
+    public String stop() throws IOException, JMException {
+        return execute("jfrStop", "name=" + RECORDING_NAME);
+    }
+
+    /**
+     * Stop the recording, and save what was recorded since the recording was started
+     */
+    public Path stop(@NotNull Path file) throws IOException, JMException {
+        execute("jfrStop", "name=" + RECORDING_NAME, "filename=" + quote(file.toString()));
+        return file;
+    }
+
+    /**
+     * @return a new file next to the settings
+     */
+    Path createRecordingFile(@NotNull String prefix) {
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        return settingsFile.resolveSibling(prefix + "-" + timestamp + ".jfr");
+    }
+
+    /**
+     * Dump the recording next to the settings, without stopping it
+     *
+     * @return the dumped file
+     */
+    public Path dump() throws IOException, JMException {
+        return dump(createRecordingFile("smarttomcat"));
+    }
+
+    public Path dump(@NotNull Path file) throws IOException, JMException {
+        execute("jfrDump", "name=" + RECORDING_NAME, "filename=" + quote(file.toString()));
+        return file;
+    }
+
+    private String execute(String operation, String... arguments) throws IOException, JMException {
+        Object result = connection.getConnection().invoke(new ObjectName(DIAGNOSTIC_COMMAND), operation,
+                new Object[]{arguments}, new String[]{String[].class.getName()});
+        return result == null ? "" : result.toString().trim();
+    }
+
+    private static String quote(String value) {
+        return value.indexOf(' ') >= 0 ? '"' + value + '"' : value;
+    }
+
+}
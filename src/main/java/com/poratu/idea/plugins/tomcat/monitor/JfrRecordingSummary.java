@@ -0,0 +1,100 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summarizes a Flight Recorder file: hottest methods, allocation sites, lock contention and GC pauses.
+ */
+public class JfrRecordingSummary {
+    private static final int TOP = 15;
+
+    private final Map<String, Long> executionSamples = new HashMap<>();
+    private final Map<String, Long> allocatedBytes = new HashMap<>();
+    private final Map<String, Long> contentionNanos = new HashMap<>();
+    private final LatencyHistogram gcPauses = new LatencyHistogram();
+    private long totalSamples;
+
+    /**
+     * Read a recording, it may be large, so don't call it on the EDT
+     */
+    public static JfrRecordingSummary read(@NotNull Path file) throws IOException {
+        JfrRecordingSummary summary = new JfrRecordingSummary();
+        JfrReflection jfr = JfrReflection.getInstance();
+
+        Object recordingFile = jfr.open(file);
+        try {
+            while (jfr.hasMoreEvents(recordingFile)) {
+                summary.accept(jfr, jfr.readEvent(recordingFile));
+            }
+        } finally {
+            jfr.close(recordingFile);
+        }
+        return summary;
+    }
+
+    private void accept(JfrReflection jfr, Object event) throws IOException {
+        switch (jfr.getEventName(event)) {
+            case "jdk.ExecutionSample":
+                totalSamples++;
+                executionSamples.merge(jfr.getTopFrame(event), 1L, Long::sum);
+                break;
+            case "jdk.ObjectAllocationSample":
+                allocatedBytes.merge(jfr.getTopFrame(event), jfr.getLong(event, "weight"), Long::sum);
+                break;
+            case "jdk.ObjectAllocationOutsideTLAB":
+                allocatedBytes.merge(jfr.getTopFrame(event), jfr.getLong(event, "allocationSize"), Long::sum);
+                break;
+            case "jdk.JavaMonitorEnter":
+            case "jdk.ThreadPark":
+                contentionNanos.merge(jfr.getTopFrame(event), jfr.getDuration(event).toNanos(), Long::sum);
+                break;
+            case "jdk.GCPhasePause":
+                gcPauses.record(jfr.getDuration(event).toNanos() / 1000);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public String render() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("Hottest methods (").append(totalSamples).append(" samples):\n");
+        for (Map.Entry<String, Long> entry : top(executionSamples)) {
+            sb.append(String.format("  %5.1f%%  %s%n", entry.getValue() * 100.0 / Math.max(1, totalSamples), entry.getKey()));
+        }
+
+        sb.append("\nAllocation sites:\n");
+        for (Map.Entry<String, Long> entry : top(allocatedBytes)) {
+            sb.append(String.format("  %10.1f MB  %s%n", entry.getValue() / (1024.0 * 1024.0), entry.getKey()));
+        }
+
+        sb.append("\nLock contention and parking:\n");
+        for (Map.Entry<String, Long> entry : top(contentionNanos)) {
+            sb.append(String.format("  %10.1f ms  %s%n", entry.getValue() / 1e6, entry.getKey()));
+        }
+
+        sb.append("\nGC pauses: ").append(gcPauses.getCount());
+        if (gcPauses.getCount() > 0) {
+            sb.append(String.format(", mean %.2f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms", gcPauses.getMean() / 1000,
+                    gcPauses.getPercentile(50) / 1000.0, gcPauses.getPercentile(99) / 1000.0, gcPauses.getMax() / 1000.0));
+        }
+        sb.append('\n');
+
+        return sb.toString();
+    }
+
+    private static List<Map.Entry<String, Long>> top(Map<String, Long> values) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(values.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return entries.subList(0, Math.min(TOP, entries.size()));
+    }
+
+}
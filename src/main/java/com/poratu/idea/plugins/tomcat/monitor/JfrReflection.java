@@ -0,0 +1,164 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The few methods of {@code jdk.jfr.consumer} used by the summaries of the recordings.
+ * <p>
+ * The plugin is compiled for Java 8, which has no {@code jdk.jfr.consumer} API, so the API of the IDE runtime
+ * is called by reflection.
+ */
+class JfrReflection {
+    static final String NO_STACK_TRACE = "<no stack trace>";
+
+    private static JfrReflection instance;
+
+    private final Class<?> recordingFileClass;
+    private final Method hasMoreEvents;
+    private final Method readEvent;
+    private final Method close;
+    private final Method getEventType;
+    private final Method getTypeName;
+    private final Method getStackTrace;
+    private final Method getFrames;
+    private final Method getMethod;
+    private final Method getMethodType;
+    private final Method getMethodName;
+    private final Method getClassName;
+    private final Method getDuration;
+    private final Method hasField;
+    private final Method getLong;
+
+    private JfrReflection() throws ReflectiveOperationException {
+        recordingFileClass = Class.forName("jdk.jfr.consumer.RecordingFile");
+        Class<?> eventClass = Class.forName("jdk.jfr.consumer.RecordedEvent");
+        Class<?> objectClass = Class.forName("jdk.jfr.consumer.RecordedObject");
+        Class<?> stackTraceClass = Class.forName("jdk.jfr.consumer.RecordedStackTrace");
+        Class<?> frameClass = Class.forName("jdk.jfr.consumer.RecordedFrame");
+        Class<?> methodClass = Class.forName("jdk.jfr.consumer.RecordedMethod");
+        Class<?> classClass = Class.forName("jdk.jfr.consumer.RecordedClass");
+
+        hasMoreEvents = recordingFileClass.getMethod("hasMoreEvents");
+        readEvent = recordingFileClass.getMethod("readEvent");
+        close = recordingFileClass.getMethod("close");
+        getEventType = eventClass.getMethod("getEventType");
+        getTypeName = Class.forName("jdk.jfr.EventType").getMethod("getName");
+        getStackTrace = eventClass.getMethod("getStackTrace");
+        getFrames = stackTraceClass.getMethod("getFrames");
+        getMethod = frameClass.getMethod("getMethod");
+        getMethodType = methodClass.getMethod("getType");
+        getMethodName = methodClass.getMethod("getName");
+        getClassName = classClass.getMethod("getName");
+        getDuration = eventClass.getMethod("getDuration");
+        hasField = objectClass.getMethod("hasField", String.class);
+        getLong = objectClass.getMethod("getLong", String.class);
+    }
+
+    static synchronized JfrReflection getInstance() throws IOException {
+        if (instance == null) {
+            try {
+                instance = new JfrReflection();
+            } catch (ReflectiveOperationException e) {
+                throw new IOException("Flight Recorder files can't be read with the runtime of the IDE", e);
+            }
+        }
+        return instance;
+    }
+
+    Object open(Path file) throws IOException {
+        try {
+            return recordingFileClass.getConstructor(Path.class).newInstance(file);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    boolean hasMoreEvents(Object recordingFile) throws IOException {
+        return (Boolean) invoke(hasMoreEvents, recordingFile);
+    }
+
+    Object readEvent(Object recordingFile) throws IOException {
+        return invoke(readEvent, recordingFile);
+    }
+
+    void close(Object recordingFile) throws IOException {
+        invoke(close, recordingFile);
+    }
+
+    String getEventName(Object event) throws IOException {
+        return (String) invoke(getTypeName, invoke(getEventType, event));
+    }
+
+    Duration getDuration(Object event) throws IOException {
+        return (Duration) invoke(getDuration, event);
+    }
+
+    long getLong(Object event, String field) throws IOException {
+        if (!(Boolean) invoke(hasField, event, field)) {
+            return 0;
+        }
+        return (Long) invoke(getLong, event, field);
+    }
+
+    /**
+     * @return the method on top of the stack trace of the event, e.g. {@code java.lang.String.indexOf}
+     */
+    String getTopFrame(Object event) throws IOException {
+        Object stackTrace = invoke(getStackTrace, event);
+        if (stackTrace == null) {
+            return NO_STACK_TRACE;
+        }
+
+        List<?> frames = (List<?>) invoke(getFrames, stackTrace);
+        if (frames.isEmpty()) {
+            return NO_STACK_TRACE;
+        }
+
+        return getFrameMethod(frames.get(0));
+    }
+
+    /**
+     * @return the methods of the stack trace of the event, the top of the stack first
+     */
+    List<String> getFrames(Object event) throws IOException {
+        Object stackTrace = invoke(getStackTrace, event);
+        if (stackTrace == null) {
+            return Collections.emptyList();
+        }
+
+        List<?> frames = (List<?>) invoke(getFrames, stackTrace);
+        List<String> result = new ArrayList<>(frames.size());
+        for (Object frame : frames) {
+            result.add(getFrameMethod(frame));
+        }
+        return result;
+    }
+
+    private String getFrameMethod(Object frame) throws IOException {
+        Object method = invoke(getMethod, frame);
+        return invoke(getClassName, invoke(getMethodType, method)) + "." + invoke(getMethodName, method);
+    }
+
+    @Nullable
+    private static Object invoke(Method method, Object target, Object... args) throws IOException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-memory histogram of latencies in microseconds.
+ * <p>
+ * The buckets grow exponentially by 5%, so the percentiles are accurate within 5% from 1 microsecond to more than 15 minutes,
+ * with the same few kilobytes of memory whatever the number of values.
+ */
+public class LatencyHistogram {
+    private static final double GROWTH = 1.05;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    private static final int BUCKETS = 448;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long max;
+    private long sum;
+
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * @param percentile e.g. 99.9
+     * @return the upper bound of the bucket containing the percentile, never more than the max value
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100 * totalCount);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value <= 1) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 1 + (int) (Math.log(value) / LOG_GROWTH));
+    }
+
+    private static long upperBoundOf(int index) {
+        return index == 0 ? 1 : (long) Math.ceil(Math.pow(GROWTH, index));
+    }
+}
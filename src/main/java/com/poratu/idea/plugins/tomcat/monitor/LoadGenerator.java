@@ -0,0 +1,230 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A small closed-loop load generator: a fixed number of workers send GET requests to a list of URLs,
+ * optionally paced to a total request rate, for a fixed duration.
+ * <p>
+ * Every worker reuses its read buffer and its keep-alive connections, and records the latencies in its own
+ * {@link LatencyHistogram}, so the memory used doesn't depend on the number of requests.
+ * When the rate is limited, the latency is measured from the time the request was scheduled, so a slow server
+ * can't hide its queueing delay by slowing down the generator.
+ */
+public class LoadGenerator {
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final List<URL> urls;
+    private final int concurrency;
+    private final Integer requestsPerSecond;
+    private final long durationNanos;
+
+    private final List<Worker> workers = new ArrayList<>();
+    private final AtomicInteger nextUrl = new AtomicInteger();
+    private final AtomicLong nextSendTime = new AtomicLong();
+    private ExecutorService executor;
+    private volatile boolean stopped;
+    private long startTime;
+    private volatile long endTime;
+
+    /**
+     * @param requestsPerSecond the total request rate, or {@code null} to send the requests as fast as possible
+     */
+    public LoadGenerator(@NotNull List<URL> urls, int concurrency, @Nullable Integer requestsPerSecond, int durationSeconds) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("No URL to load");
+        }
+        this.urls = new ArrayList<>(urls);
+        this.concurrency = concurrency;
+        this.requestsPerSecond = requestsPerSecond;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            throw new IllegalStateException("The load generator is already started");
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "SmartTomcat Load Generator " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        startTime = System.nanoTime();
+        nextSendTime.set(startTime);
+        AtomicInteger running = new AtomicInteger(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker();
+            workers.add(worker);
+            executor.execute(() -> {
+                try {
+                    worker.run();
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        endTime = System.nanoTime();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isRunning() {
+        return executor != null && endTime == 0;
+    }
+
+    /**
+     * @return the results so far, can be called while the load is running
+     */
+    public synchronized Result getResult() {
+        Result result = new Result();
+        for (Worker worker : workers) {
+            worker.addTo(result);
+        }
+        long end = endTime == 0 ? System.nanoTime() : endTime;
+        result.elapsedNanos = executor == null ? 0 : end - startTime;
+        return result;
+    }
+
+    private class Worker {
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long errors;
+        private long bytes;
+        // Only accessed by the thread of the worker
+        private long responseBytes;
+
+        void run() {
+            long deadline = startTime + durationNanos;
+            while (!stopped) {
+                long scheduledTime = requestsPerSecond == null ? System.nanoTime() : nextSendTime();
+                if (scheduledTime - deadline >= 0 || !waitUntil(scheduledTime)) {
+                    break;
+                }
+
+                URL url = urls.get(Math.floorMod(nextUrl.getAndIncrement(), urls.size()));
+                boolean success = send(url);
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledTime);
+                synchronized (this) {
+                    histogram.record(micros);
+                    bytes += responseBytes;
+                    if (!success) {
+                        errors++;
+                    }
+                }
+            }
+        }
+
+        // Claim the next slot of the schedule
+        private long nextSendTime() {
+            return nextSendTime.getAndAdd(TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        }
+
+        /**
+         * @return {@code false} if the generator was stopped in the meantime
+         */
+        private boolean waitUntil(long time) {
+            long delay;
+            while (!stopped && (delay = time - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            return !stopped;
+        }
+
+        private boolean send(URL url) {
+            HttpURLConnection connection = null;
+            responseBytes = 0;
+            try {
+                connection = (HttpURLConnection) url.openConnection();
+                connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+                connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+                connection.setUseCaches(false);
+
+                int status = connection.getResponseCode();
+                InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+                // The body must be read entirely for the connection to be kept alive
+                if (in != null) {
+                    try {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            responseBytes += read;
+                        }
+                    } finally {
+                        in.close();
+                    }
+                }
+                return status < 400;
+            } catch (IOException e) {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+                return false;
+            }
+        }
+
+        synchronized void addTo(Result result) {
+            result.histogram.add(histogram);
+            result.errors += errors;
+            result.bytes += bytes;
+        }
+    }
+
+    public static class Result {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long errors;
+        private long bytes;
+        private long elapsedNanos;
+
+        public long getRequests() {
+            return histogram.getCount();
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : histogram.getCount() * 1e9 / elapsedNanos;
+        }
+
+        public String render() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Elapsed:     %.1f s%n", elapsedNanos / 1e9));
+            sb.append(String.format("Requests:    %d (%d errors)%n", getRequests(), errors));
+            sb.append(String.format("Throughput:  %.1f requests/s, %.2f MB/s%n", getThroughput(),
+                    elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos / (1024 * 1024)));
+            if (histogram.getCount() > 0) {
+                sb.append(String.format("Latency:     mean %.2f ms%n", histogram.getMean() / 1000));
+                sb.append(String.format("  p50       %.2f ms%n", histogram.getPercentile(50) / 1000.0));
+                sb.append(String.format("  p90       %.2f ms%n", histogram.getPercentile(90) / 1000.0));
+                sb.append(String.format("  p99       %.2f ms%n", histogram.getPercentile(99) / 1000.0));
+                sb.append(String.format("  p99.9     %.2f ms%n", histogram.getPercentile(99.9) / 1000.0));
+                sb.append(String.format("  max       %.2f ms%n", histogram.getMax() / 1000.0));
+            }
+            return sb.toString();
+        }
+    }
+
+}
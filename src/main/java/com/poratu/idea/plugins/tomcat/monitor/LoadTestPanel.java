@@ -0,0 +1,197 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.ui.CollectionComboBoxModel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextArea;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.util.ui.FormBuilder;
+import com.poratu.idea.plugins.tomcat.utils.PluginUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends load to the context deployed by a running Tomcat, and shows the throughput and the latency percentiles.
+ */
+public class LoadTestPanel extends MonitoredTomcatPanel {
+    private static final int REFRESH_MILLIS = 1000;
+    private static final int MAX_CONCURRENCY = 256;
+
+    private final CollectionComboBoxModel<String> baseUrlModel = new CollectionComboBoxModel<>();
+    private final JBTextArea pathsArea = new JBTextArea("/", 3, 40);
+    private final JBTextField concurrencyField = new JBTextField("4");
+    private final JBTextField rateField = new JBTextField();
+    private final JBTextField durationField = new JBTextField("30");
+    private final JButton startButton = new JButton("Start");
+    private final JButton stopButton = new JButton("Stop");
+    private final JTextArea resultArea = new JTextArea();
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> showResult());
+
+    private LoadGenerator generator;
+
+    public LoadTestPanel(@NotNull Project project) {
+        super(project);
+
+        rateField.getEmptyText().setText("Unlimited");
+        pathsArea.setToolTipText("One path per line, relative to the base URL, the paths are requested in turn");
+        resultArea.setEditable(false);
+        resultArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, resultArea.getFont().getSize()));
+
+        startButton.addActionListener(e -> start());
+        stopButton.addActionListener(e -> stop());
+        stopButton.setEnabled(false);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttons.add(startButton);
+        buttons.add(stopButton);
+
+        JPanel form = FormBuilder.createFormBuilder()
+                .addLabeledComponent("Base URL:", new ComboBox<>(baseUrlModel))
+                .addLabeledComponent("Paths:", new JBScrollPane(pathsArea))
+                .addLabeledComponent("Concurrency:", concurrencyField)
+                .addLabeledComponent("Requests per second:", rateField)
+                .addLabeledComponent("Duration (seconds):", durationField)
+                .addComponent(buttons)
+                .getPanel();
+
+        JPanel center = new JPanel(new BorderLayout());
+        center.add(form, BorderLayout.NORTH);
+        center.add(new JBScrollPane(resultArea), BorderLayout.CENTER);
+        add(center, BorderLayout.CENTER);
+        init();
+    }
+
+    @Override
+    protected boolean accepts(@NotNull MonitoredTomcat instance) {
+        return !getHttpUrls(instance).isEmpty();
+    }
+
+    @Override
+    protected void refresh(@Nullable MonitoredTomcat instance) {
+        List<String> urls = instance == null ? new ArrayList<>() : getHttpUrls(instance);
+        if (!urls.equals(baseUrlModel.getItems())) {
+            baseUrlModel.replaceAll(urls);
+            baseUrlModel.setSelectedItem(urls.isEmpty() ? null : urls.get(0));
+        }
+        startButton.setEnabled(instance != null && !isRunning());
+    }
+
+    /**
+     * The HTTPS connector usually has a self-signed development certificate which fails every request of the
+     * generator, so only the plain HTTP URLs are offered.
+     */
+    private static List<String> getHttpUrls(@NotNull MonitoredTomcat instance) {
+        List<String> urls = new ArrayList<>();
+        for (String url : instance.getServerUrls()) {
+            if (StringUtil.startsWithIgnoreCase(url, "http:")) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    private void start() {
+        MonitoredTomcat instance = getSelectedInstance();
+        if (instance == null) {
+            return;
+        }
+
+        try {
+            int concurrency = parseRequiredPositiveInt(concurrencyField.getText(), "Concurrency");
+            if (concurrency > MAX_CONCURRENCY) {
+                throw new ConfigurationException("Concurrency must not be greater than " + MAX_CONCURRENCY);
+            }
+            generator = new LoadGenerator(getUrls(), concurrency,
+                    PluginUtils.parseOptionalPositiveInt(rateField.getText(), "Requests per second"),
+                    parseRequiredPositiveInt(durationField.getText(), "Duration"));
+        } catch (ConfigurationException e) {
+            resultArea.setText(e.getMessage());
+            return;
+        }
+
+        try {
+            // The instance stops the load when its Tomcat terminates
+            instance.startLoad(generator);
+        } catch (IllegalStateException e) {
+            resultArea.setText(e.getMessage());
+            generator = null;
+            return;
+        }
+        startButton.setEnabled(false);
+        stopButton.setEnabled(true);
+        resultArea.setText("");
+        refreshTimer.start();
+    }
+
+    private void stop() {
+        if (generator != null) {
+            generator.stop();
+        }
+    }
+
+    private boolean isRunning() {
+        return generator != null && generator.isRunning();
+    }
+
+    private void showResult() {
+        if (generator == null) {
+            return;
+        }
+
+        resultArea.setText(generator.getResult().render());
+        if (!generator.isRunning()) {
+            refreshTimer.stop();
+            stopButton.setEnabled(false);
+            startButton.setEnabled(getSelectedInstance() != null);
+        }
+    }
+
+    private List<URL> getUrls() throws ConfigurationException {
+        String baseUrl = baseUrlModel.getSelected();
+        if (baseUrl == null) {
+            throw new ConfigurationException("Tomcat is not started");
+        }
+
+        List<URL> urls = new ArrayList<>();
+        for (String path : StringUtil.splitByLines(pathsArea.getText())) {
+            urls.add(toUrl(StringUtil.trimEnd(baseUrl, "/") + "/" + StringUtil.trimStart(path.trim(), "/")));
+        }
+        if (urls.isEmpty()) {
+            urls.add(toUrl(baseUrl));
+        }
+        return urls;
+    }
+
+    private static URL toUrl(String url) throws ConfigurationException {
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new ConfigurationException("Invalid URL: " + url);
+        }
+    }
+
+    private static int parseRequiredPositiveInt(String text, String label) throws ConfigurationException {
+        Integer value = PluginUtils.parseOptionalPositiveInt(text, label);
+        if (value == null) {
+            throw new ConfigurationException(label + " is required");
+        }
+        return value;
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+        stop();
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A running Tomcat, and the sampling of its metrics when it was launched with the local management channel,
+ * the request timing valve and/or the GC logging.
+ */
+public class MonitoredTomcat {
+    private static final Logger LOG = Logger.getInstance(MonitoredTomcat.class);
+    private static final int HISTORY_SIZE = 360;
+    private static final int TIMELINE_SECONDS = 120;
+    private static final long TIMING_POLL_MILLIS = 1000;
+    private static final long GC_LOG_POLL_MILLIS = 2000;
+
+    private final String name;
+    private final String configurationName;
+    private final ProcessHandler processHandler;
+    private final TomcatJmxConnection connection;
+    private final RequestTimingReader timingReader;
+    private final JfrController profiler;
+    private final ClassLoaderLeakDetector leakDetector;
+    private final GcLogAnalyzer gcLog;
+    private final TomcatMetricsSampler sampler = new TomcatMetricsSampler(HISTORY_SIZE);
+    private final RequestTimeline timeline = new RequestTimeline(TIMELINE_SECONDS, System.currentTimeMillis());
+    private final List<ScheduledFuture<?>> futures = new ArrayList<>();
+    private volatile List<String> serverUrls = Collections.emptyList();
+    private LoadGenerator loadGenerator;
+    private boolean stopped;
+
+    MonitoredTomcat(@NotNull String name, @NotNull String configurationName, @NotNull ProcessHandler processHandler,
+                    @Nullable TomcatJmxConnection connection, @Nullable RequestTimingReader timingReader,
+                    @Nullable JfrController profiler, @Nullable GcLogAnalyzer gcLog) {
+        this.name = name;
+        this.configurationName = configurationName;
+        this.processHandler = processHandler;
+        this.connection = connection;
+        this.timingReader = timingReader;
+        this.profiler = profiler;
+        this.gcLog = gcLog;
+        this.leakDetector = new ClassLoaderLeakDetector(connection);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the name of the run configuration, shared by the instances of a cluster
+     */
+    public String getConfigurationName() {
+        return configurationName;
+    }
+
+    public ProcessHandler getProcessHandler() {
+        return processHandler;
+    }
+
+    /**
+     * @return the management channel, or {@code null} if Tomcat was launched without it
+     */
+    @Nullable
+    public TomcatJmxConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return the Flight Recorder controller, or {@code null} if Tomcat was not launched with the profile executor
+     */
+    @Nullable
+    public JfrController getProfiler() {
+        return profiler;
+    }
+
+    public ClassLoaderLeakDetector getLeakDetector() {
+        return leakDetector;
+    }
+
+    /**
+     * @return the analysis of the GC log, or {@code null} if Tomcat was launched without GC logging
+     */
+    @Nullable
+    public GcLogAnalyzer getGcLog() {
+        return gcLog;
+    }
+
+    public TomcatMetricsSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * @return the URLs of the deployed context, empty until Tomcat is started
+     */
+    public List<String> getServerUrls() {
+        return serverUrls;
+    }
+
+    void setServerUrls(@NotNull List<String> serverUrls) {
+        this.serverUrls = Collections.unmodifiableList(new ArrayList<>(serverUrls));
+    }
+
+    public boolean hasRequestTimeline() {
+        return timingReader != null;
+    }
+
+    public RequestTimeline getRequestTimeline() {
+        return timeline;
+    }
+
+    synchronized void start(int intervalSeconds, @NotNull Runnable onUpdate) {
+        if (connection != null) {
+            futures.add(AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+                try {
+                    sampler.sample(connection.getConnection());
+                    onUpdate.run();
+                } catch (IOException e) {
+                    // Tomcat is not started yet, or it is stopping
+                    connection.close();
+                } catch (JMException | RuntimeException e) {
+                    LOG.debug("Failed to sample the metrics of " + name, e);
+                }
+            }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS));
+        }
+
+        if (timingReader != null) {
+            futures.add(AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+                try {
+                    if (timingReader.readInto(timeline) > 0) {
+                        onUpdate.run();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOG.debug("Failed to read the request timings of " + name, e);
+                }
+            }, TIMING_POLL_MILLIS, TIMING_POLL_MILLIS, TimeUnit.MILLISECONDS));
+        }
+
+        if (gcLog != null) {
+            futures.add(AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+                try {
+                    if (gcLog.update() > 0) {
+                        onUpdate.run();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOG.debug("Failed to read the GC log of " + name, e);
+                }
+            }, GC_LOG_POLL_MILLIS, GC_LOG_POLL_MILLIS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Starts a load against this Tomcat, the load is stopped with it.
+     */
+    synchronized void startLoad(@NotNull LoadGenerator generator) {
+        if (stopped) {
+            throw new IllegalStateException(name + " is stopped");
+        }
+        if (loadGenerator != null) {
+            loadGenerator.stop();
+        }
+        loadGenerator = generator;
+        generator.start();
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        if (loadGenerator != null) {
+            loadGenerator.stop();
+        }
+
+        for (ScheduledFuture<?> future : futures) {
+            future.cancel(false);
+        }
+        futures.clear();
+
+        if (connection != null) {
+            connection.close();
+        }
+        if (timingReader != null) {
+            timingReader.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,93 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.ui.CollectionComboBoxModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * A tool window panel showing the data of one of the running Tomcat instances, selected in a combo box.
+ */
+public abstract class MonitoredTomcatPanel extends JPanel implements Disposable {
+
+    protected final Project project;
+    private final CollectionComboBoxModel<MonitoredTomcat> instancesModel = new CollectionComboBoxModel<>();
+
+    protected MonitoredTomcatPanel(@NotNull Project project) {
+        super(new BorderLayout());
+        this.project = project;
+
+        ComboBox<MonitoredTomcat> instancesComboBox = new ComboBox<>(instancesModel);
+        instancesComboBox.addItemListener(e -> refresh());
+        add(instancesComboBox, BorderLayout.NORTH);
+
+        TomcatMonitorService.getInstance(project).addListener(new TomcatMonitorService.Listener() {
+            @Override
+            public void instancesChanged() {
+                ApplicationManager.getApplication().invokeLater(MonitoredTomcatPanel.this::updateInstances, project.getDisposed());
+            }
+
+            @Override
+            public void updated(@NotNull MonitoredTomcat instance) {
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    if (instance == getSelectedInstance()) {
+                        refresh();
+                    }
+                }, project.getDisposed());
+            }
+        }, this);
+    }
+
+    /**
+     * Must be called by the subclasses once their components are created
+     */
+    protected void init() {
+        updateInstances();
+    }
+
+    /**
+     * @return whether the panel has something to show for the instance
+     */
+    protected boolean accepts(@NotNull MonitoredTomcat instance) {
+        return true;
+    }
+
+    protected abstract void refresh(@Nullable MonitoredTomcat instance);
+
+    @Nullable
+    protected MonitoredTomcat getSelectedInstance() {
+        return instancesModel.getSelected();
+    }
+
+    private void updateInstances() {
+        MonitoredTomcat selected = instancesModel.getSelected();
+        List<MonitoredTomcat> instances = TomcatMonitorService.getInstance(project).getInstances();
+        instances.removeIf(instance -> !accepts(instance));
+        instancesModel.replaceAll(instances);
+
+        if (selected != null && instances.contains(selected)) {
+            instancesModel.setSelectedItem(selected);
+        } else if (!instances.isEmpty()) {
+            instancesModel.setSelectedItem(instances.get(instances.size() - 1));
+        } else {
+            instancesModel.setSelectedItem(null);
+        }
+        refresh();
+    }
+
+    private void refresh() {
+        refresh(getSelectedInstance());
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+}
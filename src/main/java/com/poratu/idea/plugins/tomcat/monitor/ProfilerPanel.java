@@ -0,0 +1,118 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.components.JBScrollPane;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.nio.file.Path;
+
+/**
+ * Controls the Flight Recorder of the Tomcat instances launched with the profile executor,
+ * and shows the summary of the last dump.
+ */
+public class ProfilerPanel extends MonitoredTomcatPanel {
+
+    private final JButton startButton = new JButton("Start");
+    private final JButton stopButton = new JButton("Stop");
+    private final JButton dumpButton = new JButton("Dump and Summarize");
+    private final JTextArea summaryArea = new JTextArea();
+
+    public ProfilerPanel(@NotNull Project project) {
+        super(project);
+
+        startButton.addActionListener(e -> control("Starting the recording", JfrController::start));
+        stopButton.addActionListener(e -> control("Stopping the recording", JfrController::stop));
+        dumpButton.addActionListener(e -> dumpAndSummarize());
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttons.add(startButton);
+        buttons.add(stopButton);
+        buttons.add(dumpButton);
+
+        summaryArea.setEditable(false);
+        summaryArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, summaryArea.getFont().getSize()));
+
+        JPanel center = new JPanel(new BorderLayout());
+        center.add(buttons, BorderLayout.NORTH);
+        center.add(new JBScrollPane(summaryArea), BorderLayout.CENTER);
+        add(center, BorderLayout.CENTER);
+        init();
+    }
+
+    @Override
+    protected boolean accepts(@NotNull MonitoredTomcat instance) {
+        return instance.getProfiler() != null;
+    }
+
+    @Override
+    protected void refresh(@Nullable MonitoredTomcat instance) {
+        boolean enabled = instance != null;
+        startButton.setEnabled(enabled);
+        stopButton.setEnabled(enabled);
+        dumpButton.setEnabled(enabled);
+    }
+
+    private void control(String title, JfrCommand command) {
+        MonitoredTomcat instance = getSelectedInstance();
+        if (instance == null || instance.getProfiler() == null) {
+            return;
+        }
+
+        new Task.Backgroundable(project, title, false) {
+            private String output;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    output = command.execute(instance.getProfiler());
+                } catch (Exception e) {
+                    output = "Failed: " + e.getMessage();
+                }
+            }
+
+            @Override
+            public void onFinished() {
+                summaryArea.setText(output);
+            }
+        }.queue();
+    }
+
+    private void dumpAndSummarize() {
+        MonitoredTomcat instance = getSelectedInstance();
+        if (instance == null || instance.getProfiler() == null) {
+            return;
+        }
+
+        new Task.Backgroundable(project, "Summarizing the flight recording", true) {
+            private String output;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    indicator.setText("Dumping the recording");
+                    Path file = instance.getProfiler().dump();
+                    indicator.setText("Reading " + file.getFileName());
+                    output = file + "\n\n" + JfrRecordingSummary.read(file).render();
+                } catch (Exception e) {
+                    output = "Failed: " + e.getMessage();
+                }
+            }
+
+            @Override
+            public void onFinished() {
+                summaryArea.setText(output);
+                summaryArea.setCaretPosition(0);
+            }
+        }.queue();
+    }
+
+    private interface JfrCommand {
+        String execute(JfrController controller) throws Exception;
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The latencies of the requests, aggregated per second over a rolling window.
+ */
+public class RequestTimeline {
+
+    private final Second[] seconds;
+    private final long notBefore;
+
+    /**
+     * @param windowSeconds the number of seconds kept
+     * @param notBefore     the records which started before this time (epoch millis) are ignored,
+     *                      they were left by a previous launch
+     */
+    public RequestTimeline(int windowSeconds, long notBefore) {
+        this.seconds = new Second[windowSeconds];
+        this.notBefore = notBefore;
+    }
+
+    public synchronized void add(long startMillis, long durationNanos, int status) {
+        if (startMillis < notBefore) {
+            return;
+        }
+
+        long epochSecond = startMillis / 1000;
+        int index = (int) (epochSecond % seconds.length);
+        Second second = seconds[index];
+        if (second == null) {
+            second = seconds[index] = new Second();
+        }
+        if (second.epochSecond != epochSecond) {
+            if (second.epochSecond > epochSecond) {
+                // Too old for the window
+                return;
+            }
+            second.epochSecond = epochSecond;
+            second.histogram.reset();
+            second.errors = 0;
+        }
+
+        second.histogram.record(durationNanos / 1000);
+        if (status >= 500) {
+            second.errors++;
+        }
+    }
+
+    /**
+     * @return the seconds with at least one request, the oldest first
+     */
+    public synchronized List<Row> getRows() {
+        long newest = 0;
+        for (Second second : seconds) {
+            if (second != null) {
+                newest = Math.max(newest, second.epochSecond);
+            }
+        }
+
+        List<Row> rows = new ArrayList<>();
+        for (long s = newest - seconds.length + 1; s <= newest; s++) {
+            Second second = seconds[(int) (Math.floorMod(s, (long) seconds.length))];
+            if (second != null && second.epochSecond == s && second.histogram.getCount() > 0) {
+                LatencyHistogram h = second.histogram;
+                rows.add(new Row(s * 1000, h.getCount(), h.getPercentile(50), h.getPercentile(99), h.getMax(), second.errors));
+            }
+        }
+        return rows;
+    }
+
+    private static class Second {
+        private long epochSecond = -1;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private int errors;
+    }
+
+    public static class Row {
+        private final long timestamp;
+        private final long count;
+        private final long p50;
+        private final long p99;
+        private final long max;
+        private final int errors;
+
+        Row(long timestamp, long count, long p50, long p99, long max, int errors) {
+            this.timestamp = timestamp;
+            this.count = count;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.max = max;
+            this.errors = errors;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the median latency in microseconds
+         */
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The latency timeline recorded by the request timing valve, one row per second, the newest first.
+ */
+public class RequestTimelinePanel extends MonitoredTomcatPanel {
+    private static final String[] COLUMNS = {"Time", "Requests", "p50 (ms)", "p99 (ms)", "Max (ms)", "5xx"};
+
+    private final TimelineTableModel tableModel = new TimelineTableModel();
+
+    public RequestTimelinePanel(@NotNull Project project) {
+        super(project);
+        add(new JBScrollPane(new JBTable(tableModel)), BorderLayout.CENTER);
+        init();
+    }
+
+    @Override
+    protected boolean accepts(@NotNull MonitoredTomcat instance) {
+        return instance.hasRequestTimeline();
+    }
+
+    @Override
+    protected void refresh(@Nullable MonitoredTomcat instance) {
+        List<RequestTimeline.Row> rows = instance == null
+                ? Collections.emptyList()
+                : new ArrayList<>(instance.getRequestTimeline().getRows());
+        Collections.reverse(rows);
+        tableModel.update(rows);
+    }
+
+    private static class TimelineTableModel extends AbstractTableModel {
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+        private List<RequestTimeline.Row> rows = Collections.emptyList();
+
+        void update(List<RequestTimeline.Row> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            RequestTimeline.Row row = rows.get(rowIndex);
+            switch (columnIndex) {
+                case 0:
+                    return timeFormat.format(new Date(row.getTimestamp()));
+                case 1:
+                    return row.getCount();
+                case 2:
+                    return toMillis(row.getP50());
+                case 3:
+                    return toMillis(row.getP99());
+                case 4:
+                    return toMillis(row.getMax());
+                default:
+                    return row.getErrors();
+            }
+        }
+
+        private static String toMillis(long micros) {
+            return String.format("%.2f", micros / 1000.0);
+        }
+    }
+
+}
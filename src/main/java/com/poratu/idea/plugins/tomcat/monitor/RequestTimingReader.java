@@ -0,0 +1,131 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the ring file written by the {@code RequestTimingValve} running in Tomcat, by mapping the same file.
+ * See the valve for the layout of the file.
+ * <p>
+ * The records are read in the order of their sequences, up to the first one which isn't written yet, so that a
+ * request completing late is neither lost nor read twice. A record which stays unwritten, e.g. its thread died,
+ * is skipped after a while.
+ */
+public class RequestTimingReader {
+    public static final String VALVE_CLASS_NAME = "com.poratu.idea.plugins.tomcat.valve.RequestTimingValve";
+    public static final String VALVE_JAR_RESOURCE = "/valve/smarttomcat-valve.jar";
+    public static final String VALVE_JAR_NAME = "smarttomcat-valve.jar";
+
+    private static final int MAGIC = 0x53545254;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    // Far longer than writing a record, even on a loaded machine
+    private static final long MAX_STALL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Path file;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int recordSize;
+    private long nextSequence;
+    private long stalledSince;
+
+    public RequestTimingReader(@NotNull Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Add the records written since the last call to the timeline
+     *
+     * @return the number of records read
+     */
+    public synchronized int readInto(@NotNull RequestTimeline timeline) throws IOException {
+        if (buffer == null && !map()) {
+            return 0;
+        }
+
+        int read = 0;
+        // At most one round of the ring, the records written meanwhile are read by the next call
+        for (int i = 0; i < capacity; i++) {
+            int offset = HEADER_SIZE + (int) (nextSequence % capacity) * recordSize;
+            long written = buffer.getLong(offset) - 1;
+            Fences.loadFence();
+            if (written > nextSequence) {
+                // The valve went round the ring faster than we read it, the older records are overwritten
+                nextSequence = Math.max(nextSequence + 1, written - capacity + 1);
+                stalledSince = 0;
+                continue;
+            }
+            if (written < nextSequence) {
+                if (!isStalled()) {
+                    break;
+                }
+                // Never written
+                nextSequence++;
+                stalledSince = 0;
+                continue;
+            }
+
+            long start = buffer.getLong(offset + 8);
+            long duration = buffer.getLong(offset + 16);
+            int status = buffer.getInt(offset + 28);
+            Fences.loadFence();
+            // Skip the record if it was overwritten while being read
+            if (buffer.getLong(offset) - 1 == nextSequence) {
+                timeline.add(start, duration, status);
+                read++;
+            }
+            nextSequence++;
+            stalledSince = 0;
+        }
+        return read;
+    }
+
+    // Whether the next record is unwritten for long while a later one is written, rather than merely not come yet
+    private boolean isStalled() {
+        int offset = HEADER_SIZE + (int) ((nextSequence + 1) % capacity) * recordSize;
+        if (buffer.getLong(offset) - 1 <= nextSequence) {
+            stalledSince = 0;
+            return false;
+        }
+        long now = System.nanoTime();
+        if (stalledSince == 0) {
+            stalledSince = now;
+        }
+        return now - stalledSince > MAX_STALL_NANOS;
+    }
+
+    private boolean map() throws IOException {
+        if (!Files.exists(file) || Files.size(file) < HEADER_SIZE) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                return false;
+            }
+
+            capacity = header.getInt(8);
+            recordSize = header.getInt(12);
+            long size = HEADER_SIZE + (long) capacity * recordSize;
+            if (capacity <= 0 || channel.size() < size) {
+                // The valve has not finished to initialize the file
+                return false;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        return true;
+    }
+
+    public synchronized void close() {
+        buffer = null;
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attributes the execution samples recorded during the startup of Tomcat to the startup phases,
+ * and ranks the phases by the time spent in them.
+ */
+public class StartupProfile {
+    // The period of jdk.ExecutionSample in smarttomcat.jfc
+    private static final long SAMPLE_PERIOD_MILLIS = 20;
+    private static final int TOP_METHODS = 3;
+
+    /**
+     * The phases, in the order they are matched: when a stack trace belongs to several phases,
+     * e.g. Spring started by a load-on-startup servlet, the most specific one wins.
+     */
+    public enum Phase {
+        ANNOTATION_SCANNING("Annotation scanning",
+                "Set metadata-complete=\"true\" in web.xml, or limit the scanned JARs with <absolute-ordering>",
+                "org.apache.catalina.startup.ContextConfig.processAnnotations",
+                "org.apache.catalina.startup.ContextConfig.processClasses",
+                "org.apache.catalina.startup.ContextConfig.checkHandlesTypes",
+                "org.apache.tomcat.util.bcel."),
+        JAR_SCANNING("JarScanner and TLD scanning",
+                "Add the JARs without TLDs nor web fragments to tomcat.util.scan.StandardJarScanFilter.jarsToSkip",
+                "org.apache.tomcat.util.scan.StandardJarScanner.",
+                "org.apache.jasper.servlet.TldScanner.",
+                "org.apache.catalina.startup.TldConfig."),
+        SERVER_XML("server.xml parsing and init",
+                "Remove the unused connectors, listeners and realms from server.xml",
+                "org.apache.catalina.startup.Catalina.parseServerXml",
+                "org.apache.catalina.startup.Catalina.createStartDigester",
+                "org.apache.catalina.startup.Catalina.load"),
+        FRAMEWORK("Spring / CDI initialization",
+                "Narrow the component scan, and make the expensive beans lazy",
+                "org.springframework.",
+                "org.jboss.weld.",
+                "org.apache.webbeans."),
+        LOAD_ON_STARTUP("Servlet load-on-startup",
+                "Remove load-on-startup from the servlets which are not needed at once",
+                "org.apache.catalina.core.StandardContext.loadOnStartup"),
+        DEPLOYMENT("Other deployment work", null,
+                "org.apache.catalina.startup.HostConfig.",
+                "org.apache.catalina.core.StandardContext.startInternal"),
+        OTHER("JVM and other threads", null);
+
+        private final String displayName;
+        private final String suggestion;
+        private final String[] methodPrefixes;
+
+        Phase(String displayName, @Nullable String suggestion, String... methodPrefixes) {
+            this.displayName = displayName;
+            this.suggestion = suggestion;
+            this.methodPrefixes = methodPrefixes;
+        }
+
+        @Nullable
+        public String getSuggestion() {
+            return suggestion;
+        }
+
+        boolean matches(List<String> frames) {
+            for (String frame : frames) {
+                for (String prefix : methodPrefixes) {
+                    if (frame.startsWith(prefix)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        static Phase of(List<String> frames) {
+            for (Phase phase : values()) {
+                if (phase.matches(frames)) {
+                    return phase;
+                }
+            }
+            return OTHER;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    private final Map<Phase, Long> phaseSamples = new EnumMap<>(Phase.class);
+    private final Map<Phase, Map<String, Long>> phaseMethods = new EnumMap<>(Phase.class);
+    private long totalSamples;
+
+    /**
+     * Read a recording of the startup, it may be large, so don't call it on the EDT
+     */
+    public static StartupProfile read(@NotNull Path file) throws IOException {
+        StartupProfile profile = new StartupProfile();
+        JfrReflection jfr = JfrReflection.getInstance();
+
+        Object recordingFile = jfr.open(file);
+        try {
+            while (jfr.hasMoreEvents(recordingFile)) {
+                Object event = jfr.readEvent(recordingFile);
+                if ("jdk.ExecutionSample".equals(jfr.getEventName(event))) {
+                    profile.accept(jfr.getFrames(event));
+                }
+            }
+        } finally {
+            jfr.close(recordingFile);
+        }
+        return profile;
+    }
+
+    void accept(List<String> frames) {
+        Phase phase = Phase.of(frames);
+        String topFrame = frames.isEmpty() ? JfrReflection.NO_STACK_TRACE : frames.get(0);
+
+        totalSamples++;
+        phaseSamples.merge(phase, 1L, Long::sum);
+        phaseMethods.computeIfAbsent(phase, p -> new HashMap<>()).merge(topFrame, 1L, Long::sum);
+    }
+
+    /**
+     * @return the phases with at least one sample, the slowest first
+     */
+    public List<Phase> getRankedPhases() {
+        List<Phase> result = new ArrayList<>(phaseSamples.keySet());
+        result.sort((a, b) -> Long.compare(phaseSamples.get(b), phaseSamples.get(a)));
+        return result;
+    }
+
+    /**
+     * @return the estimated CPU time spent in the phase, summed over all the threads
+     */
+    public long getMillis(@NotNull Phase phase) {
+        return phaseSamples.getOrDefault(phase, 0L) * SAMPLE_PERIOD_MILLIS;
+    }
+
+    public String render() {
+        StringBuilder sb = new StringBuilder("Startup profile (")
+                .append(totalSamples).append(" samples every ").append(SAMPLE_PERIOD_MILLIS).append(" ms):\n");
+        if (totalSamples == 0) {
+            sb.append("  No samples were recorded, is the project JDK able to run Flight Recorder?\n");
+            return sb.toString();
+        }
+
+        for (Phase phase : getRankedPhases()) {
+            long samples = phaseSamples.get(phase);
+            sb.append(String.format("  %-30s %5.1f%%  ~%d ms CPU%n", phase, samples * 100.0 / totalSamples, getMillis(phase)));
+
+            List<Map.Entry<String, Long>> methods = new ArrayList<>(phaseMethods.get(phase).entrySet());
+            methods.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            for (Map.Entry<String, Long> method : methods.subList(0, Math.min(TOP_METHODS, methods.size()))) {
+                sb.append(String.format("      %5.1f%%  %s%n", method.getValue() * 100.0 / samples, method.getKey()));
+            }
+
+            if (phase.getSuggestion() != null) {
+                sb.append("      -> ").append(phase.getSuggestion()).append('\n');
+            }
+        }
+
+        return sb.toString();
+    }
+
+}
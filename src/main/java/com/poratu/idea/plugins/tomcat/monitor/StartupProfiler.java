@@ -0,0 +1,49 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Ends the flight recording of the startup once Tomcat is started, and summarizes it.
+ */
+public class StartupProfiler {
+    private static final Logger LOG = Logger.getInstance(StartupProfiler.class);
+
+    private final JfrController controller;
+    private final boolean keepRecording;
+
+    /**
+     * @param keepRecording {@code true} to only dump the startup, e.g. when the whole run is profiled
+     */
+    public StartupProfiler(@NotNull JfrController controller, boolean keepRecording) {
+        this.controller = controller;
+        this.keepRecording = keepRecording;
+    }
+
+    /**
+     * Called when Tomcat is started, the recording is read on a background thread.
+     *
+     * @param output receives the rendered report
+     */
+    public void startupCompleted(@NotNull Consumer<String> output) {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            try {
+                Path file = controller.createRecordingFile("startup");
+                if (keepRecording) {
+                    controller.dump(file);
+                } else {
+                    controller.stop(file);
+                }
+                output.accept(StartupProfile.read(file).render() + "  Recording: " + file + "\n");
+            } catch (Exception e) {
+                LOG.warn("Failed to profile the startup", e);
+                output.accept("Failed to profile the startup: " + e.getMessage() + "\n");
+            }
+        });
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.execution.configurations.ParametersList;
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * The local management channel to a launched Tomcat.
+ * <p>
+ * The JMX agent of the Tomcat JVM is enabled on a free port of the loopback interface. Any local user can reach that
+ * port, so the agent requires a password generated for each launch, kept in a file only readable by its owner. The
+ * connection is opened lazily and reopened if the JVM was not ready yet.
+ */
+public class TomcatJmxConnection {
+    private static final String LOOPBACK = "127.0.0.1";
+    private static final String USER = "smarttomcat";
+    private static final String PASSWORD_FILE = "jmxremote.password";
+    private static final String ACCESS_FILE = "jmxremote.access";
+
+    private final int port;
+    private final String password;
+    private final Path directory;
+    private JMXConnector connector;
+
+    private TomcatJmxConnection(int port, @NotNull String password, @NotNull Path directory) {
+        this.port = port;
+        this.password = password;
+        this.directory = directory;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Choose a free port on the loopback interface for the JMX agent, and write the password and access files of the
+     * agent with a new password
+     *
+     * @param directory the directory of the files, e.g. the temp directory of the catalina.base
+     */
+    @NotNull
+    public static TomcatJmxConnection create(@NotNull Path directory) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName(LOOPBACK))) {
+            port = socket.getLocalPort();
+        }
+
+        byte[] bytes = new byte[24];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder password = new StringBuilder();
+        for (byte b : bytes) {
+            password.append(String.format("%02x", b));
+        }
+
+        // The JVM refuses a password file which others can read, so restrict it before writing the password
+        Path passwordFile = directory.resolve(PASSWORD_FILE);
+        Files.deleteIfExists(passwordFile);
+        Files.createFile(passwordFile);
+        restrictToOwner(passwordFile);
+        Files.write(passwordFile, (USER + ' ' + password + '\n').getBytes(StandardCharsets.UTF_8));
+        // Read-write, to start and stop the flight recordings
+        Files.write(directory.resolve(ACCESS_FILE), (USER + " readwrite\n").getBytes(StandardCharsets.UTF_8));
+        return new TomcatJmxConnection(port, password.toString(), directory);
+    }
+
+    private static void restrictToOwner(Path file) throws IOException {
+        PosixFileAttributeView posix = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+        if (posix != null) {
+            posix.setPermissions(PosixFilePermissions.fromString("rw-------"));
+            return;
+        }
+
+        AclFileAttributeView acl = Files.getFileAttributeView(file, AclFileAttributeView.class);
+        if (acl != null) {
+            AclEntry ownerOnly = AclEntry.newBuilder()
+                    .setType(AclEntryType.ALLOW)
+                    .setPrincipal(acl.getOwner())
+                    .setPermissions(EnumSet.allOf(AclEntryPermission.class))
+                    .build();
+            acl.setAcl(Collections.singletonList(ownerOnly));
+        }
+    }
+
+    /**
+     * Enable the JMX agent of the Tomcat JVM on the port of this connection, only reachable from the local host and
+     * with the password of this connection
+     */
+    public void addVmParameters(@NotNull ParametersList vmParams) {
+        String portStr = String.valueOf(port);
+        vmParams.defineProperty("com.sun.management.jmxremote.port", portStr);
+        vmParams.defineProperty("com.sun.management.jmxremote.rmi.port", portStr);
+        vmParams.defineProperty("com.sun.management.jmxremote.host", LOOPBACK);
+        vmParams.defineProperty("com.sun.management.jmxremote.local.only", "true");
+        vmParams.defineProperty("com.sun.management.jmxremote.authenticate", "true");
+        vmParams.defineProperty("com.sun.management.jmxremote.password.file", directory.resolve(PASSWORD_FILE).toString());
+        vmParams.defineProperty("com.sun.management.jmxremote.access.file", directory.resolve(ACCESS_FILE).toString());
+        vmParams.defineProperty("com.sun.management.jmxremote.ssl", "false");
+        vmParams.defineProperty("java.rmi.server.hostname", LOOPBACK);
+    }
+
+    /**
+     * @return the connection to the MBean server of Tomcat, connecting first if necessary
+     * @throws IOException if Tomcat can not be reached, e.g. it is not started yet
+     */
+    @NotNull
+    public synchronized MBeanServerConnection getConnection() throws IOException {
+        if (connector == null) {
+            JMXServiceURL url = new JMXServiceURL("service:jmx:rmi:///jndi/rmi://" + LOOPBACK + ":" + port + "/jmxrmi");
+            Map<String, Object> env = Collections.singletonMap(JMXConnector.CREDENTIALS, new String[]{USER, password});
+            connector = JMXConnectorFactory.connect(url, env);
+        }
+
+        try {
+            return connector.getMBeanServerConnection();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public synchronized void close() {
+        if (connector != null) {
+            try {
+                connector.close();
+            } catch (IOException ignored) {
+                // the process is gone already
+            }
+            connector = null;
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+/**
+ * One sample of the metrics of a running Tomcat, read over JMX.
+ * The counters are cumulative since the JVM started, -1 means the value is not available.
+ */
+public class TomcatMetrics {
+    private final long timestamp;
+    private final int threadsBusy;
+    private final int maxThreads;
+    private final long requestCount;
+    private final long processingTime;
+    private final long errorCount;
+    private final long heapUsed;
+    private final long heapMax;
+    private final long gcCount;
+    private final long gcTime;
+    private final int loadedClasses;
+    private final long openFileDescriptors;
+
+    TomcatMetrics(long timestamp, int threadsBusy, int maxThreads, long requestCount, long processingTime,
+                  long errorCount, long heapUsed, long heapMax, long gcCount, long gcTime, int loadedClasses,
+                  long openFileDescriptors) {
+        this.timestamp = timestamp;
+        this.threadsBusy = threadsBusy;
+        this.maxThreads = maxThreads;
+        this.requestCount = requestCount;
+        this.processingTime = processingTime;
+        this.errorCount = errorCount;
+        this.heapUsed = heapUsed;
+        this.heapMax = heapMax;
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+        this.loadedClasses = loadedClasses;
+        this.openFileDescriptors = openFileDescriptors;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getThreadsBusy() {
+        return threadsBusy;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the total processing time of the requests in milliseconds
+     */
+    public long getProcessingTime() {
+        return processingTime;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getHeapUsed() {
+        return heapUsed;
+    }
+
+    public long getHeapMax() {
+        return heapMax;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * @return the accumulated GC time of all the collectors in milliseconds
+     */
+    public long getGcTime() {
+        return gcTime;
+    }
+
+    public int getLoadedClasses() {
+        return loadedClasses;
+    }
+
+    public long getOpenFileDescriptors() {
+        return openFileDescriptors;
+    }
+}
@@ -0,0 +1,131 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * The dashboard of the metrics tool window: the latest, average and max value of each metric over the history.
+ */
+public class TomcatMetricsPanel extends MonitoredTomcatPanel {
+    private static final String[] COLUMNS = {"Metric", "Current", "Average", "Max"};
+    private static final double MB = 1024 * 1024;
+
+    private static final MetricRow[] ROWS = {
+            new MetricRow("Busy threads", (prev, cur) -> cur.getThreadsBusy()),
+            new MetricRow("Max threads", (prev, cur) -> cur.getMaxThreads()),
+            new MetricRow("Requests / s", (prev, cur) -> perSecond(prev, cur, cur.getRequestCount() - prev.getRequestCount())),
+            new MetricRow("Processing time / request (ms)", (prev, cur) -> {
+                long requests = cur.getRequestCount() - prev.getRequestCount();
+                return requests == 0 ? 0 : (double) (cur.getProcessingTime() - prev.getProcessingTime()) / requests;
+            }),
+            new MetricRow("Errors / s", (prev, cur) -> perSecond(prev, cur, cur.getErrorCount() - prev.getErrorCount())),
+            new MetricRow("Heap used (MB)", (prev, cur) -> cur.getHeapUsed() / MB),
+            new MetricRow("Heap max (MB)", (prev, cur) -> cur.getHeapMax() / MB),
+            new MetricRow("GC pause (ms / s)", (prev, cur) -> perSecond(prev, cur, cur.getGcTime() - prev.getGcTime())),
+            new MetricRow("GC count / s", (prev, cur) -> perSecond(prev, cur, cur.getGcCount() - prev.getGcCount())),
+            new MetricRow("Loaded classes", (prev, cur) -> cur.getLoadedClasses()),
+            new MetricRow("Open file descriptors", (prev, cur) -> cur.getOpenFileDescriptors()),
+    };
+
+    private final MetricsTableModel tableModel = new MetricsTableModel();
+
+    public TomcatMetricsPanel(@NotNull Project project) {
+        super(project);
+        add(new JBScrollPane(new JBTable(tableModel)), BorderLayout.CENTER);
+        init();
+    }
+
+    @Override
+    protected boolean accepts(@NotNull MonitoredTomcat instance) {
+        return instance.getConnection() != null;
+    }
+
+    @Override
+    protected void refresh(@Nullable MonitoredTomcat instance) {
+        tableModel.update(instance == null ? null : instance.getSampler().getHistory());
+    }
+
+    private static double perSecond(TomcatMetrics prev, TomcatMetrics cur, long delta) {
+        long millis = cur.getTimestamp() - prev.getTimestamp();
+        return millis <= 0 ? 0 : delta * 1000.0 / millis;
+    }
+
+    private interface MetricFunction {
+        double compute(TomcatMetrics prev, TomcatMetrics cur);
+    }
+
+    private static class MetricRow {
+        private final String name;
+        private final MetricFunction function;
+
+        MetricRow(String name, MetricFunction function) {
+            this.name = name;
+            this.function = function;
+        }
+    }
+
+    private static class MetricsTableModel extends AbstractTableModel {
+        private final String[][] values = new String[ROWS.length][COLUMNS.length];
+
+        MetricsTableModel() {
+            update(null);
+        }
+
+        void update(List<TomcatMetrics> history) {
+            for (int row = 0; row < ROWS.length; row++) {
+                values[row][0] = ROWS[row].name;
+                values[row][1] = values[row][2] = values[row][3] = "-";
+
+                if (history == null || history.size() < 2) {
+                    continue;
+                }
+
+                double sum = 0;
+                double max = Double.NEGATIVE_INFINITY;
+                double current = 0;
+                for (int i = 1; i < history.size(); i++) {
+                    current = ROWS[row].function.compute(history.get(i - 1), history.get(i));
+                    sum += current;
+                    max = Math.max(max, current);
+                }
+
+                values[row][1] = format(current);
+                values[row][2] = format(sum / (history.size() - 1));
+                values[row][3] = format(max);
+            }
+            fireTableDataChanged();
+        }
+
+        private static String format(double value) {
+            return value < 0 ? "n/a" : String.format("%.1f", value);
+        }
+
+        @Override
+        public int getRowCount() {
+            return ROWS.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            return values[rowIndex][columnIndex];
+        }
+    }
+
+}
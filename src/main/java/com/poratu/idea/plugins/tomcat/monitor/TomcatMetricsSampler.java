@@ -0,0 +1,107 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the metrics of a running Tomcat, and keeps a rolling history of the samples.
+ */
+public class TomcatMetricsSampler {
+    private static final String THREAD_POOL = "*:type=ThreadPool,name=*";
+    private static final String GLOBAL_REQUEST_PROCESSOR = "*:type=GlobalRequestProcessor,name=*";
+    private static final String GARBAGE_COLLECTORS = ManagementFactory.GARBAGE_COLLECTOR_MXBEAN_DOMAIN_TYPE + ",name=*";
+
+    private final TomcatMetrics[] history;
+    private int head;
+    private int size;
+
+    public TomcatMetricsSampler(int historySize) {
+        this.history = new TomcatMetrics[historySize];
+    }
+
+    /**
+     * Read a new sample and add it to the history
+     */
+    public TomcatMetrics sample(@NotNull MBeanServerConnection connection) throws IOException, JMException {
+        int threadsBusy = 0;
+        int maxThreads = 0;
+        for (ObjectName name : connection.queryNames(new ObjectName(THREAD_POOL), null)) {
+            threadsBusy += getNumber(connection, name, "currentThreadsBusy").intValue();
+            maxThreads += getNumber(connection, name, "maxThreads").intValue();
+        }
+
+        long requestCount = 0;
+        long processingTime = 0;
+        long errorCount = 0;
+        for (ObjectName name : connection.queryNames(new ObjectName(GLOBAL_REQUEST_PROCESSOR), null)) {
+            requestCount += getNumber(connection, name, "requestCount").longValue();
+            processingTime += getNumber(connection, name, "processingTime").longValue();
+            errorCount += getNumber(connection, name, "errorCount").longValue();
+        }
+
+        MemoryUsage heap = MemoryUsage.from((CompositeData) connection.getAttribute(
+                new ObjectName(ManagementFactory.MEMORY_MXBEAN_NAME), "HeapMemoryUsage"));
+
+        long gcCount = 0;
+        long gcTime = 0;
+        for (ObjectName name : connection.queryNames(new ObjectName(GARBAGE_COLLECTORS), null)) {
+            gcCount += getNumber(connection, name, "CollectionCount").longValue();
+            gcTime += getNumber(connection, name, "CollectionTime").longValue();
+        }
+
+        int loadedClasses = getNumber(connection, new ObjectName(ManagementFactory.CLASS_LOADING_MXBEAN_NAME),
+                "LoadedClassCount").intValue();
+
+        long openFileDescriptors;
+        try {
+            openFileDescriptors = getNumber(connection, new ObjectName(ManagementFactory.OPERATING_SYSTEM_MXBEAN_NAME),
+                    "OpenFileDescriptorCount").longValue();
+        } catch (AttributeNotFoundException e) {
+            // Not available on Windows
+            openFileDescriptors = -1;
+        }
+
+        TomcatMetrics metrics = new TomcatMetrics(System.currentTimeMillis(), threadsBusy, maxThreads, requestCount,
+                processingTime, errorCount, heap.getUsed(), heap.getMax(), gcCount, gcTime, loadedClasses,
+                openFileDescriptors);
+        add(metrics);
+        return metrics;
+    }
+
+    private static Number getNumber(MBeanServerConnection connection, ObjectName name, String attribute)
+            throws IOException, JMException {
+        Object value = connection.getAttribute(name, attribute);
+        return value instanceof Number ? (Number) value : 0;
+    }
+
+    private synchronized void add(TomcatMetrics metrics) {
+        history[(head + size) % history.length] = metrics;
+        if (size < history.length) {
+            size++;
+        } else {
+            head = (head + 1) % history.length;
+        }
+    }
+
+    /**
+     * @return the samples in the history, the oldest first
+     */
+    public synchronized List<TomcatMetrics> getHistory() {
+        List<TomcatMetrics> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(history[(head + i) % history.length]);
+        }
+        return result;
+    }
+
+}
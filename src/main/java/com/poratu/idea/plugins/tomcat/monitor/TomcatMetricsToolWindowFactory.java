@@ -0,0 +1,31 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.jetbrains.annotations.NotNull;
+
+public class TomcatMetricsToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        addContent(toolWindow, new TomcatMetricsPanel(project), "Metrics");
+        addContent(toolWindow, new RequestTimelinePanel(project), "Requests");
+        addContent(toolWindow, new ProfilerPanel(project), "Profiler");
+        addContent(toolWindow, new LoadTestPanel(project), "Load Test");
+        addContent(toolWindow, new HotThreadsPanel(project), "Hot Threads");
+        addContent(toolWindow, new GcLogPanel(project), "GC");
+    }
+
+    private static void addContent(ToolWindow toolWindow, MonitoredTomcatPanel panel, String title) {
+        ContentFactory contentFactory = ApplicationManager.getApplication().getService(ContentFactory.class);
+        Content content = contentFactory.createContent(panel, title, false);
+        content.setDisposer(panel);
+        toolWindow.getContentManager().addContent(content);
+    }
+
+}
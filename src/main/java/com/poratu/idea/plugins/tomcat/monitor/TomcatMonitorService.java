@@ -0,0 +1,161 @@
+package com.poratu.idea.plugins.tomcat.monitor;
+
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.EventDispatcher;
+import com.poratu.idea.plugins.tomcat.conf.TomcatRunConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EventListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of the running Tomcat instances of the project, and of the monitoring they were launched with.
+ */
+public class TomcatMonitorService implements Disposable {
+    private static final Logger LOG = Logger.getInstance(TomcatMonitorService.class);
+    private static final int GC_LOG_HISTORY_SIZE = 10;
+
+    private final List<MonitoredTomcat> instances = new CopyOnWriteArrayList<>();
+    private final Deque<FinishedRun> gcLogHistory = new ArrayDeque<>();
+    private final EventDispatcher<Listener> dispatcher = EventDispatcher.create(Listener.class);
+
+    public static TomcatMonitorService getInstance(@NotNull Project project) {
+        return project.getService(TomcatMonitorService.class);
+    }
+
+    /**
+     * @param name              the name of the instance, e.g. the name of the configuration and the number of the instance in a cluster
+     * @param connection        the management channel, or {@code null} if not enabled
+     * @param requestTimingFile the ring file of the request timing valve, or {@code null} if not enabled
+     * @param jfrSettingsFile   the settings of the flight recording, or {@code null} if Tomcat is not profiled
+     * @param gcLogFile         the GC log, or {@code null} if not enabled
+     */
+    public MonitoredTomcat register(@NotNull TomcatRunConfiguration configuration, @NotNull ProcessHandler processHandler,
+                                    @NotNull String name, @Nullable TomcatJmxConnection connection, @Nullable Path requestTimingFile,
+                                    @Nullable Path jfrSettingsFile, @Nullable Path gcLogFile) {
+        MonitoredTomcat instance = new MonitoredTomcat(name, configuration.getName(), processHandler, connection,
+                requestTimingFile == null ? null : new RequestTimingReader(requestTimingFile),
+                connection == null || jfrSettingsFile == null ? null : new JfrController(connection, jfrSettingsFile),
+                gcLogFile == null ? null : new GcLogAnalyzer(gcLogFile));
+        instances.add(instance);
+
+        processHandler.addProcessListener(new ProcessAdapter() {
+            @Override
+            public void processTerminated(@NotNull ProcessEvent event) {
+                instance.stop();
+                instances.remove(instance);
+                if (instance.getGcLog() != null) {
+                    addToGcLogHistory(instance.getName(), instance.getGcLog());
+                }
+                dispatcher.getMulticaster().instancesChanged();
+            }
+        });
+
+        instance.start(configuration.getMetricsInterval(), () -> dispatcher.getMulticaster().updated(instance));
+        dispatcher.getMulticaster().instancesChanged();
+        return instance;
+    }
+
+    /**
+     * Called when the console sees that Tomcat is started
+     *
+     * @param serverUrls the URLs of the deployed context
+     */
+    public void serverStarted(@NotNull ProcessHandler processHandler, @NotNull List<String> serverUrls) {
+        MonitoredTomcat instance = findInstance(processHandler);
+        if (instance != null) {
+            instance.setServerUrls(serverUrls);
+            dispatcher.getMulticaster().instancesChanged();
+        }
+    }
+
+    private void addToGcLogHistory(String name, GcLogAnalyzer gcLog) {
+        try {
+            // Read the collections logged since the last poll, e.g. at shutdown
+            gcLog.update();
+        } catch (IOException e) {
+            LOG.debug("Failed to read the GC log " + gcLog.getFile(), e);
+        }
+
+        synchronized (gcLogHistory) {
+            gcLogHistory.addFirst(new FinishedRun(name, gcLog));
+            if (gcLogHistory.size() > GC_LOG_HISTORY_SIZE) {
+                gcLogHistory.removeLast();
+            }
+        }
+    }
+
+    /**
+     * @return the GC log analyses of the last terminated instances, the most recent first
+     */
+    public List<FinishedRun> getGcLogHistory() {
+        synchronized (gcLogHistory) {
+            return new ArrayList<>(gcLogHistory);
+        }
+    }
+
+    public List<MonitoredTomcat> getInstances() {
+        return new ArrayList<>(instances);
+    }
+
+    @Nullable
+    public MonitoredTomcat findInstance(@NotNull ProcessHandler processHandler) {
+        for (MonitoredTomcat instance : instances) {
+            if (instance.getProcessHandler() == processHandler) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    public void addListener(@NotNull Listener listener, @NotNull Disposable parentDisposable) {
+        dispatcher.addListener(listener, parentDisposable);
+    }
+
+    @Override
+    public void dispose() {
+        for (MonitoredTomcat instance : instances) {
+            instance.stop();
+        }
+        instances.clear();
+    }
+
+    public static class FinishedRun {
+        private final String name;
+        private final GcLogAnalyzer gcLog;
+
+        FinishedRun(String name, GcLogAnalyzer gcLog) {
+            this.name = name;
+            this.gcLog = gcLog;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public GcLogAnalyzer getGcLog() {
+            return gcLog;
+        }
+    }
+
+    public interface Listener extends EventListener {
+        default void instancesChanged() {
+        }
+
+        default void updated(@NotNull MonitoredTomcat instance) {
+        }
+    }
+
+}
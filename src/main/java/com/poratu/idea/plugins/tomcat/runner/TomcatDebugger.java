@@ -1,8 +1,10 @@
 package com.poratu.idea.plugins.tomcat.runner;
 
 import com.intellij.debugger.impl.GenericDebuggerRunner;
+import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.RunProfile;
 import com.intellij.execution.executors.DefaultDebugExecutor;
+import com.intellij.execution.runners.ExecutionEnvironment;
 import com.poratu.idea.plugins.tomcat.conf.TomcatRunConfiguration;
 import org.jetbrains.annotations.NotNull;
 
@@ -25,4 +27,13 @@ public class TomcatDebugger extends GenericDebuggerRunner {
         return (DefaultDebugExecutor.EXECUTOR_ID.equals(executorId) && profile instanceof TomcatRunConfiguration);
     }
 
+    @Override
+    public void execute(@NotNull ExecutionEnvironment environment) throws ExecutionException {
+        if (environment.getRunProfile() instanceof TomcatRunConfiguration) {
+            TomcatLaunchPreparation.execute(environment, state -> doExecute(state, environment));
+        } else {
+            super.execute(environment);
+        }
+    }
+
 }
@@ -0,0 +1,93 @@
+package com.poratu.idea.plugins.tomcat.runner;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.ExecutionManager;
+import com.intellij.execution.configurations.RunProfileState;
+import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.execution.ui.RunContentDescriptor;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.util.ThrowableConvertor;
+import com.poratu.idea.plugins.tomcat.conf.TomcatCommandLineState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.concurrency.AsyncPromise;
+import org.jetbrains.concurrency.Promise;
+
+/**
+ * Prepares a Tomcat launch in a cancellable background task, i.e. the ports, the copies of the configuration, the
+ * rewriting of the XML files and the deletion of the work files, then lets the runner start the processes on the EDT.
+ * <p>
+ * The launch goes through the execution manager as an asynchronous one, so the preparation only begins after the before
+ * launch tasks: the ports and the catalina.base are not held during the build, and the contexts are written once the
+ * compiler output exists.
+ */
+final class TomcatLaunchPreparation {
+
+    private TomcatLaunchPreparation() {
+    }
+
+    /**
+     * @param start starts the prepared state and returns its descriptor, i.e. the {@code doExecute} of the runner
+     */
+    static void execute(@NotNull ExecutionEnvironment environment,
+                        @NotNull ThrowableConvertor<RunProfileState, RunContentDescriptor, ExecutionException> start)
+            throws ExecutionException {
+        RunProfileState state = environment.getState();
+        if (!(state instanceof TomcatCommandLineState)) {
+            return;
+        }
+
+        TomcatCommandLineState tomcatState = (TomcatCommandLineState) state;
+        ExecutionManager.getInstance(environment.getProject())
+                .startRunProfile(environment, () -> prepare(environment, tomcatState, start));
+    }
+
+    private static Promise<RunContentDescriptor> prepare(ExecutionEnvironment environment, TomcatCommandLineState state,
+                                                         ThrowableConvertor<RunProfileState, RunContentDescriptor, ExecutionException> start) {
+        AsyncPromise<RunContentDescriptor> promise = new AsyncPromise<>();
+        new Task.Backgroundable(environment.getProject(), "Preparing " + environment.getRunProfile().getName(), true) {
+            private ExecutionException error;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    state.prepare(indicator);
+                } catch (ExecutionException e) {
+                    error = e;
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (error != null) {
+                    promise.setError(error);
+                    return;
+                }
+
+                try {
+                    promise.setResult(start.convert(state));
+                } catch (ExecutionException | RuntimeException e) {
+                    promise.setError(e);
+                } finally {
+                    // Release the ports and the catalina.base of a launch which didn't start
+                    if (state.isPrepared()) {
+                        state.cancelLaunch();
+                    }
+                }
+            }
+
+            @Override
+            public void onCancel() {
+                // The canceled preparation released what it took, there is nothing to show
+                promise.setResult(null);
+            }
+
+            @Override
+            public void onThrowable(@NotNull Throwable error) {
+                promise.setError(error);
+            }
+        }.queue();
+        return promise;
+    }
+
+}
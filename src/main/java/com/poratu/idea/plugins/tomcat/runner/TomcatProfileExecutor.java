@@ -0,0 +1,67 @@
+package com.poratu.idea.plugins.tomcat.runner;
+
+import com.intellij.execution.Executor;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.util.IconLoader;
+import com.intellij.openapi.wm.ToolWindowId;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+
+/**
+ * Runs Tomcat with Flight Recorder, the recording is controlled from the Profiler tab of the Tomcat Metrics tool window.
+ */
+public class TomcatProfileExecutor extends Executor {
+    public static final String EXECUTOR_ID = "SmartTomcatProfile";
+
+    @Override
+    public @NotNull String getToolWindowId() {
+        return ToolWindowId.RUN;
+    }
+
+    @Override
+    public @NotNull Icon getToolWindowIcon() {
+        return AllIcons.Actions.Profile;
+    }
+
+    @Override
+    public @NotNull Icon getIcon() {
+        return AllIcons.Actions.Profile;
+    }
+
+    @Override
+    public Icon getDisabledIcon() {
+        return IconLoader.getDisabledIcon(getIcon());
+    }
+
+    @Override
+    public String getDescription() {
+        return "Run Tomcat with Flight Recorder";
+    }
+
+    @Override
+    public @NotNull String getActionName() {
+        return "Profile with JFR";
+    }
+
+    @Override
+    public @NotNull String getId() {
+        return EXECUTOR_ID;
+    }
+
+    @Override
+    public @NotNull String getStartActionText() {
+        return "Profile with JFR";
+    }
+
+    @Override
+    public String getContextActionId() {
+        return "SmartTomcatProfileContext";
+    }
+
+    @Override
+    public String getHelpId() {
+        return null;
+    }
+
+}
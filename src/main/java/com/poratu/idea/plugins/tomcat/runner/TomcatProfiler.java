@@ -0,0 +1,33 @@
+package com.poratu.idea.plugins.tomcat.runner;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.RunProfile;
+import com.intellij.execution.impl.DefaultJavaProgramRunner;
+import com.intellij.execution.runners.ExecutionEnvironment;
+import com.poratu.idea.plugins.tomcat.conf.TomcatRunConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+public class TomcatProfiler extends DefaultJavaProgramRunner {
+    private static final String RUNNER_ID = "SmartTomcatProfiler";
+
+    @NotNull
+    @Override
+    public String getRunnerId() {
+        return RUNNER_ID;
+    }
+
+    @Override
+    public boolean canRun(@NotNull String executorId, @NotNull RunProfile runProfile) {
+        return TomcatProfileExecutor.EXECUTOR_ID.equals(executorId) && runProfile instanceof TomcatRunConfiguration;
+    }
+
+    @Override
+    public void execute(@NotNull ExecutionEnvironment environment) throws ExecutionException {
+        if (environment.getRunProfile() instanceof TomcatRunConfiguration) {
+            TomcatLaunchPreparation.execute(environment, state -> doExecute(state, environment));
+        } else {
+            super.execute(environment);
+        }
+    }
+
+}
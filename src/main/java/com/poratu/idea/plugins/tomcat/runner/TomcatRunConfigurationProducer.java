@@ -11,18 +11,24 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.util.containers.ContainerUtil;
 import com.poratu.idea.plugins.tomcat.conf.TomcatRunConfiguration;
 import com.poratu.idea.plugins.tomcat.conf.TomcatRunConfigurationType;
 import com.poratu.idea.plugins.tomcat.setting.TomcatInfo;
 import com.poratu.idea.plugins.tomcat.setting.TomcatServerManagerState;
 import com.poratu.idea.plugins.tomcat.utils.PluginUtils;
+import com.poratu.idea.plugins.tomcat.utils.WebRootIndex;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class TomcatRunConfigurationProducer extends LazyRunConfigurationProducer<TomcatRunConfiguration> {
     @NotNull
@@ -42,14 +48,15 @@ public class TomcatRunConfigurationProducer extends LazyRunConfigurationProducer
             return false;
         }
 
-        // Skip if it contains a main class, to avoid conflict with the default Application run configuration
-        PsiClass psiClass = ApplicationConfigurationType.getMainClass(context.getPsiLocation());
-        if (psiClass != null) {
+        // The cheap checks first, most of the locations are not in a web module
+        List<VirtualFile> webRoots = findWebRoots(context.getLocation());
+        if (webRoots.isEmpty()) {
             return false;
         }
 
-        List<VirtualFile> webRoots = findWebRoots(context.getLocation());
-        if (webRoots.isEmpty()) {
+        // Skip if it contains a main class, to avoid conflict with the default Application run configuration
+        PsiClass psiClass = ApplicationConfigurationType.getMainClass(context.getPsiLocation());
+        if (psiClass != null) {
             return false;
         }
 
@@ -70,27 +77,49 @@ public class TomcatRunConfigurationProducer extends LazyRunConfigurationProducer
         return false;
     }
 
+    /**
+     * Called for every Smart Tomcat configuration on every context evaluation, so it only looks up the memoized web
+     * roots of the module, and checks the test sources last
+     */
     @Override
     public boolean isConfigurationFromContext(@NotNull TomcatRunConfiguration configuration, @NotNull ConfigurationContext context) {
         if (Registry.is("smartTomcat.disableRunConfigurationProducer")) {
             return false;
         }
 
-        List<VirtualFile> webRoots = findWebRoots(context.getLocation());
-        return webRoots.stream().anyMatch(webRoot -> webRoot.getPath().equals(configuration.getDocBase()));
+        String docBase = configuration.getDocBase();
+        Location<?> location = context.getLocation();
+        Module module = location == null ? null : location.getModule();
+        if (docBase == null || module == null) {
+            return false;
+        }
+
+        return getWebRootPaths(module).contains(docBase) && !PluginUtils.isUnderTestSources(location);
     }
 
     private List<VirtualFile> findWebRoots(@Nullable Location<?> location) {
-        if (location == null) {
+        if (location == null || location.getModule() == null) {
             return ContainerUtil.emptyList();
         }
 
-        boolean isTestFile = PluginUtils.isUnderTestSources(location);
-        if (isTestFile) {
+        List<VirtualFile> webRoots = PluginUtils.findWebRoots(location.getModule());
+        if (webRoots.isEmpty() || PluginUtils.isUnderTestSources(location)) {
             return ContainerUtil.emptyList();
         }
 
-        return PluginUtils.findWebRoots(location.getModule());
+        return webRoots;
+    }
+
+    private static Set<String> getWebRootPaths(@NotNull Module module) {
+        return CachedValuesManager.getManager(module.getProject()).getCachedValue(module, () -> {
+            Set<String> paths = new HashSet<>();
+            for (VirtualFile webRoot : PluginUtils.findWebRoots(module)) {
+                paths.add(webRoot.getPath());
+            }
+            // The paths change with the index, or when a directory is renamed or moved
+            return CachedValueProvider.Result.create(paths, WebRootIndex.getInstance(module.getProject()),
+                    VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS);
+        });
     }
 
 }
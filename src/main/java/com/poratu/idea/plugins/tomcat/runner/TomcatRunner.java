@@ -1,8 +1,11 @@
 package com.poratu.idea.plugins.tomcat.runner;
 
+import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.RunProfile;
 import com.intellij.execution.executors.DefaultRunExecutor;
 import com.intellij.execution.impl.DefaultJavaProgramRunner;
+import com.intellij.execution.runners.ExecutionEnvironment;
+import com.poratu.idea.plugins.tomcat.conf.TomcatCompoundRunConfiguration;
 import com.poratu.idea.plugins.tomcat.conf.TomcatRunConfiguration;
 import org.jetbrains.annotations.NotNull;
 
@@ -22,7 +25,17 @@ public class TomcatRunner extends DefaultJavaProgramRunner {
 
     @Override
     public boolean canRun(@NotNull String executorId, @NotNull RunProfile runProfile) {
-        return (DefaultRunExecutor.EXECUTOR_ID.equals(executorId)) && runProfile instanceof TomcatRunConfiguration;
+        return (DefaultRunExecutor.EXECUTOR_ID.equals(executorId))
+                && (runProfile instanceof TomcatRunConfiguration || runProfile instanceof TomcatCompoundRunConfiguration);
+    }
+
+    @Override
+    public void execute(@NotNull ExecutionEnvironment environment) throws ExecutionException {
+        if (environment.getRunProfile() instanceof TomcatRunConfiguration) {
+            TomcatLaunchPreparation.execute(environment, state -> doExecute(state, environment));
+        } else {
+            super.execute(environment);
+        }
     }
 
 }
@@ -0,0 +1,214 @@
+package com.poratu.idea.plugins.tomcat.setting;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Searches the Tomcat installations in {@code CATALINA_HOME}, the common install locations and the directories chosen
+ * by the user. The directories are listed level by level on a bounded executor, down to the depth of their root, and
+ * the version of every installation found is read in the background.
+ */
+public final class TomcatDiscovery {
+    private static final Logger LOG = Logger.getInstance(TomcatDiscovery.class);
+
+    private static final int MAX_THREADS = 4;
+    private static final int USER_DIRECTORY_DEPTH = 4;
+
+    private TomcatDiscovery() {
+    }
+
+    /**
+     * A directory to search, and how deep
+     */
+    public static class Root {
+        private final Path path;
+        private final int maxDepth;
+
+        public Root(@NotNull Path path, int maxDepth) {
+            this.path = path;
+            this.maxDepth = maxDepth;
+        }
+    }
+
+    /**
+     * @return CATALINA_HOME and the common install locations of the OS which exist
+     */
+    public static List<Root> getDefaultRoots() {
+        List<Root> roots = new ArrayList<>();
+        String catalinaHome = System.getenv("CATALINA_HOME");
+        if (StringUtil.isNotEmpty(catalinaHome)) {
+            roots.add(new Root(Paths.get(catalinaHome), 0));
+        }
+
+        Path userHome = Paths.get(System.getProperty("user.home"));
+        roots.add(new Root(userHome, 2));
+        if (SystemInfo.isWindows) {
+            for (String programFiles : new String[]{System.getenv("ProgramFiles"), System.getenv("ProgramFiles(x86)")}) {
+                if (programFiles != null) {
+                    roots.add(new Root(Paths.get(programFiles, "Apache Software Foundation"), 1));
+                }
+            }
+            roots.add(new Root(Paths.get("C:\\"), 1));
+        } else {
+            roots.add(new Root(Paths.get("/opt"), 2));
+            roots.add(new Root(Paths.get("/usr/share"), 1));
+            roots.add(new Root(Paths.get("/usr/local"), 2));
+            roots.add(new Root(Paths.get("/var/lib"), 1));
+            if (SystemInfo.isMac) {
+                roots.add(new Root(Paths.get("/Library"), 1));
+                // Homebrew: Cellar/tomcat@9/9.0.80/libexec
+                roots.add(new Root(Paths.get("/usr/local/Cellar"), 3));
+                roots.add(new Root(Paths.get("/opt/homebrew/Cellar"), 3));
+            }
+        }
+
+        roots.removeIf(root -> !Files.isDirectory(root.path));
+        return roots;
+    }
+
+    public static Root createUserRoot(@NotNull Path path) {
+        return new Root(path, USER_DIRECTORY_DEPTH);
+    }
+
+    /**
+     * @param excludedPaths the paths of the installations which are registered already
+     * @return the installations found, named after their server info, sorted by path
+     */
+    public static List<TomcatInfo> discover(@NotNull Collection<Root> roots, @NotNull Set<String> excludedPaths,
+                                            @NotNull ProgressIndicator indicator) {
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("SmartTomcat Discovery", MAX_THREADS);
+        Map<Path, TomcatInfo> found = new ConcurrentHashMap<>();
+        Set<Path> visited = ConcurrentHashMap.newKeySet();
+        try {
+            List<Path> level = new ArrayList<>();
+            Map<Path, Integer> maxDepths = new LinkedHashMap<>();
+            for (Root root : roots) {
+                level.add(root.path);
+                maxDepths.merge(root.path, root.maxDepth, Math::max);
+            }
+
+            for (int depth = 0; !level.isEmpty(); depth++) {
+                indicator.checkCanceled();
+                indicator.setText2("Searching " + level.size() + " directories at depth " + depth);
+                int currentDepth = depth;
+                List<Future<List<Path>>> futures = new ArrayList<>();
+                for (Path dir : level) {
+                    // The roots are searched down to their own depth
+                    int maxDepth = maxDepths.getOrDefault(dir, 0);
+                    futures.add(executor.submit(visit(dir, currentDepth < maxDepth, found, visited, indicator)));
+                }
+
+                List<Path> nextLevel = new ArrayList<>();
+                Map<Path, Integer> nextMaxDepths = new LinkedHashMap<>();
+                for (int i = 0; i < futures.size(); i++) {
+                    int maxDepth = maxDepths.getOrDefault(level.get(i), 0);
+                    for (Path child : get(futures.get(i))) {
+                        nextLevel.add(child);
+                        nextMaxDepths.merge(child, maxDepth, Math::max);
+                    }
+                }
+                level = nextLevel;
+                maxDepths = nextMaxDepths;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<TomcatInfo> result = new ArrayList<>();
+        for (TomcatInfo info : found.values()) {
+            if (!excludedPaths.contains(normalize(Paths.get(info.getPath())))) {
+                result.add(info);
+            }
+        }
+        result.sort((a, b) -> a.getPath().compareTo(b.getPath()));
+        return result;
+    }
+
+    /**
+     * Check a directory, and list its subdirectories if it isn't an installation
+     *
+     * @return the subdirectories to search
+     */
+    private static Callable<List<Path>> visit(Path dir, boolean descend, Map<Path, TomcatInfo> found, Set<Path> visited,
+                                              ProgressIndicator indicator) {
+        return () -> {
+            List<Path> children = new ArrayList<>();
+            Path realDir;
+            try {
+                realDir = dir.toRealPath();
+            } catch (IOException e) {
+                return children;
+            }
+            if (indicator.isCanceled() || !visited.add(realDir)) {
+                return children;
+            }
+
+            if (TomcatServerManagerState.isTomcatHome(realDir.toString())) {
+                try {
+                    found.putIfAbsent(realDir, TomcatServerManagerState.readTomcatInfo(realDir.toString()));
+                } catch (IOException e) {
+                    LOG.info("Cannot read the version of " + realDir, e);
+                }
+                return children;
+            }
+
+            if (!descend) {
+                return children;
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(realDir, Files::isDirectory)) {
+                for (Path child : stream) {
+                    String name = child.getFileName().toString();
+                    if (!name.startsWith(".") && !"node_modules".equals(name)) {
+                        children.add(child);
+                    }
+                }
+            } catch (IOException | SecurityException e) {
+                // Not readable
+            }
+            return children;
+        };
+    }
+
+    private static List<Path> get(Future<List<Path>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException();
+        } catch (ExecutionException e) {
+            LOG.warn(e.getCause());
+            return new ArrayList<>();
+        }
+    }
+
+    static String normalize(Path path) {
+        try {
+            return path.toRealPath().toString();
+        } catch (IOException e) {
+            return path.toAbsolutePath().normalize().toString();
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.poratu.idea.plugins.tomcat.setting;
+
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.CheckBoxList;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.ui.FormBuilder;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offers the discovered Tomcat installations, all selected, for registration
+ */
+class TomcatDiscoveryDialog extends DialogWrapper {
+
+    private final List<TomcatInfo> tomcatInfos;
+    private final CheckBoxList<TomcatInfo> tomcatList = new CheckBoxList<>();
+
+    TomcatDiscoveryDialog(@NotNull List<TomcatInfo> tomcatInfos) {
+        super(true);
+        this.tomcatInfos = tomcatInfos;
+        for (TomcatInfo info : tomcatInfos) {
+            tomcatList.addItem(info, info.getName() + " — " + info.getPath(), true);
+        }
+        setTitle("Discovered Tomcat Servers");
+        setOKButtonText("Add");
+        init();
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        JBScrollPane scrollPane = new JBScrollPane(tomcatList);
+        scrollPane.setPreferredSize(JBUI.size(560, 300));
+        return FormBuilder.createFormBuilder()
+                .addLabeledComponentFillVertically("Select the servers to add:", scrollPane)
+                .getPanel();
+    }
+
+    List<TomcatInfo> getSelectedTomcatInfos() {
+        List<TomcatInfo> selected = new ArrayList<>();
+        for (TomcatInfo info : tomcatInfos) {
+            if (tomcatList.isItemSelected(info)) {
+                selected.add(info);
+            }
+        }
+        return selected;
+    }
+
+}
@@ -0,0 +1,267 @@
+package com.poratu.idea.plugins.tomcat.setting;
+
+import com.intellij.util.xmlb.annotations.XCollection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * What a launch needs to know of a Tomcat installation, read once and cached by {@link TomcatServerManagerState}.
+ * <p>
+ * The metadata is up to date as long as the modification times of {@code lib/catalina.jar}, {@code lib} and
+ * {@code bin} are unchanged, which takes three stats to check. An upgrade in place replaces catalina.jar, and adding or
+ * removing a jar modifies its directory.
+ */
+public class TomcatMetadata implements Serializable {
+    private static final String CATALINA_JAR = "lib/catalina.jar";
+    private static final String BOOTSTRAP_JAR = "bin/bootstrap.jar";
+    private static final String JULI_JAR = "bin/tomcat-juli.jar";
+
+    private String path;
+    private String serverInfo;
+    private String version;
+    private int majorVersion;
+    private boolean bootstrapJar;
+    private boolean juliJar;
+    private List<String> jars = new ArrayList<>();
+    private String fingerprint;
+    private long catalinaJarModified;
+    private long libModified;
+    private long binModified;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return e.g. "Apache Tomcat/9.0.80"
+     */
+    public String getServerInfo() {
+        return serverInfo;
+    }
+
+    public void setServerInfo(String serverInfo) {
+        this.serverInfo = serverInfo;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public int getMajorVersion() {
+        return majorVersion;
+    }
+
+    public void setMajorVersion(int majorVersion) {
+        this.majorVersion = majorVersion;
+    }
+
+    public boolean isBootstrapJar() {
+        return bootstrapJar;
+    }
+
+    public void setBootstrapJar(boolean bootstrapJar) {
+        this.bootstrapJar = bootstrapJar;
+    }
+
+    public boolean isJuliJar() {
+        return juliJar;
+    }
+
+    public void setJuliJar(boolean juliJar) {
+        this.juliJar = juliJar;
+    }
+
+    /**
+     * @return the names of the jars of {@code lib}, sorted
+     */
+    @XCollection(elementName = "jar")
+    public List<String> getJars() {
+        return jars;
+    }
+
+    public void setJars(List<String> jars) {
+        this.jars = jars;
+    }
+
+    /**
+     * @return a hash of the names, sizes and modification times of catalina.jar, the bootstrap jars and the jars of
+     * {@code lib}, which changes whenever the installation does
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public long getCatalinaJarModified() {
+        return catalinaJarModified;
+    }
+
+    public void setCatalinaJarModified(long catalinaJarModified) {
+        this.catalinaJarModified = catalinaJarModified;
+    }
+
+    public long getLibModified() {
+        return libModified;
+    }
+
+    public void setLibModified(long libModified) {
+        this.libModified = libModified;
+    }
+
+    public long getBinModified() {
+        return binModified;
+    }
+
+    public void setBinModified(long binModified) {
+        this.binModified = binModified;
+    }
+
+    /**
+     * @return whether the jars started by a launch are there
+     */
+    public boolean isLaunchable() {
+        return bootstrapJar && juliJar;
+    }
+
+    boolean isUpToDate() {
+        Path home = Paths.get(path);
+        return lastModified(home.resolve(CATALINA_JAR)) == catalinaJarModified
+                && lastModified(home.resolve("lib")) == libModified
+                && lastModified(home.resolve("bin")) == binModified;
+    }
+
+    /**
+     * Read the metadata of an installation
+     *
+     * @param previous the metadata read before, whose version is reused when catalina.jar is unchanged
+     * @throws IOException if there is no catalina.jar, or no version in it
+     */
+    static TomcatMetadata read(@NotNull String tomcatHome, @Nullable TomcatMetadata previous) throws IOException {
+        Path home = Paths.get(tomcatHome);
+        Path catalinaJar = home.resolve(CATALINA_JAR);
+        TomcatMetadata metadata = new TomcatMetadata();
+        metadata.path = tomcatHome;
+        // Stat before reading, so that a change during the reading is found by the next check
+        metadata.catalinaJarModified = lastModified(catalinaJar);
+        metadata.libModified = lastModified(home.resolve("lib"));
+        metadata.binModified = lastModified(home.resolve("bin"));
+        if (metadata.catalinaJarModified < 0) {
+            throw new IOException("Can not find catalina.jar in " + tomcatHome);
+        }
+
+        if (previous != null && previous.catalinaJarModified == metadata.catalinaJarModified && previous.version != null) {
+            metadata.serverInfo = previous.serverInfo;
+            metadata.version = previous.version;
+        } else {
+            readServerInfo(catalinaJar, metadata);
+        }
+        metadata.majorVersion = parseMajorVersion(metadata.version);
+        metadata.bootstrapJar = Files.isRegularFile(home.resolve(BOOTSTRAP_JAR));
+        metadata.juliJar = Files.isRegularFile(home.resolve(JULI_JAR));
+
+        MessageDigest digest = createDigest();
+        for (String file : new String[]{CATALINA_JAR, BOOTSTRAP_JAR, JULI_JAR}) {
+            update(digest, home.resolve(file), file);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(home.resolve("lib"), "*.jar")) {
+            for (Path file : files) {
+                metadata.jars.add(file.getFileName().toString());
+            }
+        }
+        Collections.sort(metadata.jars);
+        for (String jar : metadata.jars) {
+            update(digest, home.resolve("lib").resolve(jar), jar);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        metadata.fingerprint = sb.toString();
+        return metadata;
+    }
+
+    private static void readServerInfo(Path catalinaJar, TomcatMetadata metadata) throws IOException {
+        try (JarFile jar = new JarFile(catalinaJar.toFile())) {
+            ZipEntry entry = jar.getEntry("org/apache/catalina/util/ServerInfo.properties");
+            if (entry == null) {
+                throw new IOException("No ServerInfo.properties in " + catalinaJar);
+            }
+            Properties p = new Properties();
+            try (InputStream is = jar.getInputStream(entry)) {
+                p.load(is);
+            }
+            metadata.serverInfo = p.getProperty("server.info");
+            metadata.version = p.getProperty("server.number");
+        }
+        if (metadata.version == null && metadata.serverInfo != null) {
+            // The oldest versions only have "Apache Tomcat/6.0.53"
+            metadata.version = metadata.serverInfo.substring(metadata.serverInfo.indexOf('/') + 1);
+        }
+        if (metadata.version == null) {
+            throw new IOException("No version in " + catalinaJar);
+        }
+    }
+
+    private static int parseMajorVersion(String version) {
+        int end = 0;
+        while (end < version.length() && Character.isDigit(version.charAt(end))) {
+            end++;
+        }
+        return end == 0 ? 0 : Integer.parseInt(version.substring(0, end));
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static MessageDigest createDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, Path file, String name) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            size = -1;
+        }
+        digest.update((name + ':' + size + ':' + lastModified(file) + '\n').getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -4,25 +4,30 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.State;
 import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.xmlb.XmlSerializerUtil;
 import com.intellij.util.xmlb.annotations.XCollection;
 import com.poratu.idea.plugins.tomcat.utils.PluginUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.UnaryOperator;
-import java.util.jar.JarFile;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
 
 /**
  * Author : zengkid
@@ -32,10 +37,17 @@ import java.util.zip.ZipEntry;
 
 @State(name = "ServerConfiguration", storages = @Storage("smart.tomcat.xml"))
 public class TomcatServerManagerState implements PersistentStateComponent<TomcatServerManagerState> {
+    private static final Logger LOG = Logger.getInstance(TomcatServerManagerState.class);
 
     @XCollection(elementTypes = TomcatInfo.class)
     private final List<TomcatInfo> tomcatInfos = new ArrayList<>();
 
+    // Validated at launch and in the background, while the settings may be saved
+    @XCollection(elementTypes = TomcatMetadata.class)
+    private final List<TomcatMetadata> tomcatMetadata = new CopyOnWriteArrayList<>();
+
+    private final Set<String> missingHomes = ConcurrentHashMap.newKeySet();
+
     public static TomcatServerManagerState getInstance() {
         return ApplicationManager.getApplication().getService(TomcatServerManagerState.class);
     }
@@ -61,34 +73,108 @@ public class TomcatServerManagerState implements PersistentStateComponent<Tomcat
     }
 
     public static Optional<TomcatInfo> createTomcatInfo(String tomcatHome, UnaryOperator<String> nameGenerator) {
-        File jarFile = Paths.get(tomcatHome, "lib/catalina.jar").toFile();
-        if (!jarFile.exists()) {
+        if (!isTomcatHome(tomcatHome)) {
             Messages.showErrorDialog("Can not find catalina.jar in " + tomcatHome, "Error");
             return Optional.empty();
         }
 
-        final TomcatInfo tomcatInfo = new TomcatInfo();
-        tomcatInfo.setPath(tomcatHome);
-
-        try (JarFile jar = new JarFile(jarFile)) {
-            ZipEntry entry = jar.getEntry("org/apache/catalina/util/ServerInfo.properties");
-            Properties p = new Properties();
-            try (InputStream is = jar.getInputStream(entry)) {
-                p.load(is);
-            }
-            String serverInfo = p.getProperty("server.info");
-            String serverNumber = p.getProperty("server.number");
-            String name = nameGenerator == null ? generateTomcatName(serverInfo) : nameGenerator.apply(serverInfo);
-            tomcatInfo.setName(name);
-            tomcatInfo.setVersion(serverNumber);
+        final TomcatInfo tomcatInfo;
+        try {
+            tomcatInfo = readTomcatInfo(tomcatHome);
         } catch (IOException e) {
             Messages.showErrorDialog("Can not read server version in " + tomcatHome, "Error");
             return Optional.empty();
         }
 
+        String serverInfo = tomcatInfo.getName();
+        tomcatInfo.setName(nameGenerator == null ? generateTomcatName(serverInfo) : nameGenerator.apply(serverInfo));
         return Optional.of(tomcatInfo);
     }
 
+    static boolean isTomcatHome(String tomcatHome) {
+        return Paths.get(tomcatHome, "lib/catalina.jar").toFile().isFile();
+    }
+
+    /**
+     * Read the version of a Tomcat installation, without any UI so that it can run in the background
+     *
+     * @return the installation, named after its server info, e.g. "Apache Tomcat/9.0.80"
+     */
+    static TomcatInfo readTomcatInfo(String tomcatHome) throws IOException {
+        TomcatMetadata metadata = TomcatMetadata.read(tomcatHome, null);
+        getInstance().putMetadata(metadata);
+
+        final TomcatInfo tomcatInfo = new TomcatInfo();
+        tomcatInfo.setPath(tomcatHome);
+        tomcatInfo.setName(metadata.getServerInfo());
+        tomcatInfo.setVersion(metadata.getVersion());
+        return tomcatInfo;
+    }
+
+    /**
+     * Check an installation against its cached metadata, and read it again if it changed since
+     *
+     * @return the current metadata, or null if the installation was moved or deleted
+     */
+    @Nullable
+    public TomcatMetadata validate(@NotNull TomcatInfo tomcatInfo) {
+        String tomcatHome = tomcatInfo.getPath();
+        TomcatMetadata cached = findMetadata(tomcatHome);
+        if (cached != null && cached.isUpToDate()) {
+            missingHomes.remove(tomcatHome);
+            return cached;
+        }
+
+        TomcatMetadata metadata;
+        try {
+            metadata = TomcatMetadata.read(tomcatHome, cached);
+        } catch (IOException e) {
+            LOG.info("Tomcat server " + tomcatInfo.getName() + " is not valid anymore", e);
+            missingHomes.add(tomcatHome);
+            return null;
+        }
+        if (cached != null && !metadata.getVersion().equals(cached.getVersion())) {
+            LOG.info("Tomcat server " + tomcatInfo.getName() + " was upgraded from " + cached.getVersion() + " to " + metadata.getVersion());
+        }
+        putMetadata(metadata);
+        missingHomes.remove(tomcatHome);
+        return metadata;
+    }
+
+    /**
+     * @return whether the last validation found no installation, without touching the file system
+     */
+    public boolean isMissing(@NotNull TomcatInfo tomcatInfo) {
+        return missingHomes.contains(tomcatInfo.getPath());
+    }
+
+    /**
+     * Validate every registered installation, and forget the metadata of the others
+     */
+    public void revalidate() {
+        Set<String> registeredHomes = new HashSet<>();
+        for (TomcatInfo tomcatInfo : new ArrayList<>(tomcatInfos)) {
+            registeredHomes.add(tomcatInfo.getPath());
+            validate(tomcatInfo);
+        }
+        tomcatMetadata.removeIf(cached -> !registeredHomes.contains(cached.getPath()));
+    }
+
+    @Nullable
+    private TomcatMetadata findMetadata(String tomcatHome) {
+        for (TomcatMetadata cached : tomcatMetadata) {
+            if (cached.getPath().equals(tomcatHome)) {
+                return cached;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void putMetadata(TomcatMetadata newMetadata) {
+        tomcatMetadata.removeIf(cached -> cached.getPath().equals(newMetadata.getPath()));
+        tomcatMetadata.add(newMetadata);
+    }
+
     private static String generateTomcatName(String name) {
         List<TomcatInfo> existingServers = getInstance().getTomcatInfos();
         List<String> existingNames = existingServers.stream()
@@ -98,4 +184,18 @@ public class TomcatServerManagerState implements PersistentStateComponent<Tomcat
         return PluginUtils.generateSequentName(existingNames, name);
     }
 
+    /**
+     * Revalidates the installations in the background once the IDE started, so that the first launch doesn't
+     */
+    public static class Revalidation implements StartupActivity, DumbAware {
+        private static final AtomicBoolean DONE = new AtomicBoolean();
+
+        @Override
+        public void runActivity(@NotNull Project project) {
+            if (DONE.compareAndSet(false, true)) {
+                AppExecutorUtil.getAppExecutorService().execute(() -> getInstance().revalidate());
+            }
+        }
+    }
+
 }
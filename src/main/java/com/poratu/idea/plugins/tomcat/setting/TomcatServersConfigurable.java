@@ -1,18 +1,33 @@
 package com.poratu.idea.plugins.tomcat.setting;
 
+import com.intellij.icons.AllIcons;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.project.DumbAwareAction;
 import com.intellij.openapi.ui.MasterDetailsComponent;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.CommonActionsPanel;
 import com.intellij.util.IconUtil;
+import com.poratu.idea.plugins.tomcat.conf.CatalinaBaseGarbageCollector;
 import com.poratu.idea.plugins.tomcat.utils.PluginUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Author : zengkid
@@ -39,8 +54,10 @@ public class TomcatServersConfigurable extends MasterDetailsComponent {
     protected @Nullable List<AnAction> createActions(boolean fromPopup) {
         List<AnAction> actions = new ArrayList<>();
         actions.add(new AddTomcatAction());
+        actions.add(new DiscoverTomcatAction());
         // noinspection MissingRecentApi - the inspection of the next line is incorrect. It is available in 193+, actually
         actions.add(new MyDeleteAction());
+        actions.add(new CleanUpBasesAction());
         return actions;
     }
 
@@ -85,7 +102,7 @@ public class TomcatServersConfigurable extends MasterDetailsComponent {
         return TomcatServerManagerState.getInstance().getTomcatInfos().contains(editableObject);
     }
 
-    private void addNode(TomcatInfo tomcatInfo, boolean selectInTree) {
+    private MyNode addNode(TomcatInfo tomcatInfo, boolean selectInTree) {
         TomcatInfoConfigurable configurable = new TomcatInfoConfigurable(tomcatInfo, TREE_UPDATER, this::validateName);
         MyNode node = new MyNode(configurable);
         addNode(node, myRoot);
@@ -93,6 +110,18 @@ public class TomcatServersConfigurable extends MasterDetailsComponent {
         if (selectInTree) {
             selectNodeInTree(node);
         }
+        return node;
+    }
+
+    private String createUniqueName(String preferredName) {
+        List<String> existingNames = new ArrayList<>();
+
+        for (int i = 0; i < myRoot.getChildCount(); i++) {
+            String displayName = ((MyNode) myRoot.getChildAt(i)).getDisplayName();
+            existingNames.add(displayName);
+        }
+
+        return PluginUtils.generateSequentName(existingNames, preferredName);
     }
 
     private void validateName(String name) throws ConfigurationException {
@@ -112,18 +141,86 @@ public class TomcatServersConfigurable extends MasterDetailsComponent {
 
         @Override
         public void actionPerformed(@NotNull AnActionEvent e) {
-            PluginUtils.chooseTomcat(this::createUniqueName, tomcatInfo -> addNode(tomcatInfo, true));
+            PluginUtils.chooseTomcat(TomcatServersConfigurable.this::createUniqueName, tomcatInfo -> addNode(tomcatInfo, true));
         }
+    }
 
-        private String createUniqueName(String preferredName) {
-            List<String> existingNames = new ArrayList<>();
+    private class DiscoverTomcatAction extends DumbAwareAction {
+        public DiscoverTomcatAction() {
+            super("Discover", "Search the Tomcat servers in CATALINA_HOME, the common install locations and a directory", AllIcons.Actions.Search);
+        }
 
+        @Override
+        public void actionPerformed(@NotNull AnActionEvent e) {
+            FileChooserDescriptor descriptor = FileChooserDescriptorFactory
+                    .createSingleFolderDescriptor()
+                    .withTitle("Discover Tomcat Servers")
+                    .withDescription("Select a directory to search as well, or cancel to search the common locations only");
+            VirtualFile directory = FileChooser.chooseFile(descriptor, null, null);
+
+            List<TomcatDiscovery.Root> roots = TomcatDiscovery.getDefaultRoots();
+            if (directory != null) {
+                roots.add(TomcatDiscovery.createUserRoot(Paths.get(directory.getPath())));
+            }
+            Set<String> registeredPaths = new HashSet<>();
             for (int i = 0; i < myRoot.getChildCount(); i++) {
-                String displayName = ((MyNode) myRoot.getChildAt(i)).getDisplayName();
-                existingNames.add(displayName);
+                TomcatInfoConfigurable configurable = (TomcatInfoConfigurable) ((MyNode) myRoot.getChildAt(i)).getConfigurable();
+                registeredPaths.add(TomcatDiscovery.normalize(Paths.get(configurable.getEditableObject().getPath())));
             }
 
-            return PluginUtils.generateSequentName(existingNames, preferredName);
+            new Task.Backgroundable(null, "Discovering Tomcat servers", true) {
+                private List<TomcatInfo> found;
+
+                @Override
+                public void run(@NotNull ProgressIndicator indicator) {
+                    found = TomcatDiscovery.discover(roots, registeredPaths, indicator);
+                }
+
+                @Override
+                public void onSuccess() {
+                    if (found.isEmpty()) {
+                        Messages.showInfoMessage("No other Tomcat server was found.", "Discover Tomcat Servers");
+                        return;
+                    }
+
+                    TomcatDiscoveryDialog dialog = new TomcatDiscoveryDialog(found);
+                    if (!dialog.showAndGet()) {
+                        return;
+                    }
+                    MyNode lastNode = null;
+                    for (TomcatInfo info : dialog.getSelectedTomcatInfos()) {
+                        info.setName(createUniqueName(info.getName()));
+                        lastNode = addNode(info, false);
+                    }
+                    if (lastNode != null) {
+                        selectNodeInTree(lastNode);
+                    }
+                }
+            }.queue();
+        }
+    }
+
+    private static class CleanUpBasesAction extends DumbAwareAction {
+        public CleanUpBasesAction() {
+            super("Clean Up", "Remove the catalina.base directories of the deleted projects and modules", AllIcons.Actions.GC);
+        }
+
+        @Override
+        public void actionPerformed(@NotNull AnActionEvent e) {
+            List<Project> openProjects = Arrays.asList(ProjectManager.getInstance().getOpenProjects());
+            new Task.Backgroundable(null, "Cleaning up the catalina.base directories", true) {
+                private CatalinaBaseGarbageCollector.Result result;
+
+                @Override
+                public void run(@NotNull ProgressIndicator indicator) {
+                    result = CatalinaBaseGarbageCollector.collect(openProjects, indicator);
+                }
+
+                @Override
+                public void onSuccess() {
+                    Messages.showInfoMessage(result.render(), "Clean Up Tomcat Bases");
+                }
+            }.queue();
         }
     }
 
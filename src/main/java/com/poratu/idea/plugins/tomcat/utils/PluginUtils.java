@@ -10,13 +10,15 @@ import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.options.ConfigurationException;
 import com.intellij.openapi.options.ShowSettingsUtil;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ModuleFileIndex;
-import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.projectRoots.JavaSdk;
+import com.intellij.openapi.projectRoots.JavaSdkVersion;
+import com.intellij.openapi.projectRoots.Sdk;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ArrayUtil;
+import com.poratu.idea.plugins.tomcat.conf.CatalinaBaseStore;
 import com.poratu.idea.plugins.tomcat.conf.TomcatRunConfiguration;
 import com.poratu.idea.plugins.tomcat.setting.TomcatInfo;
 import com.poratu.idea.plugins.tomcat.setting.TomcatServerManagerState;
@@ -33,6 +35,7 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -54,6 +57,8 @@ import java.util.stream.Stream;
 public final class PluginUtils {
     private static final int MIN_PORT_VALUE = 0;
     private static final int MAX_PORT_VALUE = 65535;
+    // e.g. "1.8.0_262"
+    private static final Pattern JAVA_8_UPDATE = Pattern.compile("1\\.8\\.0_(\\d+)");
 
     private PluginUtils() {
     }
@@ -101,7 +106,6 @@ public final class PluginUtils {
 
     @Nullable
     private static Path defaultCatalinaBase(TomcatRunConfiguration configuration) {
-        String userHome = System.getProperty("user.home");
         Project project = configuration.getProject();
         Module module = configuration.getModule();
 
@@ -109,7 +113,7 @@ public final class PluginUtils {
             return null;
         }
 
-        Path path = Paths.get(userHome, ".SmartTomcat", project.getName(), module.getName());
+        Path path = CatalinaBaseStore.getRoot().resolve(project.getName()).resolve(module.getName());
         if (!Files.exists(path)) {
             try {
                 Files.createDirectories(path);
@@ -196,54 +200,48 @@ public final class PluginUtils {
         }
     }
 
+    /**
+     * Parse an optional positive integer from a form field
+     *
+     * @param text  the text of the field
+     * @param label the label of the field, used in the error message
+     * @return {@code null} if the text is empty, the parsed value otherwise
+     */
+    @Nullable
+    public static Integer parseOptionalPositiveInt(String text, String label) throws ConfigurationException {
+        if (StringUtil.isEmptyOrSpaces(text)) {
+            return null;
+        }
+
+        try {
+            int value = Integer.parseInt(text.trim());
+            if (value <= 0) {
+                throw new ConfigurationException(label + " must be greater than 0");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new ConfigurationException(label + " must be an integer");
+        }
+    }
+
     public static String extractContextPath(Module module) {
         String name = module.getName();
         String s = StringUtil.trimEnd(name, ".main");
         return ArrayUtil.getLastElement(s.split("\\."));
     }
 
+    /**
+     * @return the web roots of the module, from the {@link WebRootIndex} of the project
+     */
     public static List<VirtualFile> findWebRoots(Module module) {
-        List<VirtualFile> webRoots = new ArrayList<>();
         if (module == null) {
-            return webRoots;
-        }
-
-        ModuleRootManager moduleRootManager = ModuleRootManager.getInstance(module);
-        ModuleFileIndex fileIndex = moduleRootManager.getFileIndex();
-        VirtualFile[] sourceRoots = moduleRootManager.getSourceRoots(false);
-        List<VirtualFile> parentRoots = Stream.of(sourceRoots)
-                .map(VirtualFile::getParent)
-                .distinct()
-                .collect(Collectors.toList());
-
-        for (VirtualFile parentRoot : parentRoots) {
-            fileIndex.iterateContentUnderDirectory(parentRoot, file -> {
-                Path path = Paths.get(file.getPath(), "WEB-INF");
-                if (Files.exists(path)) {
-                    webRoots.add(file);
-                }
-                return true;
-            }, file -> {
-                if (file.isDirectory()) {
-                    String path = file.getPath();
-                    return webRoots.stream().noneMatch(root -> file.getPath().startsWith(root.getPath())) && !path.contains("node_modules");
-                }
-                return false;
-            });
+            return new ArrayList<>();
         }
-
-        return webRoots;
+        return WebRootIndex.getInstance(module.getProject()).getWebRoots(module);
     }
 
     public static List<VirtualFile> findWebRoots(Project project) {
-        Module[] modules = ModuleManager.getInstance(project).getModules();
-        List<VirtualFile> webRoots = new ArrayList<>();
-
-        for (Module module : modules) {
-            webRoots.addAll(findWebRoots(module));
-        }
-
-        return webRoots;
+        return WebRootIndex.getInstance(project).getWebRoots();
     }
 
     public static boolean isUnderTestSources(@Nullable Location<?> location) {
@@ -327,4 +325,55 @@ public final class PluginUtils {
         return false;
     }
 
+    /**
+     * @return whether the SDK runs Java 9 or later, e.g. to use the unified JVM logging
+     */
+    public static boolean isJava9OrLater(@Nullable Sdk sdk) {
+        return isJavaAtLeast(sdk, JavaSdkVersion.JDK_1_9);
+    }
+
+    /**
+     * @return whether the SDK runs the given version of Java or a later one
+     */
+    public static boolean isJavaAtLeast(@Nullable Sdk sdk, @NotNull JavaSdkVersion minVersion) {
+        JavaSdkVersion version = sdk == null ? null : JavaSdk.getInstance().getVersion(sdk);
+        return version != null && version.isAtLeast(minVersion);
+    }
+
+    /**
+     * @return whether the JVM of the SDK has the Flight Recorder without a commercial unlock, i.e. Java 11 or later, or
+     * Java 8 from update 262, and not OpenJ9, which would refuse the JFR options and not start at all
+     */
+    public static boolean isJfrSupported(@Nullable Sdk sdk) {
+        JavaSdkVersion version = sdk == null ? null : JavaSdk.getInstance().getVersion(sdk);
+        if (version == null || !version.isAtLeast(JavaSdkVersion.JDK_1_8) || isOpenJ9(sdk)) {
+            return false;
+        }
+        if (version.isAtLeast(JavaSdkVersion.JDK_11)) {
+            return true;
+        }
+        if (version != JavaSdkVersion.JDK_1_8) {
+            return false;
+        }
+        Matcher matcher = JAVA_8_UPDATE.matcher(StringUtil.notNullize(sdk.getVersionString()));
+        return matcher.find() && Integer.parseInt(matcher.group(1)) >= 262;
+    }
+
+    private static boolean isOpenJ9(Sdk sdk) {
+        if (StringUtil.containsIgnoreCase(StringUtil.notNullize(sdk.getVersionString()), "openj9")) {
+            return true;
+        }
+        String homePath = sdk.getHomePath();
+        if (homePath == null) {
+            return false;
+        }
+        Path release = Paths.get(homePath, "release");
+        try {
+            return Files.isRegularFile(release)
+                    && StringUtil.containsIgnoreCase(new String(Files.readAllBytes(release), StandardCharsets.UTF_8), "openj9");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
 }
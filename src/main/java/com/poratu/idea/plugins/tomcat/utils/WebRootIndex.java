@@ -0,0 +1,218 @@
+package com.poratu.idea.plugins.tomcat.utils;
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleFileIndex;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.startup.StartupActivity;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The web roots of the modules of the project, i.e. the directories with a {@code WEB-INF}, under the parents of the
+ * source roots. The index is built in the background when the project is opened, and rebuilt when the module roots
+ * change or a file event may add or remove a web root, so that the run configuration producer never walks the
+ * project on the context menu.
+ * <p>
+ * Until the index is built, the web roots of a module are computed on the first query, then cached.
+ */
+public final class WebRootIndex implements ModificationTracker, Disposable {
+    private static final String WEB_INF = "WEB-INF";
+    // Merge the events of a checkout or a build into a single rebuild
+    private static final long REBUILD_DELAY_MILLIS = 500;
+
+    private final Project project;
+    private volatile Map<Module, List<VirtualFile>> webRoots = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    public WebRootIndex(@NotNull Project project) {
+        this.project = project;
+
+        MessageBusConnection connection = project.getMessageBus().connect(this);
+        connection.subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
+            @Override
+            public void rootsChanged(@NotNull ModuleRootEvent event) {
+                scheduleRebuild();
+            }
+        });
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    if (mayChangeWebRoots(event)) {
+                        scheduleRebuild();
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    public static WebRootIndex getInstance(@NotNull Project project) {
+        return project.getService(WebRootIndex.class);
+    }
+
+    /**
+     * @return the web roots of the module, the outermost first
+     */
+    public List<VirtualFile> getWebRoots(@NotNull Module module) {
+        List<VirtualFile> roots = webRoots.get(module);
+        if (roots == null) {
+            roots = ReadAction.compute(() -> module.isDisposed() ? Collections.<VirtualFile>emptyList() : computeWebRoots(module));
+            webRoots.putIfAbsent(module, roots);
+        }
+        for (VirtualFile root : roots) {
+            if (!root.isValid()) {
+                scheduleRebuild();
+                List<VirtualFile> validRoots = new ArrayList<>(roots);
+                validRoots.removeIf(file -> !file.isValid());
+                return validRoots;
+            }
+        }
+        return roots;
+    }
+
+    public List<VirtualFile> getWebRoots() {
+        List<VirtualFile> roots = new ArrayList<>();
+        for (Module module : ModuleManager.getInstance(project).getModules()) {
+            roots.addAll(getWebRoots(module));
+        }
+        return roots;
+    }
+
+    private boolean mayChangeWebRoots(VFileEvent event) {
+        if (event instanceof VFileDeleteEvent) {
+            return WEB_INF.equals(((VFileDeleteEvent) event).getFile().getName()) || isKnownRootOrAncestor(event.getPath());
+        }
+        if (!(event instanceof VFileCreateEvent || event instanceof VFileCopyEvent || event instanceof VFileMoveEvent)) {
+            return false;
+        }
+
+        VirtualFile file = event.getFile();
+        if (file == null || !file.isValid() || !file.isDirectory()) {
+            return false;
+        }
+        // A directory with a web root inside may be created or moved at once
+        return WEB_INF.equals(file.getName())
+                || ReadAction.compute(() -> !project.isDisposed() && ProjectFileIndex.getInstance(project).isInContent(file));
+    }
+
+    private boolean isKnownRootOrAncestor(String path) {
+        String prefix = path + "/";
+        for (List<VirtualFile> roots : webRoots.values()) {
+            for (VirtualFile root : roots) {
+                String rootPath = root.isValid() ? root.getPath() : null;
+                if (rootPath == null || rootPath.equals(path) || rootPath.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+            rebuildScheduled.set(false);
+            ReadAction.nonBlocking(this::computeAll)
+                    .expireWith(this)
+                    .submit(AppExecutorUtil.getAppExecutorService())
+                    .onSuccess(all -> {
+                        webRoots = all;
+                        modificationCount.incrementAndGet();
+                    });
+        }, REBUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private Map<Module, List<VirtualFile>> computeAll() {
+        Map<Module, List<VirtualFile>> all = new ConcurrentHashMap<>();
+        for (Module module : ModuleManager.getInstance(project).getModules()) {
+            all.put(module, computeWebRoots(module));
+        }
+        return all;
+    }
+
+    private static List<VirtualFile> computeWebRoots(Module module) {
+        ModuleRootManager moduleRootManager = ModuleRootManager.getInstance(module);
+        ModuleFileIndex fileIndex = moduleRootManager.getFileIndex();
+        Set<VirtualFile> parentRoots = new LinkedHashSet<>();
+        for (VirtualFile sourceRoot : moduleRootManager.getSourceRoots(false)) {
+            if (sourceRoot.getParent() != null) {
+                parentRoots.add(sourceRoot.getParent());
+            }
+        }
+
+        Set<VirtualFile> roots = new LinkedHashSet<>();
+        Set<VirtualFile> visited = new HashSet<>();
+        for (VirtualFile parentRoot : parentRoots) {
+            fileIndex.iterateContentUnderDirectory(parentRoot, file -> {
+                if (file.findChild(WEB_INF) != null) {
+                    roots.add(file);
+                }
+                return true;
+            }, file -> {
+                // A web root is not searched for other web roots. The directories are filtered before their
+                // children, so checking the parent excludes the whole tree
+                return file.isDirectory() && !"node_modules".equals(file.getName())
+                        && !roots.contains(file.getParent()) && visited.add(file);
+            });
+        }
+        return Collections.unmodifiableList(new ArrayList<>(roots));
+    }
+
+    /**
+     * Incremented when the index was rebuilt
+     */
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    /**
+     * Builds the index when the project is opened
+     */
+    public static class Warmup implements StartupActivity, DumbAware {
+        @Override
+        public void runActivity(@NotNull Project project) {
+            getInstance(project).scheduleRebuild();
+        }
+    }
+
+}
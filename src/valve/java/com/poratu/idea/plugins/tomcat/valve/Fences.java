@@ -0,0 +1,48 @@
+package com.poratu.idea.plugins.tomcat.valve;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * The store fence ordering the writes to the mapped ring file, for the reader in the IDE process.
+ * <p>
+ * {@code VarHandle.releaseFence} on Java 9+, {@code Unsafe.storeFence} on Java 8, both looked up reflectively since
+ * the valve is compiled for Java 8.
+ */
+final class Fences {
+    private static final MethodHandle STORE_FENCE = findStoreFence();
+
+    private Fences() {
+    }
+
+    static void storeFence() {
+        if (STORE_FENCE != null) {
+            try {
+                STORE_FENCE.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static MethodHandle findStoreFence() {
+        MethodType type = MethodType.methodType(void.class);
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName("java.lang.invoke.VarHandle"), "releaseFence", type);
+        } catch (ReflectiveOperationException e) {
+            // Java 8
+        }
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup().findVirtual(unsafeClass, "storeFence", type).bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Left to the ordering of the processor
+            return null;
+        }
+    }
+
+}
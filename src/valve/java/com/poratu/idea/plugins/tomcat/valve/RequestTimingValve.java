@@ -0,0 +1,138 @@
+package com.poratu.idea.plugins.tomcat.valve;
+
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the timing of every request into a memory-mapped ring file, which is read by the IDE.
+ * <p>
+ * Layout of the file, see {@code RequestTimingReader} for the reading side:
+ * <pre>
+ * header (64 bytes):  int magic | int version | int capacity | int recordSize
+ * record (32 bytes):  long sequence + 1 | long start (epoch millis) | long duration (nanos) | int URI hash | int status
+ * </pre>
+ * The sequence of a record is cleared before and written after its fields, with store fences in between, so that
+ * the reader never takes the fields of a record being written. The requests complete out of order, so there is no
+ * published position: the reader follows the sequences of the records, and waits for a record which is being written.
+ * <p>
+ * The asynchronous requests are not recorded, their end is only known to an {@code AsyncListener}, which would tie
+ * the valve to one of the Servlet APIs.
+ * <p>
+ * This class is compiled separately from the plugin, and loaded by the common class loader of Tomcat.
+ * It only refers to the Servlet API in the throws clause of {@link #invoke}, which is never resolved at runtime,
+ * so that it works with both the {@code javax} and the {@code jakarta} versions of Tomcat.
+ */
+public class RequestTimingValve extends ValveBase {
+    static final int MAGIC = 0x53545254; // STRT
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 32;
+
+    private String file;
+    private int capacity = 65536;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private MappedByteBuffer buffer;
+
+    public RequestTimingValve() {
+        super(true);
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    protected synchronized void startInternal() throws LifecycleException {
+        if (file != null) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+                raf.setLength(size);
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, capacity);
+                buffer.putInt(12, RECORD_SIZE);
+                sequence.set(findNextSequence(buffer));
+            } catch (IOException e) {
+                // Never break the application because of the timings
+                containerLog.warn("Failed to map the request timing file " + file, e);
+                buffer = null;
+            }
+        }
+        super.startInternal();
+    }
+
+    @Override
+    protected synchronized void stopInternal() throws LifecycleException {
+        super.stopInternal();
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try {
+            getNext().invoke(request, response);
+        } finally {
+            // The dispatch of an asynchronous request returns before the response is written
+            if (!request.isAsync()) {
+                record(startMillis, System.nanoTime() - start, request.getRequestURI(), response.getStatus());
+            }
+        }
+    }
+
+    // Continue after the records of a previous start, if the file is reused
+    private long findNextSequence(MappedByteBuffer buffer) {
+        long next = 0;
+        for (int i = 0; i < capacity; i++) {
+            next = Math.max(next, buffer.getLong(HEADER_SIZE + i * RECORD_SIZE));
+        }
+        return next;
+    }
+
+    private void record(long startMillis, long durationNanos, String uri, int status) {
+        MappedByteBuffer buffer = this.buffer;
+        if (buffer == null) {
+            return;
+        }
+
+        long seq = sequence.getAndIncrement();
+        int offset = HEADER_SIZE + (int) (seq % capacity) * RECORD_SIZE;
+        // Invalidate the slot while it is being written
+        buffer.putLong(offset, 0);
+        Fences.storeFence();
+        buffer.putLong(offset + 8, startMillis);
+        buffer.putLong(offset + 16, durationNanos);
+        buffer.putInt(offset + 24, uri == null ? 0 : uri.hashCode());
+        buffer.putInt(offset + 28, status);
+        Fences.storeFence();
+        buffer.putLong(offset, seq + 1);
+    }
+
+}